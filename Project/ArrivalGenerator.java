@@ -0,0 +1,114 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+
+/**
+ * ArrivalGenerator is the ArrivalSource which generates the arrival events of customers 
+ * one at a time, in order of arrival, or all of them up front into a CustomerTable.
+ * @author Wang Pei
+ */
+final class ArrivalGenerator implements ArrivalSource {
+    /*
+     * An ArrivalGenerator has
+     * (1) The number of customers yet to arrive;
+     * (2) The id and arrival time of the next customer;
+     * (3) The RandomGenerator deciding inter-arrival times and customer types;
+     * (4) The probability for a greedy customer occuring;
+     * (5) The number of zones customers are spread over uniformly.
+     */
+    private int remaining;
+    private int nextId;
+    private double arrivalTime;
+    private final RandomGenerator rng;
+    private double Pg;
+    private int zones;
+
+    /**
+     * Constructs an ArrivalGenerator whose first customer arrives at time 0.
+     * @param customerNumber    The number of customers to generate.
+     * @param rng               The RandomGenerator used for arrivals.
+     * @param Pg                The probability for a greedy customer occuring.
+     * @param zones             The number of zones of the Topology.
+     */
+    ArrivalGenerator(int customerNumber, RandomGenerator rng, double Pg, int zones) {
+        this.remaining = customerNumber;
+        this.nextId = 1;
+        this.arrivalTime = 0;
+        this.rng = rng;
+        this.Pg = Pg;
+        this.zones = zones;
+    }
+
+    /**
+     * Restores an ArrivalGenerator written by save, after its kind.
+     * @param in    The CheckpointReader of the snapshot.
+     * @return      The restored ArrivalGenerator.
+     */
+    static ArrivalGenerator restore(CheckpointReader in) throws IOException {
+        RandomGenerator rng = in.readRandomGenerator();
+        ArrivalGenerator arrivals = new ArrivalGenerator(in.readInt(), rng, 0, 1);
+        arrivals.nextId = in.readInt();
+        arrivals.arrivalTime = in.readDouble();
+        arrivals.Pg = in.readDouble();
+        arrivals.zones = in.readInt();
+        return arrivals;
+    }
+
+    @Override
+    public void save(CheckpointWriter out) throws IOException {
+        out.writeByte(GENERATED);
+        out.writeRandomGenerator(rng);
+        out.writeInt(remaining);
+        out.writeInt(nextId);
+        out.writeDouble(arrivalTime);
+        out.writeDouble(Pg);
+        out.writeInt(zones);
+    }
+
+    /**
+     * Generates the arrival event of the next customer, if any.
+     * The RandomGenerator is drawn from in the same order 
+     * as when all customers are generated up front.
+     * With several zones, the zone of the customer is drawn after its type.
+     * @param pool  The EventPool the arrival event is obtained from.
+     * @return      The next arrival Event, or null if all customers have arrived.
+     */
+    @Override
+    public Event next(EventPool pool) {
+        if (remaining <= 0) {
+            return null;
+        }
+        remaining--;
+        boolean greedy = drawGreedy();
+        int zone = drawZone();
+        Customer c = Customer.createInZone(nextId++, arrivalTime, greedy, zone);
+        Event arrival = pool.arrivalEvent(arrivalTime, c);
+        arrivalTime += rng.genInterArrivalTime();
+        return arrival;
+    }
+
+    /**
+     * Generates all remaining customers up front into a CustomerTable, 
+     * drawing from the RandomGenerator in the same order as next.
+     * @return  The CustomerTable replaying the customers.
+     */
+    CustomerTable generateAll() {
+        CustomerTable table = new CustomerTable(nextId, zones);
+        for (; remaining > 0; remaining--) {
+            boolean greedy = drawGreedy();
+            table.add(arrivalTime, greedy, drawZone());
+            nextId++;
+            arrivalTime += rng.genInterArrivalTime();
+        }
+        return table;
+    }
+
+    private boolean drawGreedy() {
+        return rng.genCustomerType() < Pg;
+    }
+
+    private int drawZone() {
+        // The zone is only drawn with several zones, so that single-zone runs draw as before.
+        return (zones > 1) ? Math.min((int) (rng.genCustomerType() * zones), zones - 1) : 0;
+    }
+}
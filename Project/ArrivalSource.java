@@ -0,0 +1,57 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+
+/**
+ * An ArrivalSource hands out the arrival events of customers one at a time, in order of arrival,
+ * whether they are generated on the fly, replayed from a CustomerTable or from a recorded trace.
+ * @author Wang Pei
+ */
+interface ArrivalSource {
+    /*
+     * The kinds of ArrivalSource, as written first by save.
+     */
+    int GENERATED = 0;
+    int TRACE = 1;
+    int TABLE = 2;
+
+    /**
+     * Hands out the arrival event of the next customer, if any.
+     * @param pool  The EventPool the arrival event is obtained from.
+     * @return      The next arrival Event, or null if all customers have arrived.
+     */
+    Event next(EventPool pool);
+
+    /**
+     * Writes the ArrivalSource to a snapshot, starting with its kind.
+     * @param out   The CheckpointWriter of the snapshot.
+     */
+    void save(CheckpointWriter out) throws IOException;
+
+    /**
+     * Returns an ArrivalSource which has no more arrivals.
+     * @return  An exhausted ArrivalSource.
+     */
+    static ArrivalSource empty() {
+        return new CustomerTable(1, 1);
+    }
+
+    /**
+     * Restores an ArrivalSource written by save.
+     * @param in    The CheckpointReader of the snapshot.
+     * @return      The restored ArrivalSource.
+     */
+    static ArrivalSource restore(CheckpointReader in) throws IOException {
+        int kind = in.readByte();
+        switch (kind) {
+            case GENERATED:
+                return ArrivalGenerator.restore(in);
+            case TRACE:
+                return TraceArrivalSource.restore(in);
+            case TABLE:
+                return CustomerTable.restore(in);
+            default:
+                throw new IOException("Corrupt checkpoint: unknown ArrivalSource " + kind);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package cs2030.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BatchMeans splits one long run into a warm-up period, which is discarded,
+ * followed by consecutive batches of equal length, each with its own Statistics.
+ * Batches are measured either in simulated time or in customers resolved (served or left),
+ * and their means give a steady-state estimate with a confidence interval.
+ * BatchMeans of a simulation resumed from a snapshot measure the warm-up period and the batches
+ * from the snapshot on.
+ * @author Wang Pei
+ */
+public class BatchMeans {
+
+    /**
+     * The unit in which the warm-up period and the batches are measured.
+     */
+    public enum Unit {
+        TIME,
+        CUSTOMERS
+    }
+
+    /*
+     * BatchMeans have
+     * (1) The unit, warm-up length and batch length;
+     * (2) The Statistics of each batch so far, the last one possibly incomplete;
+     * (3) The number of customers resolved, the time they are measured from and the time of the last event.
+     */
+    private final Unit unit;
+    private final double warmUp;
+    private final double batchLength;
+    private final List<Statistics> batches = new ArrayList<>();
+    private long resolved = 0;
+    private final double start;
+    private double now;
+
+    /**
+     * Constructs empty BatchMeans.
+     * @param unit          The unit of the warm-up period and the batches.
+     * @param warmUp        The length of the warm-up period.
+     * @param batchLength   The length of each batch.
+     */
+    BatchMeans(Unit unit, double warmUp, double batchLength) {
+        this(unit, warmUp, batchLength, 0);
+    }
+
+    /**
+     * Constructs empty BatchMeans measured from a given time.
+     * @param unit          The unit of the warm-up period and the batches.
+     * @param warmUp        The length of the warm-up period.
+     * @param batchLength   The length of each batch.
+     * @param start         The time the warm-up period starts.
+     */
+    BatchMeans(Unit unit, double warmUp, double batchLength, double start) {
+        if (batchLength <= 0 || warmUp < 0) {
+            throw new IllegalArgumentException("Invalid warm-up " + warmUp + " or batch length " + batchLength);
+        }
+        this.unit = unit;
+        this.warmUp = warmUp;
+        this.batchLength = batchLength;
+        this.start = start;
+        this.now = start;
+    }
+
+    /**
+     * Updates the batches with an event which has just been processed.
+     * @param event     The processed event.
+     */
+    void record(Event event) {
+        now = event.time;
+        if (event.type != EventType.SERVE && event.type != EventType.LEAVE) {
+            return;
+        }
+        double position = (unit == Unit.TIME) ? event.time - start : resolved++;
+        if (position < warmUp) {
+            return;
+        }
+        int batch = (int) ((position - warmUp) / batchLength);
+        while (batches.size() <= batch) {
+            batches.add(new Statistics());
+        }
+        if (event.type == EventType.SERVE) {
+            batches.get(batch).recordServed(event.customer.getWaitTime(event.time));
+        } else {
+            batches.get(batch).recordLeft();
+        }
+    }
+
+    /**
+     * Returns the Statistics of every batch so far; the last one may be incomplete.
+     * @return  The list of batch Statistics.
+     */
+    public List<Statistics> getBatches() {
+        return batches;
+    }
+
+    /**
+     * Returns the number of batches which have been completed.
+     * @return  The number of complete batches.
+     */
+    public int getCompletedBatches() {
+        double position = (unit == Unit.TIME) ? now - start : resolved;
+        return (int) Math.min(batches.size(), Math.max(0, Math.floor((position - warmUp) / batchLength)));
+    }
+
+    /**
+     * Estimates the steady-state average wait time from the completed batches.
+     * @param confidence    The confidence level of the interval, e.g. 0.95.
+     * @return              The Estimate of the average wait time.
+     */
+    public Estimate getAverageWaitTime(double confidence) {
+        double[] means = new double[getCompletedBatches()];
+        for (int i = 0; i < means.length; i++) {
+            means[i] = batches.get(i).getAverageWaitTime();
+        }
+        return Estimate.of(means, confidence);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        String u = (unit == Unit.TIME) ? "time" : "customers";
+        sb.append(String.format("warm-up %s %s, batches of %s %s%n", warmUp, u, batchLength, u));
+        int completed = getCompletedBatches();
+        for (int i = 0; i < batches.size(); i++) {
+            sb.append("batch ").append(i + 1).append(": ").append(batches.get(i));
+            sb.append(i < completed ? "" : " (incomplete)").append(System.lineSeparator());
+        }
+        sb.append("average wait time: ").append(getAverageWaitTime(0.95)).append(" (95% confidence)");
+        return sb.toString();
+    }
+}
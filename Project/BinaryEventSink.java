@@ -0,0 +1,105 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * BinaryEventSink writes the trace of a simulation as fixed-width binary records,
+ * which keep the full precision of event times and can be read back by a TraceReader.
+ * The file starts with a header of MAGIC, VERSION, RECORD_SIZE and the number of records,
+ * followed by one record per event (rest and back events included):
+ * the time as a double, the customer id and server id as ints (0 if none),
+ * the EventType ordinal as a byte and a byte of flags.
+ * The statistics summary follows the records as a length-prefixed UTF-8 string.
+ * @author Wang Pei
+ */
+class BinaryEventSink implements EventSink {
+    /*
+     * A BinaryEventSink has
+     * (1) The channel of the trace file;
+     * (2) A large direct buffer of records not yet written;
+     * (3) The number of records written.
+     */
+    static final int MAGIC = 0x44455354;                // "DEST"
+    static final short VERSION = 1;
+    static final short RECORD_SIZE = 18;
+    static final int HEADER_SIZE = 16;
+    static final int COUNT_OFFSET = 8;
+    static final int GREEDY = 1;
+    static final int SELF_CHECKOUT = 2;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long records = 0;
+
+    /**
+     * Creates the trace file and writes its header. 
+     * The number of records is -1 until the statistics are written.
+     * @param path  The path of the trace file.
+     */
+    BinaryEventSink(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, 
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(MAGIC).putShort(VERSION).putShort(RECORD_SIZE).putLong(-1L);
+    }
+
+    @Override
+    public void accept(Event event) {
+        if (buffer.remaining() < RECORD_SIZE) {
+            flush();
+        }
+        int flags = 0;
+        if (event.customer != null && event.customer.isGreedy()) {
+            flags |= GREEDY;
+        }
+        if (event.server != null && event.server.isSelfCheckout()) {
+            flags |= SELF_CHECKOUT;
+        }
+        buffer.putDouble(event.time)
+            .putInt((event.customer == null) ? 0 : event.customer.getId())
+            .putInt((event.server == null) ? 0 : event.server.getId())
+            .put((byte) event.type.ordinal())
+            .put((byte) flags);
+        records++;
+    }
+
+    @Override
+    public void complete(String statistics) {
+        byte[] bytes = statistics.getBytes(StandardCharsets.UTF_8);
+        try {
+            flush();
+            ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES + bytes.length);
+            trailer.putInt(bytes.length).put(bytes).flip();
+            writeFully(trailer);
+            ByteBuffer count = ByteBuffer.allocate(Long.BYTES).putLong(0, records);
+            while (count.hasRemaining()) {
+                channel.write(count, COUNT_OFFSET + count.position());
+            }
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            writeFully(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
+    }
+}
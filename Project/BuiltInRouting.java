@@ -0,0 +1,65 @@
+package cs2030.simulator;
+
+/**
+ * BuiltInRouting implements the RoutingPolicies which come with the simulator
+ * on top of the server selection of SystemState; the behaviour of each Kind is chosen by a switch.
+ * @author Wang Pei
+ */
+final class BuiltInRouting implements RoutingPolicy {
+    static final BuiltInRouting FIRST_FIT = new BuiltInRouting(Kind.FIRST_FIT, 0);
+    static final BuiltInRouting SHORTEST_QUEUE = new BuiltInRouting(Kind.SHORTEST_QUEUE, 0);
+    static final BuiltInRouting SHORTEST_WORKLOAD = new BuiltInRouting(Kind.SHORTEST_WORKLOAD, 0);
+    static final BuiltInRouting ROUND_ROBIN = new BuiltInRouting(Kind.ROUND_ROBIN, 0);
+
+    /**
+     * The built-in policies.
+     */
+    enum Kind {
+        FIRST_FIT,
+        SHORTEST_QUEUE,
+        SHORTEST_WORKLOAD,
+        POWER_OF_CHOICES,
+        ROUND_ROBIN
+    }
+
+    /*
+     * A BuiltInRouting has
+     * (1) Its Kind;
+     * (2) The number of servers sampled by the power-of-d-choices policy.
+     */
+    private final Kind kind;
+    private final int choices;
+
+    BuiltInRouting(Kind kind, int choices) {
+        this.kind = kind;
+        this.choices = choices;
+    }
+
+    @Override
+    public Server select(SystemState state, Customer customer) {
+        int zone = customer.getZone();
+        Server s;
+        switch (kind) {
+            case FIRST_FIT:
+                s = state.findFirstServableServer(zone);
+                return (s != null) ? s : state.findFirstWaitableServer(zone);
+            case SHORTEST_QUEUE:
+                s = state.findFirstServableServer(zone);
+                return (s != null) ? s : state.findShortestQueueServer(zone);
+            case SHORTEST_WORKLOAD:
+                return state.findLeastWorkloadServer(zone);
+            case POWER_OF_CHOICES:
+                return state.findLeastWorkloadOfChoices(zone, choices,
+                        customer.getId() ^ Double.doubleToLongBits(customer.getArrivalTime()));
+            default:
+                return state.findRoundRobinServer(zone, customer.getId() - 1);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return (kind == Kind.POWER_OF_CHOICES)
+            ? "power-of-" + choices
+            : kind.name().toLowerCase().replace('_', '-');
+    }
+}
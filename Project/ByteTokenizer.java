@@ -0,0 +1,232 @@
+package cs2030.simulator;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ByteTokenizer reads lines of numbers directly from a buffer of ASCII text,
+ * such as a memory-mapped file, without creating a String per token.
+ * Numbers are separated by spaces, tabs or commas, and text after # is ignored.
+ * Doubles with at most 15 significant digits and a small exponent, which covers all usual inputs, 
+ * are converted exactly with a single multiplication or division; 
+ * all others are left to Double.parseDouble.
+ * @author Wang Pei
+ */
+final class ByteTokenizer {
+    /*
+     * A ByteTokenizer has
+     * (1) The buffer of text;
+     * (2) The position of the next token, the end of the current line and the start of the next line;
+     * (3) The number of the current line, for error messages.
+     */
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final int MAX_FAST_EXPONENT = 22;
+    private static final double[] POWERS_OF_TEN = new double[MAX_FAST_EXPONENT + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_FAST_EXPONENT; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final ByteBuffer bytes;
+    private int position = 0;
+    private int lineStart = 0;
+    private int lineEnd = 0;
+    private int nextLine = 0;
+    private long line;
+
+    /**
+     * Constructs a ByteTokenizer positioned before the first line of the buffer.
+     * @param bytes         The buffer of text, read from 0 to its limit.
+     * @param linesBefore   The number of lines preceding the buffer, for error messages.
+     */
+    ByteTokenizer(ByteBuffer bytes, long linesBefore) {
+        this.bytes = bytes;
+        this.line = linesBefore;
+    }
+
+    /**
+     * Advances to the next line.
+     * @return  false if there are no more lines in the buffer.
+     */
+    boolean nextLine() {
+        if (nextLine >= bytes.limit()) {
+            return false;
+        }
+        lineStart = nextLine;
+        position = nextLine;
+        lineEnd = nextLine;
+        while (lineEnd < bytes.limit() && bytes.get(lineEnd) != '\n') {
+            lineEnd++;
+        }
+        nextLine = lineEnd + 1;
+        line++;
+        return true;
+    }
+
+    /**
+     * Checks if the current line ends within the buffer, 
+     * rather than possibly continuing past its limit.
+     * @return  true if the current line is terminated by a line feed.
+     */
+    boolean isLineTerminated() {
+        return lineEnd < bytes.limit();
+    }
+
+    int getLineStart() {
+        return lineStart;
+    }
+
+    /**
+     * Returns the position of the line after the current one.
+     * @return  The position just past the line feed of the current line.
+     */
+    int getNextLineStart() {
+        return nextLine;
+    }
+
+    long getLine() {
+        return line;
+    }
+
+    /**
+     * Checks if the current line has another number, skipping separators and comments.
+     * @return  true if there is another token on the line.
+     */
+    boolean hasNext() {
+        while (position < lineEnd) {
+            byte b = bytes.get(position);
+            if (b == '#') {
+                position = lineEnd;
+            } else if (isSeparator(b)) {
+                position++;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int nextInt() {
+        int start = position;
+        int end = tokenEnd();
+        int i = start;
+        boolean negative = bytes.get(i) == '-';
+        if (negative || bytes.get(i) == '+') {
+            i++;
+        }
+        long value = 0;
+        boolean valid = i < end;
+        for (; i < end && valid; i++) {
+            int digit = bytes.get(i) - '0';
+            valid = digit >= 0 && digit <= 9 && value <= Integer.MAX_VALUE;
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (!valid || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw error("an integer expected but got " + token(start, end));
+        }
+        position = end;
+        return (int) value;
+    }
+
+    double nextDouble() {
+        int start = position;
+        int end = tokenEnd();
+        int i = start;
+        boolean negative = bytes.get(i) == '-';
+        if (negative || bytes.get(i) == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int seen = 0;
+        int scale = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            byte b = bytes.get(i);
+            if (b == '.' && !point) {
+                point = true;
+            } else if (b >= '0' && b <= '9') {
+                seen++;
+                // leading zeros are not significant
+                if (mantissa != 0 || b != '0') {
+                    digits++;
+                }
+                if (digits <= MAX_FAST_DIGITS) {
+                    mantissa = mantissa * 10 + (b - '0');
+                }
+                if (point && digits <= MAX_FAST_DIGITS) {
+                    scale--;
+                }
+            } else {
+                break;
+            }
+        }
+        if (i < end && (bytes.get(i) == 'e' || bytes.get(i) == 'E')) {
+            int j = i + 1;
+            boolean negativeExponent = j < end && bytes.get(j) == '-';
+            if (j < end && (bytes.get(j) == '-' || bytes.get(j) == '+')) {
+                j++;
+            }
+            int exponent = 0;
+            int first = j;
+            for (; j < end && exponent < 1000; j++) {
+                int digit = bytes.get(j) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                exponent = exponent * 10 + digit;
+            }
+            scale += negativeExponent ? -exponent : exponent;
+            i = (j > first) ? j : i;
+        }
+        if (i == end && seen == 0) {
+            // a sign, point or exponent without any digit, e.g. "-" or "."
+            throw error("invalid number " + token(start, end));
+        }
+        position = end;
+        if (i == end && digits <= MAX_FAST_DIGITS && Math.abs(scale) <= MAX_FAST_EXPONENT) {
+            double value = (scale < 0) 
+                ? mantissa / POWERS_OF_TEN[-scale] 
+                : mantissa * POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(token(start, end));
+        } catch (NumberFormatException e) {
+            throw error("a number expected but got " + token(start, end));
+        }
+    }
+
+    /**
+     * Returns an exception describing a malformed current line.
+     * @param message   The description of the problem.
+     * @return          The exception to be thrown.
+     */
+    IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Line " + line + ": " + message);
+    }
+
+    private int tokenEnd() {
+        int end = position;
+        while (end < lineEnd && !isSeparator(bytes.get(end)) && bytes.get(end) != '#') {
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ' ' || b == '\t' || b == ',' || b == '\r';
+    }
+
+    private String token(int start, int end) {
+        byte[] b = new byte[end - start];
+        for (int i = start; i < end; i++) {
+            b[i - start] = bytes.get(i);
+        }
+        return new String(b, StandardCharsets.US_ASCII);
+    }
+}
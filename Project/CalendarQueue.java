@@ -0,0 +1,174 @@
+package cs2030.simulator;
+
+import java.util.function.Consumer;
+
+/**
+ * CalendarQueue is a FutureEventList with amortised O(1) enqueue and dequeue,
+ * after R. Brown, "Calendar queues", CACM 31(10), 1988.
+ * Events are hashed by time into a ring of day buckets of equal width,
+ * and the number of buckets and their width follow the size of the queue.
+ * @author Wang Pei
+ */
+class CalendarQueue implements FutureEventList {
+    /*
+     * A CalendarQueue has
+     * (1) A ring of sorted buckets, whose length is a power of two;
+     * (2) The width of a day, i.e. the time span of a bucket;
+     * (3) The day currently being dequeued;
+     * (4) The number of scheduled events.
+     */
+    private static final int MIN_BUCKETS = 2;
+    private static final int SAMPLE_SIZE = 25;
+
+    private EventRun[] buckets;
+    private double width;
+    private long currentDay;
+    private int size;
+
+    CalendarQueue() {
+        this.buckets = newBuckets(MIN_BUCKETS);
+        this.width = 1.0;
+        this.currentDay = 0;
+        this.size = 0;
+    }
+
+    @Override
+    public void add(Event event) {
+        insert(event);
+        if (size > 2 * buckets.length) {
+            resize(2 * buckets.length);
+        }
+    }
+
+    @Override
+    public Event poll() {
+        if (size == 0) {
+            return null;
+        }
+        Event e = buckets[locate()].removeLast();
+        size--;
+        if (size < buckets.length / 2 && buckets.length > MIN_BUCKETS) {
+            resize(buckets.length / 2);
+        }
+        return e;
+    }
+
+    @Override
+    public Event peek() {
+        return (size == 0) ? null : buckets[locate()].last();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void forEach(Consumer<Event> action) {
+        for (EventRun b : buckets) {
+            b.forEach(action);
+        }
+    }
+
+    private long dayOf(double time) {
+        return (long) Math.floor(time / width);
+    }
+
+    private void insert(Event event) {
+        long day = dayOf(event.time);
+        buckets[(int) (day & (buckets.length - 1))].insertSorted(event);
+        size++;
+        if (day < currentDay) {
+            currentDay = day;
+        }
+    }
+
+    /**
+     * Finds the bucket holding the next event, advancing the current day.
+     * The queue must not be empty.
+     * @return  The index of the bucket.
+     */
+    private int locate() {
+        int mask = buckets.length - 1;
+        for (int i = 0; i < buckets.length; i++) {
+            long day = currentDay + i;
+            EventRun b = buckets[(int) (day & mask)];
+            if (!b.isEmpty() && dayOf(b.last().time) <= day) {
+                currentDay = day;
+                return (int) (day & mask);
+            }
+        }
+
+        // No event within a year; search all buckets directly.
+        int best = -1;
+        for (int i = 0; i < buckets.length; i++) {
+            if (!buckets[i].isEmpty() 
+                    && (best < 0 || buckets[i].last().compareTo(buckets[best].last()) < 0)) {
+                best = i;
+            }
+        }
+        currentDay = dayOf(buckets[best].last().time);
+        return best;
+    }
+
+    /**
+     * Rebuilds the calendar with the given number of buckets, estimating a new day width
+     * from the separation of the earliest events.
+     * @param bucketNumber  The new number of buckets.
+     */
+    private void resize(int bucketNumber) {
+        Event[] all = new Event[size];
+        int n = 0;
+        // The earliest events come out in order and are used as the sample.
+        int sample = Math.min(SAMPLE_SIZE, size);
+        while (n < sample) {
+            all[n++] = buckets[locate()].removeLast();
+        }
+        for (EventRun b : buckets) {
+            for (int i = 0; i < b.size(); i++) {
+                all[n++] = b.get(i);
+            }
+        }
+        double newWidth = estimateWidth(all, sample);
+
+        this.buckets = newBuckets(bucketNumber);
+        this.width = (newWidth > 0) ? newWidth : this.width;
+        this.size = 0;
+        this.currentDay = (n > 0) ? dayOf(all[0].time) : 0;
+        for (Event e : all) {
+            insert(e);
+        }
+    }
+
+    /**
+     * Estimates the day width as three times the average separation of the sampled events,
+     * ignoring separations much larger than the average.
+     * @param sorted    The events whose first entries are sorted.
+     * @param sample    The number of sorted events.
+     * @return          The new day width, or 0 if it cannot be estimated.
+     */
+    private static double estimateWidth(Event[] sorted, int sample) {
+        if (sample < 2) {
+            return 0;
+        }
+        double average = (sorted[sample - 1].time - sorted[0].time) / (sample - 1);
+        double total = 0;
+        int count = 0;
+        for (int i = 1; i < sample; i++) {
+            double gap = sorted[i].time - sorted[i - 1].time;
+            if (gap <= 2 * average) {
+                total += gap;
+                count++;
+            }
+        }
+        return (count > 0) ? 3 * total / count : 0;
+    }
+
+    private static EventRun[] newBuckets(int bucketNumber) {
+        EventRun[] buckets = new EventRun[bucketNumber];
+        for (int i = 0; i < bucketNumber; i++) {
+            buckets[i] = new EventRun();
+        }
+        return buckets;
+    }
+}
@@ -0,0 +1,219 @@
+package cs2030.simulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Checkpoint takes snapshots of a running Simulator at regular intervals,
+ * either of processed events or of simulated time, and resumes simulations from them.
+ * A snapshot holds the future events, the servers and their queues, the shared queue,
+ * the statistics, the pending arrivals and the position of the RandomGenerator,
+ * so that a resumed simulation continues with exactly the same trace.
+ * SimulationMetrics and BatchMeans are not part of a snapshot; a resumed simulation collects them
+ * from the time of the last event before the snapshot, which the snapshot holds.
+ * Snapshots taken at intervals are captured in memory between two events and written to their file
+ * on a background thread, so that the event loop does no I/O for them.
+ * @author Wang Pei
+ */
+public final class Checkpoint {
+
+    /**
+     * The unit in which the interval between snapshots is measured.
+     */
+    public enum Unit {
+        EVENTS,
+        TIME
+    }
+
+    /*
+     * A Checkpoint has
+     * (1) The file the latest snapshot is kept in;
+     * (2) The unit and length of the interval between snapshots;
+     * (3) The position at which the next snapshot is due;
+     * (4) The write of the previous snapshot, null once it is known to be complete,
+     *     and the direct buffer the writes use one after another.
+     */
+    private static final int MAGIC = 0x44455343;        // "DESC"
+    private static final int VERSION = 9;
+    private static final ExecutorService WRITERS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "checkpoint-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Path path;
+    private final Unit unit;
+    private final double interval;
+    private double next;
+    private CompletableFuture<Void> pending = null;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(CheckpointWriter.BUFFER_SIZE);
+
+    /**
+     * Constructs a Checkpoint whose first snapshot is due after one interval.
+     * @param path      The file the latest snapshot is kept in.
+     * @param unit      The unit of the interval.
+     * @param interval  The length of the interval between snapshots.
+     */
+    Checkpoint(Path path, Unit unit, double interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Invalid checkpoint interval " + interval);
+        }
+        this.path = path;
+        this.unit = unit;
+        this.interval = interval;
+        this.next = interval;
+    }
+
+    /**
+     * Decides if a snapshot is due after an event has been processed,
+     * and if so schedules the next one.
+     * @param events    The number of events processed so far.
+     * @param time      The time of the processed event.
+     * @return          true if a snapshot should be taken now.
+     */
+    boolean isDue(long events, double time) {
+        double position = (unit == Unit.EVENTS) ? events : time;
+        if (position < next) {
+            return false;
+        }
+        next = (Math.floor(position / interval) + 1) * interval;
+        return true;
+    }
+
+    /**
+     * Takes a snapshot of the simulator into the file of this Checkpoint.
+     * The snapshot is captured in memory right away, in time linear in the pending events,
+     * the customers in the system and the chunks of a CustomerTable, but not in its customers
+     * yet to arrive; as arrivals are scheduled one at a time, that is independent of the length of the run.
+     * The snapshot, including the rows of the CustomerTable, is then written to the file 
+     * on a background thread. If the previous snapshot is still being written, it is waited for first,
+     * so that at most one snapshot is held in memory.
+     * @param simulator     The simulator between two events.
+     * @throws IOException  If the previous snapshot could not be written.
+     */
+    void take(Simulator simulator) throws IOException {
+        finish();
+        CheckpointWriter snapshot = CheckpointWriter.capture();
+        write(simulator, snapshot);
+        pending = CompletableFuture.runAsync(() -> {
+            try {
+                write(path, snapshot::replay, buffer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, WRITERS);
+    }
+
+    /**
+     * Waits until the latest snapshot taken is written to the file.
+     * @throws IOException  If the snapshot could not be written.
+     */
+    void finish() throws IOException {
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        } finally {
+            pending = null;
+        }
+    }
+
+    /**
+     * Writes a snapshot of a simulator to a file. The snapshot is written to a temporary file first,
+     * so that the previous snapshot stays intact until the new one is complete.
+     * @param simulator     The simulator between two events.
+     * @param path          The file of the snapshot.
+     */
+    static void write(Simulator simulator, Path path) throws IOException {
+        write(path, out -> write(simulator, out), ByteBuffer.allocateDirect(CheckpointWriter.BUFFER_SIZE));
+    }
+
+    private static void write(Path path, CheckpointWriter.Part snapshot, ByteBuffer buffer) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, 
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckpointWriter out = new CheckpointWriter(channel, buffer);
+            snapshot.writeTo(out);
+            out.flush();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes a snapshot of a simulator to memory.
+     * @param simulator     The simulator between two events.
+     * @return              The snapshot.
+     */
+    static byte[] toBytes(Simulator simulator) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        write(simulator, new CheckpointWriter(Channels.newChannel(bytes), 
+                    ByteBuffer.allocate(CheckpointWriter.BUFFER_SIZE)));
+        return bytes.toByteArray();
+    }
+
+    private static void write(Simulator simulator, CheckpointWriter out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        simulator.save(out);
+        out.flush();
+    }
+
+    /**
+     * Resumes a simulation from a snapshot. 
+     * The trace of the resumed simulation starts with the first event after the snapshot.
+     * @param path      The file of the snapshot.
+     * @param options   The SimulatorOptions of the resumed simulation; 
+     *                      whether arrivals are generated lazily is decided by the snapshot.
+     * @return          The resumed Simulator.
+     * @throws IOException  If the snapshot cannot be read.
+     */
+    public static Simulator resume(Path path, SimulatorOptions options) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // read the whole snapshot
+            }
+        }
+        buffer.flip();
+        return read(buffer, path.toString(), options, WhatIf.none());
+    }
+
+    /**
+     * Resumes a what-if variant of a simulation from a snapshot in memory.
+     * @param snapshot  The snapshot written by toBytes, which is not modified.
+     * @param options   The SimulatorOptions of the variant.
+     * @param whatIf    The changes of the variant.
+     * @return          The Simulator of the variant.
+     */
+    static Simulator fromBytes(byte[] snapshot, SimulatorOptions options, WhatIf whatIf) throws IOException {
+        return read(ByteBuffer.wrap(snapshot), "The snapshot", options, whatIf);
+    }
+
+    private static Simulator read(ByteBuffer buffer, String name, SimulatorOptions options, WhatIf whatIf) 
+            throws IOException {
+        CheckpointReader in = new CheckpointReader(buffer);
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException(name + " is not a checkpoint");
+        }
+        return Simulator.restore(in, options, whatIf);
+    }
+}
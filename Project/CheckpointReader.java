@@ -0,0 +1,120 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CheckpointReader decodes the state of a simulation written by a CheckpointWriter.
+ * @author Wang Pei
+ */
+final class CheckpointReader {
+    /*
+     * A CheckpointReader has 
+     * (1) The buffer holding the whole snapshot;
+     * (2) The RandomGenerators read so far, in order;
+     * (3) The customers read so far, by id.
+     */
+    private final ByteBuffer buffer;
+    private final List<RandomGenerator> generators = new ArrayList<>();
+    private final Map<Integer, Customer> customers = new HashMap<>();
+
+    /**
+     * Constructs a CheckpointReader on the contents of a snapshot.
+     * @param buffer    The buffer holding the snapshot.
+     */
+    CheckpointReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    byte readByte() throws IOException {
+        ensure(Byte.BYTES);
+        return buffer.get();
+    }
+
+    boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    int readInt() throws IOException {
+        ensure(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    long readLong() throws IOException {
+        ensure(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    double readDouble() throws IOException {
+        ensure(Double.BYTES);
+        return buffer.getDouble();
+    }
+
+    /**
+     * Reads an array of bytes preceded by its length.
+     * @return  The bytes read.
+     */
+    byte[] readBytes() throws IOException {
+        int length = readInt();
+        ensure(length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Reads a customer written by CheckpointWriter.writeCustomer.
+     * @return  The customer, shared with earlier references to it, or null if no customer was written.
+     */
+    Customer readCustomer() throws IOException {
+        int id = readInt();
+        if (id == 0) {
+            return null;
+        }
+        Customer customer = customers.get(Math.abs(id));
+        if (customer != null) {
+            return customer;
+        }
+        double arrival = readDouble();
+        double serviceTime = readDouble();
+        customer = Customer.createRecorded(Math.abs(id), arrival, id < 0, serviceTime, readInt());
+        customers.put(customer.getId(), customer);
+        return customer;
+    }
+
+    /**
+     * Reads a RandomGenerator written by CheckpointWriter.writeRandomGenerator.
+     * @return  The RandomGenerator, shared with earlier references to it, or null if none was written.
+     */
+    RandomGenerator readRandomGenerator() throws IOException {
+        int index = readInt();
+        if (index < 0) {
+            return null;
+        }
+        if (index < generators.size()) {
+            return generators.get(index);
+        }
+        if (index > generators.size()) {
+            throw new IOException("Corrupt checkpoint: unknown RandomGenerator " + index);
+        }
+        RandomGenerator rng = RandomGenerator.restore(this);
+        generators.add(rng);
+        return rng;
+    }
+
+    String readString() throws IOException {
+        return new String(readBytes(), StandardCharsets.UTF_8);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (bytes < 0 || buffer.remaining() < bytes) {
+            throw new IOException("Truncated checkpoint", new BufferUnderflowException());
+        }
+    }
+}
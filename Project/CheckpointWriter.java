@@ -0,0 +1,216 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * CheckpointWriter encodes the state of a simulation into a channel.
+ * Values are collected in a direct buffer, which is only written to the channel when it is full,
+ * so that taking a snapshot costs few system calls; writers of the same Checkpoint share one.
+ * A capturing CheckpointWriter keeps the snapshot in heap memory instead, together with the parts
+ * whose writing was deferred, until it is replayed into another CheckpointWriter.
+ * @author Wang Pei
+ */
+final class CheckpointWriter {
+
+    /**
+     * A Part of a snapshot which may be written later, e.g. on another thread.
+     * It must only write values it holds itself, and no customers or RandomGenerators.
+     */
+    interface Part {
+        void writeTo(CheckpointWriter out) throws IOException;
+    }
+
+    /*
+     * A CheckpointWriter has
+     * (1) The channel the snapshot is written to, or the parts captured so far if it is capturing;
+     * (2) The buffer of values not yet written;
+     * (3) The RandomGenerators written so far, so that shared ones are written once;
+     * (4) The ids of the customers written so far, so that every customer is written once.
+     */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final List<Part> captured;
+    private final ByteBuffer buffer;
+    private final Map<RandomGenerator, Integer> generators = new IdentityHashMap<>();
+    private final Set<Integer> customers = new HashSet<>();
+
+    /**
+     * Constructs a CheckpointWriter on an open channel.
+     * @param channel   The channel the snapshot is written to.
+     */
+    CheckpointWriter(WritableByteChannel channel) {
+        this(channel, ByteBuffer.allocateDirect(BUFFER_SIZE));
+    }
+
+    /**
+     * Constructs a CheckpointWriter on an open channel, which collects values in the given buffer.
+     * @param channel   The channel the snapshot is written to.
+     * @param buffer    The buffer, of BUFFER_SIZE bytes, which no other writer uses meanwhile.
+     */
+    CheckpointWriter(WritableByteChannel channel, ByteBuffer buffer) {
+        this.channel = channel;
+        this.captured = null;
+        this.buffer = buffer.clear();
+    }
+
+    private CheckpointWriter() {
+        this.channel = null;
+        this.captured = new ArrayList<>();
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a CheckpointWriter which captures the snapshot in memory.
+     * @return  A capturing CheckpointWriter.
+     */
+    static CheckpointWriter capture() {
+        return new CheckpointWriter();
+    }
+
+    void writeByte(int value) throws IOException {
+        ensure(Byte.BYTES);
+        buffer.put((byte) value);
+    }
+
+    void writeBoolean(boolean value) throws IOException {
+        writeByte(value ? 1 : 0);
+    }
+
+    void writeInt(int value) throws IOException {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    void writeLong(long value) throws IOException {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    void writeDouble(double value) throws IOException {
+        ensure(Double.BYTES);
+        buffer.putDouble(value);
+    }
+
+    /**
+     * Writes an array of bytes, preceded by its length.
+     * @param bytes     The bytes to be written.
+     */
+    void writeBytes(byte[] bytes) throws IOException {
+        writeInt(bytes.length);
+        writeRaw(bytes);
+    }
+
+    private void writeRaw(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensure(1);
+            int n = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, n);
+            offset += n;
+        }
+    }
+
+    /**
+     * Writes a String as its UTF-8 bytes.
+     * @param s     The String to be written.
+     */
+    void writeString(String s) throws IOException {
+        writeBytes(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes a customer, which may be null, or only its id if it has been written before.
+     * The id is negated for greedy customers, and 0 stands for no customer.
+     * @param customer  The customer to be written.
+     */
+    void writeCustomer(Customer customer) throws IOException {
+        if (customer == null) {
+            writeInt(0);
+            return;
+        }
+        writeInt(customer.isGreedy() ? -customer.getId() : customer.getId());
+        if (!customers.add(customer.getId())) {
+            return;
+        }
+        writeDouble(customer.getArrivalTime());
+        writeDouble(customer.getServiceTime());
+        writeInt(customer.getZone());
+    }
+
+    /**
+     * Writes a RandomGenerator, which may be null, or a reference to it if it has been written before.
+     * @param rng   The RandomGenerator to be written.
+     */
+    void writeRandomGenerator(RandomGenerator rng) throws IOException {
+        if (rng == null) {
+            writeInt(-1);
+            return;
+        }
+        Integer written = generators.get(rng);
+        if (written != null) {
+            writeInt(written);
+            return;
+        }
+        writeInt(generators.size());
+        generators.put(rng, generators.size());
+        rng.save(this);
+    }
+
+    /**
+     * Writes a part of the snapshot right away, or captures it to be written when the snapshot is replayed.
+     * @param part  The part to be written.
+     */
+    void writeLater(Part part) throws IOException {
+        if (captured == null) {
+            part.writeTo(this);
+            return;
+        }
+        flush();
+        captured.add(part);
+    }
+
+    /**
+     * Writes the captured snapshot, with its deferred parts, to another CheckpointWriter.
+     * @param out   The CheckpointWriter the snapshot is written to.
+     */
+    void replay(CheckpointWriter out) throws IOException {
+        for (Part part : captured) {
+            part.writeTo(out);
+        }
+    }
+
+    /**
+     * Writes all buffered values to the channel, or captures them.
+     */
+    void flush() throws IOException {
+        buffer.flip();
+        if (captured != null) {
+            if (buffer.hasRemaining()) {
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                captured.add(out -> out.writeRaw(bytes));
+            }
+        } else {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        buffer.clear();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+}
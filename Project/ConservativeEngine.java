@@ -0,0 +1,212 @@
+package cs2030.simulator;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ConservativeEngine is a PartitionedEngine which advances its partitions in parallel 
+ * from one arrival to the next. As arrival times do not depend on the state of the servers,
+ * the next arrival is the lookahead of every partition: all events before it can be 
+ * processed without synchronisation, and at the arrival every partition is in the state
+ * its routing depends on.
+ * As each arrival depends on the state of all servers, windows are one inter-arrival time long,
+ * and the parallelism is that of the events between consecutive arrivals.
+ * With a few events per customer, a window holds less work than its barrier costs,
+ * so the engine does not scale with the number of partitions.
+ * @author Wang Pei
+ */
+class ConservativeEngine extends PartitionedEngine {
+    /*
+     * A ConservativeEngine has
+     * (1) The partitions with events in the current window;
+     * (2) The Workers advancing partitions in parallel.
+     */
+    private ConservativeProcess[] active;
+    private int activeCount;
+    private Workers workers;
+
+    /**
+     * Constructs a ConservativeEngine for the state and events of a Simulator.
+     * @see PartitionedEngine#PartitionedEngine(int, FutureEventList.Kind, SystemState, 
+     *          FutureEventList, ArrivalSource, EventPool, EventSink, BatchMeans)
+     */
+    ConservativeEngine(int partitions, FutureEventList.Kind kind, SystemState state,
+            FutureEventList futureEvents, ArrivalSource arrivals, EventPool pool,
+            EventSink sink, BatchMeans batchMeans) {
+        super(partitions, kind, state, futureEvents, arrivals, pool, sink, batchMeans);
+    }
+
+    @Override
+    LogicalProcess createProcess(List<Server> humanServers, List<Server> selfCheckouts,
+            Queue<Customer> sharedQueue, int maxQLen, FutureEventList events) {
+        return new ConservativeProcess(humanServers, selfCheckouts, sharedQueue, maxQLen, events);
+    }
+
+    @Override
+    long run() {
+        partition();
+        active = new ConservativeProcess[processes.length];
+        workers = new Workers(Math.min(processes.length, Runtime.getRuntime().availableProcessors()) - 1);
+        try {
+            // The first window holds the events scheduled before the first arrival.
+            Event arrival = nextArrival();
+            advance(arrival, Double.NEGATIVE_INFINITY, EventType.DONE);
+            while (arrival != null) {
+                route(arrival);
+                Event next = nextArrival();
+                advance(next, arrival.time, EventType.ARRIVAL);
+                arrival = next;
+            }
+        } finally {
+            workers.stop();
+        }
+        return getPassedEvents();
+    }
+
+    /**
+     * Advances every partition to the next arrival and passes on the events of the window.
+     * @param next          The next arrival, or null to advance the partitions to the end.
+     * @param startTime     The time of the first event of the window.
+     * @param startType     The EventType of the first event of the window.
+     */
+    private void advance(Event next, double startTime, EventType startType) {
+        double time = (next == null) ? Double.POSITIVE_INFINITY : next.time;
+        activeCount = 0;
+        for (LogicalProcess lp : processes) {
+            ConservativeProcess cp = (ConservativeProcess) lp;
+            if (cp.hasEventsBefore(time, EventType.ARRIVAL)) {
+                active[activeCount++] = cp;
+            }
+        }
+        if (activeCount == 1) {
+            // A single busy partition is not worth waking the workers for.
+            active[0].advance(time, EventType.ARRIVAL, startTime, startType);
+        } else if (activeCount > 1) {
+            workers.advance(active, activeCount, time, startTime, startType);
+        }
+        passWindow(active, activeCount);
+    }
+
+    /**
+     * Workers are the threads which advance partitions together with the thread of the engine.
+     * Every window publishes a Round of partitions to be advanced;
+     * each partition is claimed by exactly one thread. Idle workers spin for a while
+     * and then park, as windows follow each other closely.
+     */
+    private static final class Workers {
+        private static final int SPINS = 1 << 12;
+
+        private final Thread[] threads;
+        private final AtomicIntegerArray parked;
+        private volatile Round round = null;
+        private volatile boolean stopped = false;
+
+        Workers(int number) {
+            this.threads = new Thread[Math.max(number, 0)];
+            this.parked = new AtomicIntegerArray(threads.length);
+            for (int i = 0; i < threads.length; i++) {
+                int id = i;
+                threads[i] = new Thread(() -> work(id), "logical-process-" + (i + 1));
+                threads[i].setDaemon(true);
+                threads[i].start();
+            }
+        }
+
+        /**
+         * Advances the given partitions to the bound and returns once all of them are done.
+         * @throws IllegalStateException if advancing any of the partitions failed.
+         */
+        void advance(ConservativeProcess[] tasks, int taskCount, double time,
+                double startTime, EventType startType) {
+            Round r = new Round(tasks, taskCount, time, startTime, startType);
+            round = r;
+            for (int i = 0; i < threads.length; i++) {
+                if (parked.get(i) != 0) {
+                    LockSupport.unpark(threads[i]);
+                }
+            }
+            r.claimTasks();
+            for (int spins = 0; r.done.get() < taskCount; spins++) {
+                if (spins < SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            if (r.failure.get() != null) {
+                throw new IllegalStateException("A logical process failed", r.failure.get());
+            }
+        }
+
+        private void work(int id) {
+            Round seen = null;
+            while (true) {
+                for (int spins = 0; round == seen && !stopped; spins++) {
+                    if (spins < SPINS) {
+                        Thread.onSpinWait();
+                    } else {
+                        parked.set(id, 1);
+                        if (round == seen && !stopped) {
+                            LockSupport.park(this);
+                        }
+                        parked.set(id, 0);
+                    }
+                }
+                if (stopped) {
+                    return;
+                }
+                seen = round;
+                seen.claimTasks();
+            }
+        }
+
+        void stop() {
+            stopped = true;
+            for (Thread t : threads) {
+                LockSupport.unpark(t);
+            }
+        }
+    }
+
+    /**
+     * A Round holds the partitions of one window and counts those claimed and done,
+     * so that a worker which is late for a round cannot claim a partition of the next one.
+     * A partition which fails is still counted as done, and its failure is kept for the engine.
+     */
+    private static final class Round {
+        private final ConservativeProcess[] tasks;
+        private final int taskCount;
+        private final double time;
+        private final double startTime;
+        private final EventType startType;
+        private final AtomicInteger claimed = new AtomicInteger();
+        private final AtomicInteger done = new AtomicInteger();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Round(ConservativeProcess[] tasks, int taskCount, double time, double startTime, EventType startType) {
+            this.tasks = tasks;
+            this.taskCount = taskCount;
+            this.time = time;
+            this.startTime = startTime;
+            this.startType = startType;
+        }
+
+        void claimTasks() {
+            for (int i = claimed.getAndIncrement(); i < taskCount; i = claimed.getAndIncrement()) {
+                try {
+                    tasks[i].advance(time, EventType.ARRIVAL, startTime, startType);
+                } catch (Throwable t) {
+                    if (!failure.compareAndSet(null, t)) {
+                        failure.get().addSuppressed(t);
+                    }
+                } finally {
+                    done.incrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package cs2030.simulator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * A ConservativeProcess is a LogicalProcess which is only advanced up to the next arrival,
+ * so that its servers are in their state at the arrival when it is routed.
+ * The events processed in a window are logged, with the key they are merged by,
+ * until the ConservativeEngine has passed them on.
+ * @author Wang Pei
+ */
+class ConservativeProcess extends LogicalProcess {
+    /*
+     * A ConservativeProcess has
+     * (1) The events processed in the current window, each with its merge key;
+     * (2) The running merge key: the largest time and type processed in the window so far,
+     *     as an event scheduled before the one which scheduled it (a serve after a back)
+     *     is processed right after it.
+     */
+    private Event[] log = new Event[64];
+    private double[] logTime = new double[64];
+    private int[] logType = new int[64];
+    private int logSize = 0;
+
+    private double keyTime;
+    private int keyType;
+
+    /**
+     * Constructs a ConservativeProcess over the given servers.
+     * @see LogicalProcess#LogicalProcess(List, List, Queue, int, FutureEventList)
+     */
+    ConservativeProcess(List<Server> humanServers, List<Server> selfCheckouts,
+            Queue<Customer> sharedQueue, int maxQLen, FutureEventList events) {
+        super(humanServers, selfCheckouts, sharedQueue, maxQLen, events);
+    }
+
+    @Override
+    void receive(Customer customer, Server server, double time, EventType type) {
+        events.add((type == EventType.SERVE)
+                ? pool.serveEvent(time, customer, server)
+                : pool.waitEvent(time, customer, server));
+    }
+
+    @Override
+    Server firstServable() {
+        return state.findFirstServableServer();
+    }
+
+    @Override
+    Server firstWaitable() {
+        return state.findFirstWaitableServer();
+    }
+
+    @Override
+    Server shortestQueue() {
+        return state.findShortestQueueServer();
+    }
+
+    @Override
+    int shortestQueueLength() {
+        return state.findShortestQueueServer().currentQLen();
+    }
+
+    /**
+     * Checks if the partition has events to process before the given bound.
+     * @param time      The time of the bound.
+     * @param type      The EventType of the bound.
+     * @return          true if the next event comes before the bound.
+     */
+    boolean hasEventsBefore(double time, EventType type) {
+        Event next = events.peek();
+        return next != null && isBefore(next, time, type.ordinal());
+    }
+
+    /**
+     * Processes all events which come before the given bound, in order, and logs them.
+     * No event can be scheduled into the partition before the bound meanwhile,
+     * as the next arrival is the first event which may be routed to it.
+     * @param time          The time of the bound.
+     * @param type          The EventType of the bound.
+     * @param startTime     The time of the first event of the window, the lower end of merge keys.
+     * @param startType     The EventType of the first event of the window.
+     */
+    void advance(double time, EventType type, double startTime, EventType startType) {
+        keyTime = startTime;
+        keyType = startType.ordinal();
+        int bound = type.ordinal();
+        Event next = events.peek();
+        while (next != null && isBefore(next, time, bound)) {
+            Event curr = events.poll();
+            Event scheduled = curr.getNextEvent(state, pool);
+            if (scheduled != null) {
+                events.add(scheduled);
+            }
+            if (curr.time > keyTime || (curr.time == keyTime && curr.type.ordinal() > keyType)) {
+                keyTime = curr.time;
+                keyType = curr.type.ordinal();
+            }
+            append(curr);
+            next = events.peek();
+        }
+    }
+
+    private void append(Event event) {
+        if (logSize == log.length) {
+            log = Arrays.copyOf(log, logSize * 2);
+            logTime = Arrays.copyOf(logTime, logSize * 2);
+            logType = Arrays.copyOf(logType, logSize * 2);
+        }
+        log[logSize] = event;
+        logTime[logSize] = keyTime;
+        logType[logSize] = keyType;
+        logSize++;
+    }
+
+    @Override
+    int windowSize() {
+        return logSize;
+    }
+
+    @Override
+    Event windowEvent(int i) {
+        return log[i];
+    }
+
+    @Override
+    double windowTime(int i) {
+        return logTime[i];
+    }
+
+    @Override
+    int windowType(int i) {
+        return logType[i];
+    }
+
+    @Override
+    void passedWindow() {
+        for (int i = 0; i < logSize; i++) {
+            pool.release(log[i]);
+            log[i] = null;
+        }
+        logSize = 0;
+    }
+}
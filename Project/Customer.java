@@ -11,48 +11,96 @@ public class Customer {
      * (1) An unique id.
      * (2) A time of arrival.
      * (3) A boolean value denoting if it is greedy.
-     * (3) Static fields storing customer statistics:
-     *      [1]. total customer number.
-     *      [2]. total wait time.
-     *      [3]. number of customers served.
-     *      [4]. number of customers left.
+     * (4) A recorded service time, or NaN if it is drawn when the customer is served.
+     * (5) The zone of the Topology it belongs to.
+     * Customer statistics are kept per simulation by the Statistics class.
      */
 
     private final int id;
     private final double arrival;
     private final boolean greedy;
-    public static int CUSTOMER_NUMBER = 0;
-    public static double WAIT_TIME = 0;
-    public static int CUSTOMER_SERVED = 0;
-    public static int CUSTOMER_LEFT = 0;
+    private final double serviceTime;
+    private final int zone;
 
     /**
      * Constructs a Customer.
-     * @param arrival   The time a customer arrives.
-     * @param isGreedy  The boolean value denoting if it is greedy.
+     * @param id            The id of the customer.
+     * @param arrival       The time a customer arrives.
+     * @param isGreedy      The boolean value denoting if it is greedy.
+     * @param serviceTime   The recorded service time, or NaN if it is drawn.
+     * @param zone          The zone of the customer.
      */
-    private Customer(double arrival, boolean isGreedy) {
-        this.id = ++CUSTOMER_NUMBER;
+    private Customer(int id, double arrival, boolean isGreedy, double serviceTime, int zone) {
+        this.id = id;
 		this.arrival = arrival;
         this.greedy = isGreedy;
+        this.serviceTime = serviceTime;
+        this.zone = zone;
     }
 
     /**
      * Creates a typical customer.
+     * @param id        The id of the customer.
      * @param arrival   The time of arrival of the customer.
      * @return          A typical customer.
      */
-    public static Customer createCustomer(double arrival) {
-        return new Customer(arrival, false);
+    public static Customer createCustomer(int id, double arrival) {
+        return new Customer(id, arrival, false, Double.NaN, 0);
     }
 
     /**
      * Creates a greedy customer.
+     * @param id        The id of the customer.
      * @param arrival   The time of arrival of the customer.
      * @return          A greedy customer.
      */
-    public static Customer createGreedy(double arrival) {
-        return new Customer(arrival, true);
+    public static Customer createGreedy(int id, double arrival) {
+        return new Customer(id, arrival, true, Double.NaN, 0);
+    }
+
+    /**
+     * Creates a customer replayed from a trace, whose service time has been recorded.
+     * @param id            The id of the customer.
+     * @param arrival       The time of arrival of the customer.
+     * @param isGreedy      The boolean value denoting if it is greedy.
+     * @param serviceTime   The recorded service time, or NaN if it is drawn.
+     * @param zone          The zone of the customer.
+     * @return              A customer with the given service time.
+     */
+    static Customer createRecorded(int id, double arrival, boolean isGreedy, double serviceTime, int zone) {
+        return new Customer(id, arrival, isGreedy, serviceTime, zone);
+    }
+
+    /**
+     * Creates a customer of a zone whose service time is drawn when it is served.
+     * @param id            The id of the customer.
+     * @param arrival       The time of arrival of the customer.
+     * @param isGreedy      The boolean value denoting if it is greedy.
+     * @param zone          The zone of the customer.
+     * @return              A customer of the zone.
+     */
+    static Customer createInZone(int id, double arrival, boolean isGreedy, int zone) {
+        return new Customer(id, arrival, isGreedy, Double.NaN, zone);
+    }
+
+    int getId() {
+        return this.id;
+    }
+
+    double getArrivalTime() {
+        return this.arrival;
+    }
+
+    /**
+     * Returns the recorded service time of the customer.
+     * @return  The service time, or NaN if it is drawn when the customer is served.
+     */
+    double getServiceTime() {
+        return this.serviceTime;
+    }
+
+    int getZone() {
+        return this.zone;
     }
 
     public boolean isGreedy() {
@@ -68,21 +116,6 @@ public class Customer {
         return time - this.arrival;
     }
 
-    /**
-     * Calculates statistics about customers.
-     * The returned string contains:
-     * (1) Average waiting time.
-     * (2) Number of customers served.
-     * (3) Number of customers left.
-     * @return  A String of statistics.
-     */
-    public static String statistics() {
-        return String.format("[%.3f %d %d]", 
-                (CUSTOMER_SERVED == 0) ? 0.0 : WAIT_TIME / CUSTOMER_SERVED, 
-                CUSTOMER_SERVED, 
-                CUSTOMER_LEFT);
-    }
-
     @Override
     public String toString() {
         return (isGreedy())
@@ -0,0 +1,119 @@
+package cs2030.simulator;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * CustomerQueue is a first-in-first-out queue of customers kept in a ring buffer
+ * sized from the maximum queue length, so that enqueueing and polling do not allocate
+ * as long as the queue stays within it.
+ * The queue itself is not bounded, and grows when it is full:
+ * customers arriving at the same time all see the space left before any of them is enqueued,
+ * so they may exceed the maximum queue length together,
+ * and a what-if variant may raise the maximum queue length of a running simulation.
+ * @author Wang Pei
+ */
+final class CustomerQueue extends AbstractQueue<Customer> {
+    // Maximum queue lengths beyond this, often meaning no limit, start at it and grow as far as they are used.
+    private static final int MAX_INITIAL_CAPACITY = 1 << 10;
+
+    /*
+     * A CustomerQueue has
+     * (1) The ring buffer of customers, whose length is a power of 2;
+     * (2) The position of the first customer and the number of customers.
+     */
+    private Customer[] elements;
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * Constructs an empty CustomerQueue whose ring buffer holds at least maxQLen customers,
+     * up to MAX_INITIAL_CAPACITY.
+     * @param maxQLen   The maximum length of the queue.
+     */
+    CustomerQueue(int maxQLen) {
+        int capacity = 1;
+        while (capacity < Math.min(maxQLen, MAX_INITIAL_CAPACITY)) {
+            capacity <<= 1;
+        }
+        this.elements = new Customer[capacity];
+    }
+
+    @Override
+    public boolean offer(Customer customer) {
+        if (customer == null) {
+            throw new NullPointerException();
+        }
+        if (size == elements.length) {
+            grow();
+        }
+        elements[(head + size) & (elements.length - 1)] = customer;
+        size++;
+        return true;
+    }
+
+    @Override
+    public Customer poll() {
+        if (size == 0) {
+            return null;
+        }
+        Customer customer = elements[head];
+        elements[head] = null;
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return customer;
+    }
+
+    @Override
+    public Customer peek() {
+        return (size == 0) ? null : elements[head];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            elements[(head + i) & (elements.length - 1)] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns an iterator over the customers from the first to the last, which does not support removal.
+     * @return  The iterator.
+     */
+    @Override
+    public Iterator<Customer> iterator() {
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Customer next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return elements[(head + next++) & (elements.length - 1)];
+            }
+        };
+    }
+
+    private void grow() {
+        Customer[] grown = new Customer[elements.length * 2];
+        for (int i = 0; i < size; i++) {
+            grown[i] = elements[(head + i) & (elements.length - 1)];
+        }
+        elements = grown;
+        head = 0;
+    }
+}
@@ -0,0 +1,177 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * CustomerTable is the ArrivalSource which replays customers generated up front.
+ * It keeps them in columns, rather than as a Customer and an arrival Event each: 
+ * their arrival times in a double array, whether they are greedy in a bitset,
+ * and their zones in a byte array if there are several zones, one byte per customer
+ * for up to 256 zones and as many bytes as the number of zones needs beyond.
+ * Ids are consecutive, so only the first is kept. That is about 8 bytes per customer, 
+ * 9 with up to 256 zones.
+ * The columns are split into chunks. As the table is filled before the first customer arrives,
+ * a chunk would never be written again, so it is dropped once all of its customers have arrived;
+ * only customers in the system are Customer objects.
+ * @author Wang Pei
+ */
+final class CustomerTable implements ArrivalSource {
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /*
+     * A CustomerTable has
+     * (1) The id of its first customer;
+     * (2) The chunks of arrival times, greedy bits and zones, the latter null with a single zone;
+     * (3) The number of zones, and the number of bytes of the zone of a customer;
+     * (4) The number of customers added, and the position of the next customer to arrive.
+     */
+    private final int firstId;
+    private double[][] arrivals = new double[0][];
+    private long[][] greedy = new long[0][];
+    private byte[][] zones;
+    private final int zoneNumber;
+    private final int zoneBytes;
+    private int size = 0;
+    private int next = 0;
+
+    /**
+     * Constructs an empty CustomerTable.
+     * @param firstId       The id of the first customer to be added.
+     * @param zoneNumber    The number of zones the customers belong to.
+     */
+    CustomerTable(int firstId, int zoneNumber) {
+        this.firstId = firstId;
+        this.zoneNumber = zoneNumber;
+        this.zoneBytes = (Integer.SIZE - Integer.numberOfLeadingZeros(zoneNumber - 1) + 7) / 8;
+        this.zones = (zoneBytes > 0) ? new byte[0][] : null;
+    }
+
+    /**
+     * Restores a CustomerTable written by save, holding the customers yet to arrive.
+     * @param in    The CheckpointReader of the snapshot.
+     * @return      The restored CustomerTable.
+     */
+    static CustomerTable restore(CheckpointReader in) throws IOException {
+        CustomerTable table = new CustomerTable(in.readInt(), in.readInt());
+        for (int n = in.readInt(); n > 0; n--) {
+            double arrival = in.readDouble();
+            boolean greedy = in.readBoolean();
+            table.add(arrival, greedy, (table.zones != null) ? in.readInt() : 0);
+        }
+        return table;
+    }
+
+    /**
+     * Writes the header of the table right away and its remaining rows later, if the writer defers them.
+     * As rows are not changed once the first customer has arrived, the rows are written
+     * from the chunks as they are now, even if they are dropped in the meantime.
+     */
+    @Override
+    public void save(CheckpointWriter out) throws IOException {
+        out.writeByte(TABLE);
+        out.writeInt(firstId + next);
+        out.writeInt(zoneNumber);
+        out.writeInt(size - next);
+        double[][] arrivalChunks = arrivals.clone();
+        long[][] greedyChunks = greedy.clone();
+        byte[][] zoneChunks = (zones != null) ? zones.clone() : null;
+        int from = next;
+        int to = size;
+        out.writeLater(rows -> {
+            for (int i = from; i < to; i++) {
+                int chunk = i >>> CHUNK_SHIFT;
+                int slot = i & CHUNK_MASK;
+                rows.writeDouble(arrivalChunks[chunk][slot]);
+                rows.writeBoolean((greedyChunks[chunk][slot >>> 6] & (1L << slot)) != 0);
+                if (zoneChunks != null) {
+                    rows.writeInt(zoneOf(zoneChunks[chunk], slot));
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a customer after the last one.
+     * @param arrival   The time of arrival of the customer.
+     * @param isGreedy  The boolean value denoting if it is greedy.
+     * @param zone      The zone of the customer, 0 if there is a single zone.
+     */
+    void add(double arrival, boolean isGreedy, int zone) {
+        int chunk = size >>> CHUNK_SHIFT;
+        int slot = size & CHUNK_MASK;
+        if (slot == 0) {
+            grow(chunk);
+        }
+        arrivals[chunk][slot] = arrival;
+        if (isGreedy) {
+            greedy[chunk][slot >>> 6] |= 1L << slot;
+        }
+        for (int b = 0; b < zoneBytes; b++) {
+            zones[chunk][slot * zoneBytes + b] = (byte) (zone >>> (8 * b));
+        }
+        size++;
+    }
+
+    private void grow(int chunk) {
+        if (chunk == arrivals.length) {
+            int length = Math.max(2 * chunk, 1);
+            arrivals = Arrays.copyOf(arrivals, length);
+            greedy = Arrays.copyOf(greedy, length);
+            if (zones != null) {
+                zones = Arrays.copyOf(zones, length);
+            }
+        }
+        arrivals[chunk] = new double[CHUNK_SIZE];
+        greedy[chunk] = new long[CHUNK_SIZE >>> 6];
+        if (zones != null) {
+            zones[chunk] = new byte[CHUNK_SIZE * zoneBytes];
+        }
+    }
+
+    /**
+     * Returns the number of customers yet to arrive.
+     * @return  The number of remaining customers.
+     */
+    int remaining() {
+        return size - next;
+    }
+
+    /**
+     * Creates the next customer to arrive and its arrival event, if any,
+     * and drops the chunk of the customer if it was the last of it.
+     * @param pool  The EventPool the arrival event is obtained from.
+     * @return      The next arrival Event, or null if all customers have arrived.
+     */
+    @Override
+    public Event next(EventPool pool) {
+        if (next == size) {
+            return null;
+        }
+        int chunk = next >>> CHUNK_SHIFT;
+        int slot = next & CHUNK_MASK;
+        double arrival = arrivals[chunk][slot];
+        boolean isGreedy = (greedy[chunk][slot >>> 6] & (1L << slot)) != 0;
+        int zone = (zones != null) ? zoneOf(zones[chunk], slot) : 0;
+        Customer c = Customer.createInZone(firstId + next, arrival, isGreedy, zone);
+        next++;
+        if (slot == CHUNK_MASK) {
+            arrivals[chunk] = null;
+            greedy[chunk] = null;
+            if (zones != null) {
+                zones[chunk] = null;
+            }
+        }
+        return pool.arrivalEvent(arrival, c);
+    }
+
+    private int zoneOf(byte[] zoneChunk, int slot) {
+        int zone = 0;
+        for (int b = 0; b < zoneBytes; b++) {
+            zone |= (zoneChunk[slot * zoneBytes + b] & 0xFF) << (8 * b);
+        }
+        return zone;
+    }
+}
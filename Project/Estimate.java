@@ -0,0 +1,133 @@
+package cs2030.simulator;
+
+/**
+ * The immutable Estimate class summarises independent samples of a quantity
+ * by their mean, variance and a Student-t confidence interval of the mean.
+ * @author Wang Pei
+ */
+public final class Estimate {
+    private final int n;
+    private final double mean;
+    private final double variance;
+    private final double halfWidth;
+
+    private Estimate(int n, double mean, double variance, double halfWidth) {
+        this.n = n;
+        this.mean = mean;
+        this.variance = variance;
+        this.halfWidth = halfWidth;
+    }
+
+    /**
+     * Estimates the mean of the given samples.
+     * @param samples       The independent samples.
+     * @param confidence    The confidence level of the interval, e.g. 0.95.
+     * @return              The Estimate of the samples.
+     */
+    public static Estimate of(double[] samples, double confidence) {
+        // Welford's online algorithm, in the order of the samples.
+        int n = 0;
+        double mean = 0;
+        double m2 = 0;
+        for (double x : samples) {
+            n++;
+            double delta = x - mean;
+            mean += delta / n;
+            m2 += delta * (x - mean);
+        }
+        double variance = (n > 1) ? m2 / (n - 1) : 0;
+        double halfWidth = (n > 1) 
+            ? studentT(0.5 + confidence / 2, n - 1) * Math.sqrt(variance / n) 
+            : Double.NaN;
+        return new Estimate(n, mean, variance, halfWidth);
+    }
+
+    public int getCount() {
+        return n;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getVariance() {
+        return variance;
+    }
+
+    /**
+     * Returns the half width of the confidence interval of the mean.
+     * @return  The half width, or NaN if there are fewer than two samples.
+     */
+    public double getHalfWidth() {
+        return halfWidth;
+    }
+
+    public double getLower() {
+        return mean - halfWidth;
+    }
+
+    public double getUpper() {
+        return mean + halfWidth;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.3f +- %.3f (variance %.3f)", mean, halfWidth, variance);
+    }
+
+    /**
+     * Returns the p-quantile of the Student-t distribution with the given degrees of freedom.
+     * Exact for one and two degrees of freedom, and a Cornish-Fisher expansion 
+     * around the normal quantile otherwise.
+     * @param p     The probability, above 0.5.
+     * @param df    The degrees of freedom.
+     * @return      The quantile.
+     */
+    static double studentT(double p, int df) {
+        if (df == 1) {
+            return Math.tan(Math.PI * (p - 0.5));
+        }
+        if (df == 2) {
+            double a = 2 * p - 1;
+            return a * Math.sqrt(2 / (1 - a * a));
+        }
+        double z = normal(p);
+        double z2 = z * z;
+        double v = df;
+        return z 
+            + z * (z2 + 1) / (4 * v)
+            + z * ((5 * z2 + 16) * z2 + 3) / (96 * v * v)
+            + z * (((3 * z2 + 19) * z2 + 17) * z2 - 15) / (384 * v * v * v)
+            + z * ((((79 * z2 + 776) * z2 + 1482) * z2 - 1920) * z2 - 945) / (92160 * v * v * v * v);
+    }
+
+    /**
+     * Returns the p-quantile of the standard normal distribution,
+     * by P. J. Acklam's rational approximation.
+     * @param p     The probability, between 0 and 1.
+     * @return      The quantile.
+     */
+    static double normal(double p) {
+        final double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+            1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        final double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+            6.680131188771972e+01, -1.328068155288572e+01};
+        final double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+            -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        final double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+            3.754408661907416e+00};
+        double low = 0.02425;
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - low) {
+            return -normal(1 - p);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+            / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+}
@@ -1,14 +1,13 @@
 package cs2030.simulator;
 
-import java.util.Optional;
-import java.util.Queue;
-
 /**
- *  The event abstract class changes the state of the system 
- *  and schedules new events.
+ *  The Event class changes the state of the system 
+ *  and schedules new events. 
+ *  Events are mutable records so that the Simulator can recycle them through an EventPool;
+ *  the behaviour of each EventType is chosen by a switch.
  *  @author Wang Pei
  */
-public abstract class Event implements Comparable<Event> {
+public final class Event implements Comparable<Event> {
     /*
      * All events have
      * (1) A customer involved in the event;
@@ -17,11 +16,11 @@ public abstract class Event implements Comparable<Event> {
      * (4) Type of the event.
      */
     
-	// Using default access modifier to allow access of enclosed class
-	final Customer customer; 
-    final Server server;
-    final double time;
-    final EventType type;
+	// Using default access modifier to allow access within the package
+	Customer customer; 
+    Server server;
+    double time;
+    EventType type;
 
     /**
      * Constructs an Event.
@@ -31,23 +30,140 @@ public abstract class Event implements Comparable<Event> {
      * @param type  		The type of the event.
      */
     private Event(Customer customer, Server server, double time, EventType type) {
+        set(customer, server, time, type);
+    }
+
+    /**
+     * Constructs a blank Event to be set by an EventPool.
+     */
+    Event() {
+    }
+
+    /**
+     * Sets all fields of the event.
+     * @param customer		The customer of the event.
+     * @param server		The server of the event.
+     * @param time			The time of the event.
+     * @param type  		The type of the event.
+     * @return              This event.
+     */
+    Event set(Customer customer, Server server, double time, EventType type) {
         this.customer = customer;
         this.server = server;
         this.time = time;
         this.type = type;
+        return this;
     }
 
     /**
      * Gets the next event based current system state
-     * and updates statistics in Customer class.
+     * and updates statistics of the SystemState.
      * @param state     The current SystemState.
-     * @return          The next scheduled Event.
+     * @param pool      The EventPool the next event is obtained from.
+     * @return          The next scheduled Event, or null if there is none.
      */
-    abstract Optional<Event> getNextEvent(SystemState state);
+    Event getNextEvent(SystemState state, EventPool pool) {
+        switch (type) {
+            case ARRIVAL:
+                return nextOfArrival(state, pool);
+            case SERVE:
+                return nextOfServe(state, pool);
+            case REST:
+                return nextOfRest(pool);
+            case BACK:
+                return nextOfBack(pool);
+            case DONE:
+                return nextOfDone(pool);
+            case WAIT:
+                return nextOfWait();
+            default:
+                return nextOfLeave(state);
+        }
+    }
+
+    /**
+     * Arrival Events have 3 types of next event:
+     * (1) A Serve Event if a server is free, or
+     * (2) A Wait Event if a server can enqueue a customer, or
+     * (3) A Leave Event if no server can serve or enqueue a customer.
+     * Only the servers of the candidate zones of the customer are considered,
+     * and the server is selected by the RoutingPolicy of its class of customers.
+     */
+    private Event nextOfArrival(SystemState state, EventPool pool) {
+        Server s = state.route(customer);
+        if (s == null) {
+            return pool.leaveEvent(time, customer);
+        }
+        return s.canServe()
+            ? pool.serveEvent(time, customer, s)
+            : pool.waitEvent(time, customer, s);
+    }
+
+    /**
+     * Serve Events can only have next events as Done Event.
+     */
+    private Event nextOfServe(SystemState state, EventPool pool) {
+        double serviceTime = this.server.serveAndGetTime(customer);
+        double doneTime = time + serviceTime;
+
+        // update statistics
+        state.getStatistics().recordServed(this.customer.getWaitTime(time));
+        return pool.doneEvent(doneTime, customer, server);
+    }
+
+    /**
+     * A restEvent has a next event as backEvent.
+     */
+    private Event nextOfRest(EventPool pool) {
+        double backTime = server.getBackTime(time);
+        server.toggleRest();
+        return pool.backEvent(backTime, server);
+    }
+
+    /**
+     * A backEvent can have a next event as serveEvent 
+     * if there is customer waiting in queue.
+     */
+    private Event nextOfBack(EventPool pool) {
+        Customer c = server.doneServingAndGetNext();
+        return (c != null) ? pool.serveEvent(time, c, server) : null;
+    }
+
+    /**
+     * The next event of a done Event can be
+     * a Serve Event (of waiting customer)
+     * or a Rest Event
+     * or none.
+     */
+    private Event nextOfDone(EventPool pool) {
+        if ((!server.isSelfCheckout()) && server.ifRest()) {
+            server.toggleRest();
+            return pool.restEvent(time, server);
+        } else {
+            return nextOfBack(pool);
+        }
+    }
+
+    /**
+     * Wait events gives no next event as
+     * Done events will handle waiting customers.
+     */
+    private Event nextOfWait() {
+        this.server.enqueue(this.customer);
+        return null;
+    }
+
+    /**
+     * Leave Events have no next events.
+     */
+    private Event nextOfLeave(SystemState state) {
+        state.getStatistics().recordLeft();
+        return null;
+    }
 
     @Override
     public String toString() {
-        return String.format("%.3f %s %s", this.time, this.customer, this.type);
+        return new TraceFormatter(64).appendEvent(this).toString();
     }
 
     @Override
@@ -68,34 +184,7 @@ public abstract class Event implements Comparable<Event> {
      * @return          An arrival Event.
      */
     public static Event arrivalEvent(double time, Customer customer) {
-        return new Event(customer, null, time, EventType.ARRIVAL) {
-            
-			/**
-             * Arrival Events have 3 types of next event:
-             * (1) A Serve Event if a server is free, or
-             * (2) A Wait Event if a server can enqueue a customer, or
-             * (3) A Leave Event if no server can serve or enqueue a customer.
-			 * @param state 	Current SystemState.
-			 * @return 			An Optional event.
-             */
-            @Override
-            public Optional<Event> getNextEvent(SystemState state) {
-				return Optional.of(
-                        state.getFirstServableServer()
-                        .map(s -> serveEvent(time, this.customer, s))
-                        .orElseGet(() -> {
-                            if (this.customer.isGreedy()) {
-                                return state.getShortestQueueServer()
-                                    .map(s -> waitEvent(time, this.customer, s))
-                                    .orElse(leaveEvent(time, this.customer));
-                            } else {
-                                return state.getFirstWaitableServer()
-                                    .map(s -> waitEvent(time, this.customer, s))
-                                    .orElse(leaveEvent(time, this.customer));
-                            }
-                        }));
-            }
-        };
+        return new Event(customer, null, time, EventType.ARRIVAL);
     }
 
     /**
@@ -106,29 +195,7 @@ public abstract class Event implements Comparable<Event> {
      * @return          An serve event.
      */
     public static Event serveEvent(double time, Customer customer, Server server) {
-        return new Event(customer, server, time, EventType.SERVE) {
-            
-			/**
-             * Serve Events can only have next events as Done Event.
-			 * @param state 	Current SystemState.
-			 * @return 			An Optional event.
-             */
-            @Override
-            public Optional<Event> getNextEvent(SystemState state) {
-                double serviceTime = this.server.serveAndGetTime(customer);
-                double doneTime = time + serviceTime;
-
-                // update statistics
-                Customer.CUSTOMER_SERVED++;
-                Customer.WAIT_TIME += this.customer.getWaitTime(time);
-                return Optional.of(doneEvent(doneTime, customer, server)); 
-            }
-
-            @Override
-            public String toString() {
-                return String.format("%.3f %s served by %s", this.time, this.customer, this.server);
-            }
-        };
+        return new Event(customer, server, time, EventType.SERVE);
     }
     
     /**
@@ -138,24 +205,7 @@ public abstract class Event implements Comparable<Event> {
      * @return          A restEvent.
      */
     public static Event restEvent(double time, Server server) {
-        return new Event(null, server, time, EventType.REST) {
-			
-			/**
-			 * A restEvent has a next event as backEvent.
-			 * @param state 	Current SystemState.
-			 * @return 			An Optional event.
-			 */
-            @Override
-            public Optional<Event> getNextEvent(SystemState state) {
-                double backTime = server.getBackTime(time);
-                return server.toggleRest().map(s -> Event.backEvent(backTime, s));
-            }
-
-            @Override
-            public String toString() {
-                return String.format("%.3f %s %s", this.time, this.server, this.type); 
-            }
-        };
+        return new Event(null, server, time, EventType.REST);
     }
 
     /**
@@ -165,24 +215,7 @@ public abstract class Event implements Comparable<Event> {
      * @return          A backEvent.
      */
     public static Event backEvent(double time, Server server) {
-        return new Event(null, server, time, EventType.BACK) {
-			
-			/**
-			 * A backEvent can have a next event as serveEvent 
-			 * if there is customer waiting in queue.
-			 * @param state 	Current SystemState.
-			 * @return 			An Optional event.
-			 */
-            @Override
-            public Optional<Event> getNextEvent(SystemState state) {
-                return server.doneServingAndGetNext().map(c -> serveEvent(time, c, server));
-            } 
-
-            @Override
-            public String toString() {
-                return String.format("%.3f %s %s", this.time, this.server, this.type); 
-            }
-        }; 
+        return new Event(null, server, time, EventType.BACK);
     }
 
     /**
@@ -190,33 +223,10 @@ public abstract class Event implements Comparable<Event> {
      * @param time      The time of the event.
      * @param customer  The customer of the event.
      * @param server    The server of the event.
-     * @return          A Serve Event if any customer is waiting in queue.
+     * @return          A Done Event.
      */
     public static Event doneEvent(double time, Customer customer, Server server) {
-        return new Event(customer, server, time, EventType.DONE) {
-            
-			/**
-             * The next event of a done Event can be
-             * a Serve Event (of waiting customer)
-             * or a Rest Event
-             * or an empty Optional
-			 * @param state 	Current SystemState.
-			 * @return 			An Optional event.
-             */
-            @Override
-            public Optional<Event> getNextEvent(SystemState state) {          
-                if ((!server.isSelfCheckout()) && server.ifRest()) {
-                    return server.toggleRest().map(s -> restEvent(time, s));
-                } else {
-                    return server.doneServingAndGetNext().map(c -> serveEvent(time, c, server));
-                }
-            }
-            
-            @Override
-            public String toString() {
-                return String.format("%.3f %s done serving by %s", this.time, this.customer, this.server);
-            }
-        };
+        return new Event(customer, server, time, EventType.DONE);
     }
 
     /**
@@ -227,47 +237,16 @@ public abstract class Event implements Comparable<Event> {
      * @return          A Wait Event.
      */
     public static Event waitEvent(double time, Customer customer, Server server) {
-        return new Event(customer, server, time, EventType.WAIT) {
-            
-			/**
-             * Wait events gives empty next event as
-             * Done events will handle waiting customers.
-			 * @param state 	Current SystemState.
-			 * @return 			An Optional event.
-             */
-            @Override
-            public Optional<Event> getNextEvent(SystemState state) {
-				this.server.enqueue(this.customer);
-				return Optional.empty();    
-            }
-
-            @Override
-            public String toString() {
-                return String.format("%.3f %s waits to be served by %s", this.time, this.customer, this.server);
-            }
-        };
+        return new Event(customer, server, time, EventType.WAIT);
     }
 
     /**
      * Returns a Leave Event
      * @param time      The time of the event.
      * @param customer  The customer of the event.
-     * @param server    The server of the event.
      * @return          A Leave Event.
      */
     public static Event leaveEvent(double time, Customer customer) {
-        return new Event(customer, null, time, EventType.LEAVE) {
-            
-			/**
-             * Leave Events have empty Optional as next events.
-			 * @param state 	Current SystemState.
-			 * @return 			An Optional event.
-             */
-            @Override
-            public Optional<Event> getNextEvent(SystemState state) {
-                Customer.CUSTOMER_LEFT++;
-                return Optional.empty();
-            }
-        };
+        return new Event(customer, null, time, EventType.LEAVE);
     }
 }
@@ -0,0 +1,85 @@
+package cs2030.simulator;
+
+/**
+ * EventPool recycles the events of a Simulator, so that a long run
+ * reaches a steady state without allocating events.
+ * An event may only be released once nothing refers to it any more.
+ * @author Wang Pei
+ */
+class EventPool {
+    /*
+     * An EventPool has a bounded stack of free events.
+     */
+    private static final int MAX_FREE = 1 << 12;
+
+    private final Event[] free;
+    private int size = 0;
+
+    /**
+     * Constructs an EventPool which keeps up to the given number of free events.
+     * @param capacity  The maximum number of free events kept.
+     */
+    EventPool(int capacity) {
+        this.free = new Event[capacity];
+    }
+
+    EventPool() {
+        this(MAX_FREE);
+    }
+
+    /**
+     * Returns a pool which never recycles, i.e. allocates every event.
+     * @return  An EventPool without capacity.
+     */
+    static EventPool none() {
+        return new EventPool(0);
+    }
+
+    /**
+     * Returns an event to the pool.
+     * @param event     The event which is no longer used.
+     */
+    void release(Event event) {
+        if (size < free.length) {
+            event.set(null, null, 0, null);
+            free[size++] = event;
+        }
+    }
+
+    private Event obtain(Customer customer, Server server, double time, EventType type) {
+        if (size == 0) {
+            return new Event().set(customer, server, time, type);
+        }
+        Event e = free[--size];
+        free[size] = null;
+        return e.set(customer, server, time, type);
+    }
+
+    Event arrivalEvent(double time, Customer customer) {
+        return obtain(customer, null, time, EventType.ARRIVAL);
+    }
+
+    Event serveEvent(double time, Customer customer, Server server) {
+        return obtain(customer, server, time, EventType.SERVE);
+    }
+
+    Event restEvent(double time, Server server) {
+        return obtain(null, server, time, EventType.REST);
+    }
+
+    Event backEvent(double time, Server server) {
+        return obtain(null, server, time, EventType.BACK);
+    }
+
+    Event doneEvent(double time, Customer customer, Server server) {
+        return obtain(customer, server, time, EventType.DONE);
+    }
+
+    Event waitEvent(double time, Customer customer, Server server) {
+        return obtain(customer, server, time, EventType.WAIT);
+    }
+
+    Event leaveEvent(double time, Customer customer) {
+        return obtain(customer, null, time, EventType.LEAVE);
+    }
+}
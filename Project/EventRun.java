@@ -0,0 +1,98 @@
+package cs2030.simulator;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * EventRun is a growable array of events used as a bucket by the
+ * calendar and ladder queues. A sorted run keeps its events in descending order,
+ * so that the next event is always removed from the end of the array.
+ * @author Wang Pei
+ */
+final class EventRun {
+    private Event[] events = new Event[4];
+    private int size = 0;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Appends an event without keeping the run sorted.
+     * @param event     The event to be appended.
+     */
+    void append(Event event) {
+        if (size == events.length) {
+            events = Arrays.copyOf(events, size * 2);
+        }
+        events[size++] = event;
+    }
+
+    /**
+     * Inserts an event into a sorted run, behind all events which compare equal to it.
+     * @param event     The event to be inserted.
+     */
+    void insertSorted(Event event) {
+        if (size == events.length) {
+            events = Arrays.copyOf(events, size * 2);
+        }
+        int i = size;
+        while (i > 0 && events[i - 1].compareTo(event) <= 0) {
+            events[i] = events[i - 1];
+            i--;
+        }
+        events[i] = event;
+        size++;
+    }
+
+    /**
+     * Sorts an unsorted run, keeping events which compare equal in the order they were appended.
+     */
+    void sort() {
+        // Arrays.sort is stable for objects; reversing the ascending order
+        // leaves the first appended of equal events at the end.
+        Arrays.sort(events, 0, size);
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            Event tmp = events[i];
+            events[i] = events[j];
+            events[j] = tmp;
+        }
+    }
+
+    Event get(int i) {
+        return events[i];
+    }
+
+    /**
+     * Returns the smallest event of a sorted run.
+     * @return  The last event of the run.
+     */
+    Event last() {
+        return events[size - 1];
+    }
+
+    /**
+     * Removes the smallest event of a sorted run.
+     * @return  The removed event.
+     */
+    Event removeLast() {
+        Event e = events[--size];
+        events[size] = null;
+        return e;
+    }
+
+    void forEach(Consumer<Event> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(events[i]);
+        }
+    }
+
+    void clear() {
+        Arrays.fill(events, 0, size, null);
+        size = 0;
+    }
+}
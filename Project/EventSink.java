@@ -0,0 +1,78 @@
+package cs2030.simulator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * An EventSink consumes events as soon as the Simulator completes them,
+ * so that the trace of a simulation never has to be held in memory.
+ * @author Wang Pei
+ */
+public interface EventSink {
+
+    /**
+     * Consumes an event which has just been processed by the Simulator.
+     * The Simulator recycles the event afterwards, so a sink must not keep a reference to it.
+     * @param event     The completed event.
+     */
+    void accept(Event event);
+
+    /**
+     * Called once when the result of the simulation is printed.
+     * @param statistics    The statistics summary of the simulation.
+     */
+    default void complete(String statistics) {
+    }
+
+    /**
+     * Returns a sink which ignores every event.
+     * @return  A discarding EventSink.
+     */
+    static EventSink discard() {
+        return event -> { };
+    }
+
+    /**
+     * Returns a buffered sink which streams the text trace to the standard output.
+     * @return  An EventSink writing to System.out.
+     */
+    static EventSink toStdout() {
+        return new TextEventSink(
+                new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 
+                    TextEventSink.BUFFER_SIZE),
+                false);
+    }
+
+    /**
+     * Returns a buffered sink which streams the text trace to a file.
+     * The file is closed once the statistics are written.
+     * @param path  The path of the output file.
+     * @return      An EventSink writing to the given file.
+     */
+    static EventSink toFile(Path path) {
+        try {
+            return new TextEventSink(Files.newBufferedWriter(path, StandardCharsets.UTF_8), true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns a sink which writes the trace to a file as fixed-width binary records,
+     * to be read by a TraceReader. The file is closed once the statistics are written.
+     * @param path  The path of the output file.
+     * @return      An EventSink writing a binary trace to the given file.
+     */
+    static EventSink toBinaryFile(Path path) {
+        try {
+            return new BinaryEventSink(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
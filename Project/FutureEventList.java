@@ -0,0 +1,73 @@
+package cs2030.simulator;
+
+import java.util.function.Consumer;
+
+/**
+ * A FutureEventList holds the events scheduled by the Simulator
+ * and hands them out in order of Event.compareTo: 
+ * time first, then the priority of the EventType.
+ * Events which compare equal are handed out in the order they were added,
+ * except by the binary heap which does not guarantee any order among them.
+ * @author Wang Pei
+ */
+public interface FutureEventList {
+
+    /**
+     * The available implementations of FutureEventList.
+     */
+    enum Kind {
+        HEAP,
+        CALENDAR,
+        LADDER;
+
+        /**
+         * Creates an empty FutureEventList of this kind.
+         * @return  An empty FutureEventList.
+         */
+        public FutureEventList create() {
+            switch (this) {
+                case CALENDAR:
+                    return new CalendarQueue();
+                case LADDER:
+                    return new LadderQueue();
+                default:
+                    return new HeapEventList();
+            }
+        }
+    }
+
+    /**
+     * Schedules an event.
+     * @param event     The event to be scheduled.
+     */
+    void add(Event event);
+
+    /**
+     * Removes and returns the event with the highest priority.
+     * @return  The next event, or null if there is no scheduled event.
+     */
+    Event poll();
+
+    /**
+     * Returns the event with the highest priority without removing it.
+     * @return  The next event, or null if there is no scheduled event.
+     */
+    Event peek();
+
+    /**
+     * Returns the number of scheduled events.
+     * @return  The number of scheduled events.
+     */
+    int size();
+
+    /**
+     * Performs the given action on every scheduled event, in no particular order,
+     * without removing any of them.
+     * @param action    The action to be performed on each event.
+     */
+    void forEach(Consumer<Event> action);
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+}
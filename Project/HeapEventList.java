@@ -0,0 +1,49 @@
+package cs2030.simulator;
+
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * HeapEventList is the default FutureEventList backed by a binary heap.
+ * @author Wang Pei
+ */
+class HeapEventList implements FutureEventList {
+    private final PriorityQueue<Event> heap;
+
+    HeapEventList() {
+        this(new PriorityQueue<>());
+    }
+
+    /**
+     * Constructs a HeapEventList on an existing PriorityQueue.
+     * @param heap  The PriorityQueue of scheduled events.
+     */
+    HeapEventList(PriorityQueue<Event> heap) {
+        this.heap = heap;
+    }
+
+    @Override
+    public void add(Event event) {
+        heap.add(event);
+    }
+
+    @Override
+    public Event poll() {
+        return heap.poll();
+    }
+
+    @Override
+    public Event peek() {
+        return heap.peek();
+    }
+
+    @Override
+    public int size() {
+        return heap.size();
+    }
+
+    @Override
+    public void forEach(Consumer<Event> action) {
+        heap.forEach(action);
+    }
+}
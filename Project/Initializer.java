@@ -1,9 +1,10 @@
 package cs2030.simulator;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.Queue;
 
 /**
@@ -11,6 +12,37 @@ import java.util.Queue;
  * @author Wang Pei
  */
 public class Initializer {
+    /**
+     * Initialize a Simulator with given raw data which streams its trace to the standard output.
+     * @see #init(int, int, int, int, int, double, double, double, double, double, EventSink)
+     */
+    public static Simulator init(
+            int serverNumber, int selfCheckoutNumber,  
+            int customerNumber, 
+            int maxQLen, 
+            int seed, double lambda, double mu, double rho, 
+            double Pr, double Pg) 
+    {
+        return init(serverNumber, selfCheckoutNumber, customerNumber, maxQLen, 
+                seed, lambda, mu, rho, Pr, Pg, SimulatorOptions.defaults());
+    }
+
+    /**
+     * Initialize a Simulator with given raw data which passes its completed events to the given sink.
+     * @see #init(int, int, int, int, int, double, double, double, double, double, SimulatorOptions)
+     */
+    public static Simulator init(
+            int serverNumber, int selfCheckoutNumber,  
+            int customerNumber, 
+            int maxQLen, 
+            int seed, double lambda, double mu, double rho, 
+            double Pr, double Pg,
+            EventSink sink) 
+    {
+        return init(serverNumber, selfCheckoutNumber, customerNumber, maxQLen, 
+                seed, lambda, mu, rho, Pr, Pg, SimulatorOptions.defaults().withSink(sink));
+    }
+
     /**
      * Initialize a Simulator with given raw data
      * @param serverNumber          Number of servers involved in the simulation.
@@ -23,6 +55,7 @@ public class Initializer {
      * @param rho                   The parameter for the resting rate of RandomGenerator.
      * @param Pr                    The threshold probability of human server resting.
      * @param Pg                    The probability for a greedy customer occuring.
+     * @param options               The SimulatorOptions of the simulation.
      * @return                      An initialized Simulator.
      */
     public static Simulator init(
@@ -30,39 +63,63 @@ public class Initializer {
             int customerNumber, 
             int maxQLen, 
             int seed, double lambda, double mu, double rho, 
-            double Pr, double Pg) 
+            double Pr, double Pg,
+            SimulatorOptions options) 
     {
         List<Server> servers = new ArrayList<>();
-        List<Customer> customers = new ArrayList<>();
         List<Server> selfCheckouts = new ArrayList<>();
-        Queue<Customer> sharedQueue = new LinkedList<>();
-		PriorityQueue<Event> initialEvents = new PriorityQueue<>();
-		RandomGenerator rng = new RandomGenerator(seed, lambda, mu, rho);
+        List<Queue<Customer>> sharedQueues = new ArrayList<>();
+        Topology topology = options.topology();
+		FutureEventList initialEvents = options.futureEventList().create();
+		RandomGenerator rng = options.randomMode().create(seed, lambda, mu, rho);
 		
-		// Initialize human servers.
+		// Initialize human servers, numbered from 1.
+        int serverId = 0;
         while (serverNumber-- > 0) {
-            servers.add(Server.createHumanServer(maxQLen, rng, Pr));
+            serverId++;
+            servers.add(Server.createHumanServer(serverId, maxQLen, rng.forServer(serverId), Pr));
         }
 		
-        // Initailize self-checkout servers.
-        while (selfCheckoutNumber-- > 0) {
-            selfCheckouts.add(Server.createSelfCheckout(maxQLen, rng, sharedQueue));
+        // Initailize self-checkout servers, with a shared queue for the self-checkout servers of each zone.
+        for (int z = 0; z < topology.getZoneNumber(); z++) {
+            Queue<Customer> sharedQueue = new CustomerQueue(maxQLen);
+            sharedQueues.add(sharedQueue);
+            int zoneSize = topology.firstOf(selfCheckoutNumber, z + 1) - topology.firstOf(selfCheckoutNumber, z);
+            for (int n = zoneSize; n > 0; n--) {
+                serverId++;
+                selfCheckouts.add(Server.createSelfCheckout(serverId, maxQLen, rng.forServer(serverId), sharedQueue));
+            }
         }
 		
-		// Initialize customers.
-        double arrivalTime = 0;
-        while (customerNumber-- > 0) {
-            Customer c = (rng.genCustomerType() < Pg)
-                ? Customer.createGreedy(arrivalTime)
-                : Customer.createCustomer(arrivalTime);
-            customers.add(c);
-            initialEvents.add(Event.arrivalEvent(arrivalTime, c));
-            arrivalTime += rng.genInterArrivalTime();
+		// Initialize customers, either all up front into a CustomerTable or one at a time.
+        // Recorded customers are always replayed one at a time.
+        // Either way, only the first arrival is scheduled; each arrival schedules its successor.
+        ArrivalSource arrivals;
+        if (options.arrivalTrace() != null) {
+            arrivals = openTrace(options.arrivalTrace(), customerNumber);
+        } else if (options.lazyArrivals()) {
+            arrivals = new ArrivalGenerator(customerNumber, rng, Pg, topology.getZoneNumber());
+        } else {
+            arrivals = new ArrivalGenerator(customerNumber, rng, Pg, topology.getZoneNumber()).generateAll();
+        }
+        EventPool pool = new EventPool();
+        Event first = arrivals.next(pool);
+        if (first != null) {
+            initialEvents.add(first);
         }
 		
-		// Initialize SystemState.
-        SystemState initialState = new SystemState(customers, servers, selfCheckouts, sharedQueue, maxQLen);
+		// Initialize SystemState; customers are only kept by the CustomerTable until they arrive.
+        SystemState initialState = new SystemState(new ArrayList<>(), servers, selfCheckouts, 
+                sharedQueues, maxQLen, topology);
 		
-        return new Simulator(initialEvents, initialState);
+        return new Simulator(initialEvents, initialState, arrivals, pool, options.sink(), options);
+    }
+
+    private static ArrivalSource openTrace(Path path, int customerNumber) {
+        try {
+            return TraceArrivalSource.open(path, customerNumber);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -0,0 +1,244 @@
+package cs2030.simulator;
+
+import java.util.function.Consumer;
+
+/**
+ * LadderQueue is a FutureEventList with amortised O(1) enqueue and dequeue,
+ * after W. T. Tang, R. S. M. Goh and I. L.-J. Thng, "Ladder queue", ACM TOMACS 15(3), 2005.
+ * Far future events are kept unsorted in the top, spread into rungs of buckets
+ * when they draw near, and only small buckets are ever sorted into the bottom.
+ * @author Wang Pei
+ */
+class LadderQueue implements FutureEventList {
+    /*
+     * A LadderQueue has
+     * (1) An unsorted top, with the bounds of its events and the time from which events go to it;
+     * (2) A ladder of rungs, each finer than the one above;
+     * (3) A sorted bottom, from which events are dequeued;
+     * (4) The number of scheduled events.
+     */
+    private static final int THRESHOLD = 50;
+    private static final int MAX_RUNGS = 8;
+
+    private final EventRun top = new EventRun();
+    private double topMin;
+    private double topMax;
+    // Events at or beyond bucket epochSize of the epoch (the span last taken from the top) go to the top.
+    private boolean hasEpoch = false;
+    private double epochStart;
+    private double epochWidth;
+    private int epochSize;
+
+    private final Rung[] rungs = new Rung[MAX_RUNGS];
+    private int rungNumber = 0;
+
+    private final EventRun bottom = new EventRun();
+    private int size = 0;
+
+    /**
+     * A rung spreads the events of a time span over buckets of equal width.
+     */
+    private static final class Rung {
+        private EventRun[] buckets = new EventRun[0];
+        private int bucketNumber;
+        private double start;
+        private double width;
+        private int current;
+
+        /**
+         * Resets the rung to cover the given span, keeping bucket storage for reuse.
+         * @param start         The start time of the span.
+         * @param width         The width of each bucket.
+         * @param bucketNumber  The number of buckets.
+         */
+        void reset(double start, double width, int bucketNumber) {
+            if (buckets.length < bucketNumber) {
+                EventRun[] bs = new EventRun[Math.max(bucketNumber, 2 * buckets.length)];
+                System.arraycopy(buckets, 0, bs, 0, buckets.length);
+                for (int i = buckets.length; i < bs.length; i++) {
+                    bs[i] = new EventRun();
+                }
+                buckets = bs;
+            }
+            this.start = start;
+            this.width = width;
+            this.bucketNumber = bucketNumber;
+            this.current = 0;
+        }
+
+        /**
+         * Returns the bucket of the rung an event belongs to.
+         * Every decision is based on this index, so that events of equal time always end up together.
+         * @param time  The time of the event.
+         * @return      The index of the bucket.
+         */
+        int indexOf(double time) {
+            double i = Math.floor((time - start) / width);
+            return (int) Math.max(0, Math.min(i, bucketNumber - 1));
+        }
+
+        double startOf(int i) {
+            return start + i * width;
+        }
+    }
+
+    @Override
+    public void add(Event event) {
+        size++;
+        double t = event.time;
+        if (!hasEpoch || Math.floor((t - epochStart) / epochWidth) >= epochSize) {
+            if (top.isEmpty()) {
+                topMin = t;
+                topMax = t;
+            } else {
+                topMin = Math.min(topMin, t);
+                topMax = Math.max(topMax, t);
+            }
+            top.append(event);
+            return;
+        }
+        for (int r = 0; r < rungNumber; r++) {
+            Rung rung = rungs[r];
+            int i = rung.indexOf(t);
+            if (i >= rung.current) {
+                rung.buckets[i].append(event);
+                return;
+            }
+            if (i < rung.current - 1) {
+                // Its bucket has been sorted into the bottom already.
+                break;
+            }
+            // Its bucket has been spread over the next rung, if that rung is still present.
+        }
+        bottom.insertSorted(event);
+    }
+
+    @Override
+    public Event poll() {
+        if (size == 0) {
+            return null;
+        }
+        if (bottom.isEmpty()) {
+            refillBottom();
+        }
+        size--;
+        return bottom.removeLast();
+    }
+
+    @Override
+    public Event peek() {
+        if (size == 0) {
+            return null;
+        }
+        if (bottom.isEmpty()) {
+            refillBottom();
+        }
+        return bottom.last();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void forEach(Consumer<Event> action) {
+        top.forEach(action);
+        for (int r = 0; r < rungNumber; r++) {
+            // Buckets before the current one have already been emptied.
+            for (int i = 0; i < rungs[r].bucketNumber; i++) {
+                rungs[r].buckets[i].forEach(action);
+            }
+        }
+        bottom.forEach(action);
+    }
+
+    /**
+     * Moves the next bucket of the ladder into the bottom, 
+     * spawning finer rungs for buckets which are too large to be sorted cheaply.
+     * The queue must not be empty.
+     */
+    private void refillBottom() {
+        while (bottom.isEmpty()) {
+            if (rungNumber == 0) {
+                transferTop();
+                continue;
+            }
+            Rung rung = rungs[rungNumber - 1];
+            while (rung.current < rung.bucketNumber && rung.buckets[rung.current].isEmpty()) {
+                rung.current++;
+            }
+            if (rung.current == rung.bucketNumber) {
+                rungNumber--;
+                continue;
+            }
+            EventRun bucket = rung.buckets[rung.current];
+            double spawnStart = rung.startOf(rung.current);
+            double spawnWidth = rung.width / bucket.size();
+            if (bucket.size() > THRESHOLD && rungNumber < MAX_RUNGS 
+                    && spawnStart + spawnWidth > spawnStart) {
+                spawn(spawnStart, spawnWidth, bucket);
+            } else {
+                bucket.sort();
+                for (int i = 0; i < bucket.size(); i++) {
+                    bottom.append(bucket.get(i));
+                }
+            }
+            bucket.clear();
+            rung.current++;
+        }
+    }
+
+    /**
+     * Spreads the events of a bucket over a new, finer rung.
+     * @param start     The start time of the bucket.
+     * @param width     The bucket width of the new rung.
+     * @param bucket    The bucket to be spread.
+     */
+    private void spawn(double start, double width, EventRun bucket) {
+        if (rungs[rungNumber] == null) {
+            rungs[rungNumber] = new Rung();
+        }
+        Rung child = rungs[rungNumber++];
+        child.reset(start, width, bucket.size());
+        for (int i = 0; i < bucket.size(); i++) {
+            Event e = bucket.get(i);
+            child.buckets[child.indexOf(e.time)].append(e);
+        }
+    }
+
+    /**
+     * Spreads the events of the top over the first rung;
+     * later events are collected by the top again.
+     */
+    private void transferTop() {
+        double width = (topMax - topMin) / top.size();
+        hasEpoch = true;
+        if (width <= 0 || topMin + width == topMin) {
+            // All events share (nearly) the same time; sort them directly.
+            // Only events later than all of them go to the top from now on.
+            top.sort();
+            for (int i = 0; i < top.size(); i++) {
+                bottom.append(top.get(i));
+            }
+            epochStart = topMax;
+            epochWidth = Math.ulp(topMax);
+            epochSize = 1;
+        } else {
+            if (rungs[0] == null) {
+                rungs[0] = new Rung();
+            }
+            Rung first = rungs[0];
+            first.reset(topMin, width, top.size() + 1);
+            rungNumber = 1;
+            for (int i = 0; i < top.size(); i++) {
+                Event e = top.get(i);
+                first.buckets[first.indexOf(e.time)].append(e);
+            }
+            epochStart = first.start;
+            epochWidth = first.width;
+            epochSize = first.bucketNumber;
+        }
+        top.clear();
+    }
+}
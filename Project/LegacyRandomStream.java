@@ -0,0 +1,69 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+
+/**
+ * LegacyRandomStream reproduces the sequence of java.util.Random exactly,
+ * with the 48-bit linear congruential generator documented for it,
+ * and draws exponential variates by inversion as the original RandomGenerator did.
+ * Unlike java.util.Random it is not thread-safe, and its state can be saved.
+ * @author Wang Pei
+ */
+final class LegacyRandomStream implements RandomStream {
+    /*
+     * A LegacyRandomStream has the 48-bit state of the generator.
+     */
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private long state;
+
+    private LegacyRandomStream(long state) {
+        this.state = state;
+    }
+
+    /**
+     * Creates a stream equal to new java.util.Random(seed).
+     * @param seed  The seed of the stream.
+     * @return      A LegacyRandomStream.
+     */
+    static LegacyRandomStream of(long seed) {
+        return new LegacyRandomStream((seed ^ MULTIPLIER) & MASK);
+    }
+
+    static LegacyRandomStream restore(CheckpointReader in) throws IOException {
+        return new LegacyRandomStream(in.readLong());
+    }
+
+    private int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    @Override
+    public double nextDouble() {
+        return (((long) next(26) << 27) + next(27)) * DOUBLE_UNIT;
+    }
+
+    @Override
+    public double nextExponential() {
+        return -Math.log(nextDouble());
+    }
+
+    @Override
+    public RandomStream copy() {
+        return new LegacyRandomStream(state);
+    }
+
+    @Override
+    public void reset(RandomStream copy) {
+        this.state = ((LegacyRandomStream) copy).state;
+    }
+
+    @Override
+    public void save(CheckpointWriter out) throws IOException {
+        out.writeLong(state);
+    }
+}
@@ -0,0 +1,106 @@
+package cs2030.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * A LogicalProcess simulates one partition of the servers with its own
+ * SystemState, FutureEventList and EventPool, so that partitions can be advanced
+ * by different threads. Servers only interact through the routing of arrivals,
+ * which is left to a PartitionedEngine; a LogicalProcess therefore never sees
+ * arrival or leave events, only the events of its own servers.
+ * The engine routes each arrival by the selections of the partitions,
+ * and passes on the events each partition has processed before the next arrival,
+ * the window, merged by the keys they were logged with.
+ * @author Wang Pei
+ */
+abstract class LogicalProcess {
+    /*
+     * A LogicalProcess has
+     * (1) The SystemState of its servers, whose ServerIndex answers routing queries;
+     * (2) The FutureEventList and EventPool of its events.
+     */
+    final SystemState state;
+    final FutureEventList events;
+    final EventPool pool;
+
+    /**
+     * Constructs a LogicalProcess over the given servers, attaching them to its own ServerIndex.
+     * @param humanServers      The human servers of the partition.
+     * @param selfCheckouts     The self-checkout servers of the partition, all of them or none.
+     * @param sharedQueue       The shared queue of the self-checkout servers.
+     * @param maxQLen           The maximum length of the shared queue.
+     * @param events            The empty FutureEventList of the partition.
+     */
+    LogicalProcess(List<Server> humanServers, List<Server> selfCheckouts,
+            Queue<Customer> sharedQueue, int maxQLen, FutureEventList events) {
+        this.state = new SystemState(new ArrayList<>(), humanServers, selfCheckouts, sharedQueue, maxQLen);
+        this.events = events;
+        this.pool = new EventPool();
+    }
+
+    /**
+     * Schedules an event of one of the servers of the partition before the simulation is run.
+     * @param event     The event to be scheduled.
+     */
+    void schedule(Event event) {
+        events.add(event);
+    }
+
+    /**
+     * Schedules the serve or wait event of an arrival routed to one of the servers of the partition.
+     * @param customer  The arrived customer.
+     * @param server    The server the customer is routed to.
+     * @param time      The time of arrival.
+     * @param type      SERVE or WAIT.
+     */
+    abstract void receive(Customer customer, Server server, double time, EventType type);
+
+    /**
+     * Returns the first server of the partition which can serve a customer immediately
+     * at the arrival being routed.
+     * @return  The server, or null if there is none.
+     */
+    abstract Server firstServable();
+
+    /**
+     * Returns the first server of the partition which has space to enqueue a customer
+     * at the arrival being routed.
+     * @return  The server, or null if there is none.
+     */
+    abstract Server firstWaitable();
+
+    /**
+     * Returns the waitable server of the partition with the shortest queue at the arrival being routed.
+     * @return  The server, or null if all queues are full.
+     */
+    abstract Server shortestQueue();
+
+    /**
+     * Returns the length of the queue of shortestQueue at the arrival being routed.
+     * @return  The length of the queue.
+     */
+    abstract int shortestQueueLength();
+
+    /**
+     * Returns the number of processed events in the window, which are to be passed on.
+     * @return  The number of events.
+     */
+    abstract int windowSize();
+
+    abstract Event windowEvent(int i);
+
+    abstract double windowTime(int i);
+
+    abstract int windowType(int i);
+
+    /**
+     * Called once the events of the window have been passed on, so that they can be recycled.
+     */
+    abstract void passedWindow();
+
+    static boolean isBefore(Event event, double time, int type) {
+        return event.time < time || (event.time == time && event.type.ordinal() < type);
+    }
+}
@@ -1,13 +1,165 @@
-import cs2030.simulator.Initializer;
+import cs2030.simulator.BatchMeans;
+import cs2030.simulator.Checkpoint;
+import cs2030.simulator.EventSink;
+import cs2030.simulator.FutureEventList;
+import cs2030.simulator.ParameterGrid;
+import cs2030.simulator.RandomGenerator;
+import cs2030.simulator.ReplicationRunner;
+import cs2030.simulator.RoutingPolicy;
+import cs2030.simulator.Scenario;
+import cs2030.simulator.ScenarioFile;
+import cs2030.simulator.SimulationPrefix;
 import cs2030.simulator.Simulator;
+import cs2030.simulator.SimulatorOptions;
+import cs2030.simulator.SweepRunner;
+import cs2030.simulator.Topology;
+import cs2030.simulator.TraceReader;
+import cs2030.simulator.WhatIf;
+import cs2030.simulator.WhatIfRunner;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Path;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * The main class reads in data and drives the simulation
+ * The main class reads in data and drives the simulation.
+ * The trace is written to the standard output, 
+ * or to the file given as the last argument.
+ * Passing --lazy-arrivals generates arrivals on the fly instead of up front,
+ * --fel=heap|calendar|ladder chooses the future event list
+ * and --rng=compat|splittable the mode of the RandomGenerator.
+ * Passing --partitions=N simulates the human servers in N partitions on parallel threads,
+ * which needs --rng=splittable; as the partitions meet at every arrival, this only pays off
+ * when servers have many events between arrivals, and does not scale with N.
+ * Passing --time-warp simulates them optimistically instead,
+ * which is meant for experiments with rollbacks rather than for speed.
+ * Passing --zones=Z:R groups the servers into Z zones in a ring, whose customers
+ * consider their own zone and the next R zones (0 if :R is left out).
+ * Passing --routing=NORMAL[:GREEDY] routes normal and greedy customers by the named RoutingPolicies,
+ * first-fit, shortest-queue, shortest-workload, power-of-D or round-robin; greedy customers keep
+ * shortest-queue if :GREEDY is left out.
+ * Passing --replications=N runs N independent replications seeded from the read seed
+ * and prints confidence intervals (at the level given by --confidence, 0.95 by default) instead.
+ * Passing --sweep=FILE runs every point of the parameter grid in FILE on top of the read data
+ * and prints one CSV row per point instead.
+ * Passing --scenarios=FILE runs every scenario in FILE, one line of the ten numbers per scenario,
+ * instead of reading data, and likewise prints one CSV row per scenario.
+ * Passing --what-if=FILE:T runs the read data up to time T once, then continues every variant in FILE,
+ * one line of servers, Pr and maxQLen per variant, from there, and prints one CSV row per variant.
+ * Replications, sweeps, scenario files and what-if variants run with the other options given,
+ * on --parallelism=N threads, all available processors by default;
+ * with N = 1 they run back-to-back and rows appear in order.
+ * Passing --metrics collects SimulationMetrics and prints them after the result,
+ * and --batches=time|customers:WARMUP:LENGTH does the same for BatchMeans.
+ * Passing --monitor publishes the progress of the run over JMX and to Flight Recorder recordings.
+ * Passing --checkpoint=FILE:events|time:N keeps a snapshot of the simulation in FILE, 
+ * renewed every N events or time units, and --resume=FILE continues the simulation
+ * in FILE instead of reading data.
+ * Passing --arrivals=FILE replays the recorded customers in FILE instead of generating them,
+ * at most as many as the number of customers read, or all of them if it is 0.
+ * Passing --binary-trace=FILE writes the trace to FILE as binary records instead,
+ * and --to-text=FILE prints the binary trace in FILE as text without simulating.
  * @author Wang Pei
  */
 class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        // read in options
+        SimulatorOptions options = SimulatorOptions.defaults();
+        int replications = 0;
+        double confidence = 0.95;
+        Path sweep = null;
+        Path scenarios = null;
+        Path whatIfs = null;
+        double branchTime = 0;
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        boolean printMetrics = false;
+        Path resume = null;
+        for (String arg : args) {
+            if (arg.equals("--lazy-arrivals")) {
+                options = options.withLazyArrivals(true);
+            } else if (arg.startsWith("--fel=")) {
+                options = options.withFutureEventList(
+                        FutureEventList.Kind.valueOf(arg.substring(6).toUpperCase()));
+            } else if (arg.startsWith("--rng=")) {
+                options = options.withRandomGenerator(
+                        RandomGenerator.Mode.valueOf(arg.substring(6).toUpperCase()));
+            } else if (arg.startsWith("--partitions=")) {
+                options = options.withPartitions(Integer.parseInt(arg.substring(13)));
+            } else if (arg.startsWith("--zones=")) {
+                String[] spec = arg.substring(8).split(":");
+                options = options.withTopology(Topology.ring(Integer.parseInt(spec[0]),
+                            (spec.length > 1) ? Integer.parseInt(spec[1]) : 0));
+            } else if (arg.startsWith("--routing=")) {
+                String[] spec = arg.substring(10).split(":");
+                options = options.withRouting(RoutingPolicy.named(spec[0]),
+                        (spec.length > 1) ? RoutingPolicy.named(spec[1]) : RoutingPolicy.shortestQueue());
+            } else if (arg.equals("--time-warp")) {
+                options = options.withTimeWarp(true);
+            } else if (arg.startsWith("--replications=")) {
+                replications = Integer.parseInt(arg.substring(15));
+            } else if (arg.startsWith("--confidence=")) {
+                confidence = Double.parseDouble(arg.substring(13));
+            } else if (arg.equals("--monitor")) {
+                options = options.withMonitoring(true);
+            } else if (arg.equals("--metrics")) {
+                options = options.withMetrics(true);
+                printMetrics = true;
+            } else if (arg.startsWith("--batches=")) {
+                String[] spec = arg.substring(10).split(":");
+                options = options.withBatchMeans(BatchMeans.Unit.valueOf(spec[0].toUpperCase()),
+                        Double.parseDouble(spec[1]), Double.parseDouble(spec[2]));
+            } else if (arg.startsWith("--checkpoint=")) {
+                // the file name may itself contain colons
+                String spec = arg.substring(13);
+                int interval = spec.lastIndexOf(':');
+                int unit = spec.lastIndexOf(':', interval - 1);
+                options = options.withCheckpoints(Path.of(spec.substring(0, unit)),
+                        Checkpoint.Unit.valueOf(spec.substring(unit + 1, interval).toUpperCase()),
+                        Double.parseDouble(spec.substring(interval + 1)));
+            } else if (arg.startsWith("--resume=")) {
+                resume = Path.of(arg.substring(9));
+            } else if (arg.startsWith("--arrivals=")) {
+                options = options.withArrivalTrace(Path.of(arg.substring(11)));
+            } else if (arg.startsWith("--binary-trace=")) {
+                options = options.withSink(EventSink.toBinaryFile(Path.of(arg.substring(15))));
+            } else if (arg.startsWith("--to-text=")) {
+                // convert a binary trace instead of simulating
+                Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+                TraceReader.open(Path.of(arg.substring(10))).writeText(out);
+                return;
+            } else if (arg.startsWith("--sweep=")) {
+                sweep = Path.of(arg.substring(8));
+            } else if (arg.startsWith("--scenarios=")) {
+                scenarios = Path.of(arg.substring(12));
+            } else if (arg.startsWith("--what-if=")) {
+                // the file name may itself contain colons
+                String spec = arg.substring(10);
+                int time = spec.lastIndexOf(':');
+                whatIfs = Path.of(spec.substring(0, time));
+                branchTime = Double.parseDouble(spec.substring(time + 1));
+            } else if (arg.startsWith("--parallelism=")) {
+                pool = new ForkJoinPool(Integer.parseInt(arg.substring(14)));
+            } else {
+                options = options.withSink(EventSink.toFile(Path.of(arg)));
+            }
+        }
+
+        if (scenarios != null) {
+            // run every scenario of the file and stream their summaries
+            Writer out = new OutputStreamWriter(System.out);
+            new SweepRunner(ScenarioFile.read(scenarios), options.withLazyArrivals(true), pool).run(out);
+            return;
+        }
+
+        if (resume != null) {
+            // continue the simulation from its snapshot
+            simulate(Checkpoint.resume(resume, options), printMetrics);
+            return;
+        }
+
         // read in data
         Scanner sc = new Scanner(System.in);
         int seed  = sc.nextInt();
@@ -21,20 +173,52 @@ class Main {
         double Pr = sc.nextDouble();
         double Pg = sc.nextDouble();
         sc.close();
+        Scenario scenario = Scenario.of(seed, serverNumber, selfCheckoutNumber, maxQLen, 
+                customerNumber, lambda, mu, rho, Pr, Pg);
+
+        if (sweep != null) {
+            // run every grid point in parallel and stream their summaries
+            Writer out = new OutputStreamWriter(System.out);
+            new SweepRunner(ParameterGrid.read(scenario, sweep), 
+                    options.withLazyArrivals(true), pool).run(out);
+            return;
+        }
+
+        if (whatIfs != null) {
+            // run the read data once up to the branch time, then every variant from there in parallel
+            SimulationPrefix prefix = SimulationPrefix.runUntil(
+                    scenario.init(options.withSink(EventSink.discard()).withPartitions(1)), branchTime);
+            Writer out = new OutputStreamWriter(System.out);
+            new WhatIfRunner(prefix, WhatIf.read(whatIfs), options, pool).run(out);
+            return;
+        }
+
+        if (replications > 0) {
+            // run independent replications in parallel and print their summary
+            System.out.println(new ReplicationRunner(scenario, 
+                    options.withSink(EventSink.discard()).withLazyArrivals(true), pool)
+                    .run(replications, seed, confidence));
+            return;
+        }
         
         // initialize a discrete event simulator with raw data
-        Simulator des = Initializer.init(
-                serverNumber, selfCheckoutNumber,
-                customerNumber, 
-                maxQLen, 
-                seed, lambda, mu, rho,
-                Pr,
-                Pg);
-        
+        simulate(scenario.init(options), printMetrics);
+    }
+
+    /**
+     * Runs a simulation and prints its results.
+     * @param des           The initialized simulator.
+     * @param printMetrics  true if SimulationMetrics are printed.
+     */
+    private static void simulate(Simulator des, boolean printMetrics) {
         // run simulation
         des.run();
         
         // print simulation result
         des.printResult();
+        if (printMetrics) {
+            des.getMetrics().ifPresent(System.out::println);
+        }
+        des.getBatchMeans().ifPresent(System.out::println);
     }
 }
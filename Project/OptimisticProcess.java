@@ -0,0 +1,385 @@
+package cs2030.simulator;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An OptimisticProcess is a LogicalProcess which runs on a thread of its own,
+ * ahead of the arrivals routed by its TimeWarpEngine: it speculates that no arrival
+ * will be routed to it. At every announced arrival it answers the routing queries
+ * of the engine, and it saves the state of a server before each of its events.
+ * When an arrival is routed to it nonetheless, a straggler, every event processed
+ * after the arrival is rolled back: its server is restored, the event it scheduled
+ * is cancelled and the event itself is scheduled again.
+ * Events are only passed on once the engine has routed all earlier arrivals,
+ * so they are never rolled back afterwards and their history is collected then.
+ * @author Wang Pei
+ */
+class OptimisticProcess extends LogicalProcess implements Runnable {
+    private static final int SPINS = TimeWarpEngine.SPINS;
+
+    /*
+     * An OptimisticProcess has
+     * (1) The Schedule of announced arrivals, which bounds how far it runs ahead;
+     * (2) The inbox of routed arrivals, and the numbers of them sent and received;
+     * (3) The history of processed events, from the oldest not yet collected,
+     *     each with its merge key, the event it scheduled and the saved state of its server,
+     *     in a ring of records which are reused;
+     * (4) The scheduled events cancelled by rollbacks, dropped when they come up;
+     * (5) For every announced arrival, the selections of the partition at it
+     *     and the length of the history by then;
+     * (6) The number of answered arrivals, the length of the history passed on by the engine,
+     *     whether all its events are processed, and the number of rolled back events;
+     * (7) The running merge key, as kept by a ConservativeProcess;
+     * (8) The arrival being routed and the window being passed on by the engine.
+     */
+    private final TimeWarpEngine.Schedule schedule;
+    private final Queue<Message> inbox = new ConcurrentLinkedQueue<>();
+    private int sent = 0;
+    private volatile int received = 0;
+
+    private volatile Processed[] history = new Processed[1 << 8];
+    private long historyStart = 0;
+    private long historyEnd = 0;
+    private final Set<Event> cancelled = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private final Server[] servable;
+    private final Server[] waitable;
+    private final Server[] shortest;
+    private final int[] shortestLength;
+    private final long[] answerEnd;
+
+    private long nextAnswer = 0;
+    private volatile long answered = 0;
+    private volatile long passed = 0;
+    private volatile boolean finished = false;
+    private volatile Throwable failure = null;
+    private volatile boolean parked = false;
+    private long rolledBack = 0;
+
+    private double keyTime = Double.NEGATIVE_INFINITY;
+    private int keyType = 0;
+
+    private long routing;
+    private int routingSlot;
+    private Processed[] windowHistory;
+    private long windowStart;
+    private long windowEnd;
+
+    /**
+     * Constructs an OptimisticProcess over the given servers.
+     * @param schedule  The Schedule of arrivals announced by the engine.
+     * @see LogicalProcess#LogicalProcess(List, List, Queue, int, FutureEventList)
+     */
+    OptimisticProcess(List<Server> humanServers, List<Server> selfCheckouts,
+            Queue<Customer> sharedQueue, int maxQLen, FutureEventList events,
+            TimeWarpEngine.Schedule schedule) {
+        super(humanServers, selfCheckouts, sharedQueue, maxQLen, events);
+        this.schedule = schedule;
+        int capacity = schedule.capacity();
+        this.servable = new Server[capacity];
+        this.waitable = new Server[capacity];
+        this.shortest = new Server[capacity];
+        this.shortestLength = new int[capacity];
+        this.answerEnd = new long[capacity];
+    }
+
+    /**
+     * Processes events, answers arrivals and rolls back stragglers
+     * until all arrivals are routed and all events are processed.
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                for (Message m = inbox.poll(); m != null; m = inbox.poll()) {
+                    rollback(m);
+                }
+                collect();
+                if (nextAnswer < schedule.announced()) {
+                    double time = schedule.time(nextAnswer);
+                    Event next = peek();
+                    if (next != null && isBefore(next, time, EventType.ARRIVAL.ordinal())) {
+                        process();
+                    } else {
+                        answer(time);
+                    }
+                } else if (schedule.isExhausted() && peek() != null) {
+                    // All arrivals are announced, so the rest of the events can be processed.
+                    process();
+                } else if (schedule.isRouted() && inbox.isEmpty() && peek() == null) {
+                    finished = true;
+                    return;
+                } else {
+                    idle();
+                }
+            }
+        } catch (Throwable t) {
+            failure = t;
+        }
+    }
+
+    private void idle() {
+        long announced = schedule.announced();
+        boolean exhausted = schedule.isExhausted();
+        for (int spins = 0; isIdle(announced, exhausted); spins++) {
+            if (spins < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                parked = true;
+                if (isIdle(announced, exhausted)) {
+                    LockSupport.park(this);
+                }
+                parked = false;
+            }
+        }
+    }
+
+    private boolean isIdle(long announced, boolean exhausted) {
+        return inbox.isEmpty() && announced == schedule.announced()
+            && exhausted == schedule.isExhausted() && !schedule.isRouted();
+    }
+
+    /**
+     * Wakes the thread of the process if it is parked.
+     * @param thread    The thread of the process.
+     */
+    void wake(Thread thread) {
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Returns the next scheduled event which has not been cancelled, dropping cancelled ones.
+     */
+    private Event peek() {
+        Event next = events.peek();
+        while (next != null && !cancelled.isEmpty() && cancelled.remove(next)) {
+            events.poll();
+            pool.release(next);
+            next = events.peek();
+        }
+        return next;
+    }
+
+    private void process() {
+        Processed[] h = history;
+        if (historyEnd - historyStart == h.length) {
+            Processed[] grown = new Processed[h.length * 2];
+            for (long i = historyStart; i < historyEnd; i++) {
+                grown[(int) i & (grown.length - 1)] = h[(int) i & (h.length - 1)];
+            }
+            history = grown;
+            h = grown;
+        }
+        // The records of the history are reused once collected or rolled back.
+        int slot = (int) historyEnd & (h.length - 1);
+        Processed p = h[slot];
+        if (p == null) {
+            p = new Processed();
+            h[slot] = p;
+        }
+
+        Event curr = events.poll();
+        p.saved = curr.server.saveState(p.saved);
+        Event scheduled = curr.getNextEvent(state, pool);
+        if (scheduled != null) {
+            events.add(scheduled);
+        }
+        if (curr.time > keyTime || (curr.time == keyTime && curr.type.ordinal() > keyType)) {
+            keyTime = curr.time;
+            keyType = curr.type.ordinal();
+        }
+        p.event = curr;
+        p.time = keyTime;
+        p.type = keyType;
+        p.scheduled = scheduled;
+        historyEnd++;
+    }
+
+    private void answer(double time) {
+        int slot = (int) nextAnswer & (answerEnd.length - 1);
+        servable[slot] = state.findFirstServableServer();
+        waitable[slot] = state.findFirstWaitableServer();
+        Server s = state.findShortestQueueServer();
+        shortest[slot] = s;
+        shortestLength[slot] = (s != null) ? s.currentQLen() : 0;
+        answerEnd[slot] = historyEnd;
+        nextAnswer++;
+        answered = nextAnswer;
+    }
+
+    /**
+     * Rolls back every event processed after the arrival of a message,
+     * latest first, and schedules the routed event.
+     */
+    private void rollback(Message m) {
+        long target = answerEnd[(int) m.arrival & (answerEnd.length - 1)];
+        Processed[] h = history;
+        while (historyEnd > target) {
+            historyEnd--;
+            Processed p = h[(int) historyEnd & (h.length - 1)];
+            p.event.server.restoreState(p.saved);
+            if (p.scheduled != null) {
+                cancelled.add(p.scheduled);
+            }
+            events.add(p.event);
+            p.clear();
+            rolledBack++;
+        }
+        keyTime = m.event.time;
+        keyType = EventType.ARRIVAL.ordinal();
+        events.add(m.event);
+        nextAnswer = m.arrival + 1;
+        answered = nextAnswer;
+        received++;
+    }
+
+    /**
+     * Recycles the events the engine has passed on, which can no longer be rolled back.
+     */
+    private void collect() {
+        long end = passed;
+        Processed[] h = history;
+        while (historyStart < end) {
+            Processed p = h[(int) historyStart & (h.length - 1)];
+            pool.release(p.event);
+            p.clear();
+            historyStart++;
+        }
+    }
+
+    /**
+     * Checks if the answers of the process at an arrival are up to date:
+     * all arrivals routed to it are received and the arrival is answered since.
+     * @param arrival   The index of the arrival.
+     * @return          true if the answers can be used to route the arrival.
+     */
+    boolean hasAnswered(long arrival) {
+        return received == sent && answered > arrival;
+    }
+
+    boolean isFinished() {
+        return received == sent && finished;
+    }
+
+    Throwable getFailure() {
+        return failure;
+    }
+
+    long getRolledBackEvents() {
+        return rolledBack;
+    }
+
+    /**
+     * Selects the arrival whose answers are used by the routing queries.
+     * @param arrival   The index of the arrival.
+     */
+    void select(long arrival) {
+        this.routing = arrival;
+        this.routingSlot = (int) arrival & (answerEnd.length - 1);
+    }
+
+    @Override
+    void receive(Customer customer, Server server, double time, EventType type) {
+        // The event is created here, as the EventPool of the partition belongs to its thread.
+        inbox.add(new Message(new Event().set(customer, server, time, type), routing));
+        sent++;
+    }
+
+    @Override
+    Server firstServable() {
+        return servable[routingSlot];
+    }
+
+    @Override
+    Server firstWaitable() {
+        return waitable[routingSlot];
+    }
+
+    @Override
+    Server shortestQueue() {
+        return shortest[routingSlot];
+    }
+
+    @Override
+    int shortestQueueLength() {
+        return shortestLength[routingSlot];
+    }
+
+    /**
+     * Opens the window of events processed before an arrival, or of all events once finished.
+     * @param arrival   The index of the arrival, or -1 for all events.
+     */
+    void openWindow(long arrival) {
+        windowHistory = history;
+        windowStart = passed;
+        windowEnd = (arrival < 0) ? historyEnd : answerEnd[(int) arrival & (answerEnd.length - 1)];
+    }
+
+    @Override
+    int windowSize() {
+        return (int) (windowEnd - windowStart);
+    }
+
+    @Override
+    Event windowEvent(int i) {
+        return entry(i).event;
+    }
+
+    @Override
+    double windowTime(int i) {
+        return entry(i).time;
+    }
+
+    @Override
+    int windowType(int i) {
+        return entry(i).type;
+    }
+
+    private Processed entry(int i) {
+        return windowHistory[(int) (windowStart + i) & (windowHistory.length - 1)];
+    }
+
+    @Override
+    void passedWindow() {
+        passed = windowEnd;
+    }
+
+    /**
+     * An arrival routed to the process, with the index of the arrival.
+     */
+    private static final class Message {
+        private final Event event;
+        private final long arrival;
+
+        private Message(Event event, long arrival) {
+            this.event = event;
+            this.arrival = arrival;
+        }
+    }
+
+    /**
+     * A processed event with its merge key, the event it scheduled, if any,
+     * and the state of its server before it. Its SavedState is kept when it is cleared,
+     * so that the state of a later event is saved into it.
+     */
+    private static final class Processed {
+        private Event event;
+        private double time;
+        private int type;
+        private Event scheduled;
+        private Server.SavedState saved;
+
+        private void clear() {
+            event = null;
+            scheduled = null;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The immutable ParameterGrid class holds a list of values for each raw input of a simulation
+ * and enumerates every combination of them as a Scenario, without materialising the grid.
+ * @author Wang Pei
+ */
+public final class ParameterGrid {
+    /*
+     * The parameters, in the order they are read by Main.
+     * Combinations are numbered with the last parameter varying fastest.
+     */
+    static final List<String> NAMES = Arrays.asList(
+            "seed", "servers", "selfCheckouts", "maxQLen", "customers", 
+            "lambda", "mu", "rho", "Pr", "Pg");
+
+    private final double[][] values;
+
+    private ParameterGrid(double[][] values) {
+        this.values = values;
+    }
+
+    /**
+     * Returns the grid consisting only of the given scenario.
+     * @param scenario  The base scenario.
+     * @return          A ParameterGrid.
+     */
+    public static ParameterGrid of(Scenario scenario) {
+        double[][] values = {
+            {scenario.getSeed()}, {scenario.getServerNumber()}, {scenario.getSelfCheckoutNumber()},
+            {scenario.getMaxQLen()}, {scenario.getCustomerNumber()}, {scenario.getLambda()},
+            {scenario.getMu()}, {scenario.getRho()}, {scenario.getPr()}, {scenario.getPg()}};
+        return new ParameterGrid(values);
+    }
+
+    /**
+     * Returns a copy of the grid where the given parameter takes the given values.
+     * @param name      The name of the parameter, e.g. lambda.
+     * @param spec      A comma separated list of values, e.g. 1,2,4,
+     *                      or an inclusive range from:to:step, e.g. 0.5:2:0.5.
+     * @return          The updated ParameterGrid.
+     */
+    public ParameterGrid with(String name, String spec) {
+        int i = NAMES.indexOf(name);
+        if (i < 0) {
+            throw new IllegalArgumentException("Unknown parameter " + name + ", expected one of " + NAMES);
+        }
+        double[][] copy = values.clone();
+        copy[i] = parseValues(spec.trim());
+        return new ParameterGrid(copy);
+    }
+
+    /**
+     * Reads a sweep specification on top of a base scenario.
+     * Each non-empty line not starting with # has the form name = values, 
+     * as accepted by with(String, String).
+     * @param base  The base scenario providing the parameters which are not swept.
+     * @param path  The path of the specification.
+     * @return      The ParameterGrid.
+     * @throws IOException  If the specification cannot be read.
+     */
+    public static ParameterGrid read(Scenario base, Path path) throws IOException {
+        ParameterGrid grid = of(base);
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int eq = line.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected name = values but got: " + line);
+            }
+            grid = grid.with(line.substring(0, eq).trim(), line.substring(eq + 1));
+        }
+        return grid;
+    }
+
+    /**
+     * Returns the number of grid points.
+     * @return  The product of the number of values of each parameter.
+     */
+    public long size() {
+        long size = 1;
+        for (double[] v : values) {
+            size *= v.length;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the scenario at the given grid point.
+     * @param point     The index of the grid point, from 0 to size() - 1.
+     * @return          The Scenario of the grid point.
+     */
+    public Scenario get(long point) {
+        double[] p = new double[values.length];
+        for (int i = values.length - 1; i >= 0; i--) {
+            p[i] = values[i][(int) (point % values[i].length)];
+            point /= values[i].length;
+        }
+        return Scenario.of((int) p[0], (int) p[1], (int) p[2], (int) p[3], (int) p[4], 
+                p[5], p[6], p[7], p[8], p[9]);
+    }
+
+    private static double[] parseValues(String spec) {
+        String[] range = spec.split(":");
+        if (range.length == 3) {
+            double from = Double.parseDouble(range[0].trim());
+            double to = Double.parseDouble(range[1].trim());
+            double step = Double.parseDouble(range[2].trim());
+            if (step <= 0 || to < from) {
+                throw new IllegalArgumentException("Invalid range " + spec);
+            }
+            // Values are computed from the index to avoid accumulating rounding errors.
+            int n = (int) Math.floor((to - from) / step + 1e-9) + 1;
+            double[] v = new double[n];
+            for (int i = 0; i < n; i++) {
+                v[i] = from + i * step;
+            }
+            return v;
+        }
+        return Arrays.stream(spec.split(",")).mapToDouble(s -> Double.parseDouble(s.trim())).toArray();
+    }
+}
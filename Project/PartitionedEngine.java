@@ -0,0 +1,298 @@
+package cs2030.simulator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * A PartitionedEngine runs a simulation with its servers partitioned into LogicalProcesses,
+ * which are simulated in parallel. Servers only interact when an arrival is routed,
+ * and arrival times do not depend on the state of the servers, so the engine itself
+ * handles arrivals and leaves, routes each arrival by combining the selections
+ * of the partitions in the order of their servers, and merges the events of the partitions
+ * in the order the sequential Simulator would have processed them before they are passed on.
+ * With the SPLITTABLE RandomGenerator every server draws from its own streams,
+ * so the trace and Statistics are those of the sequential run.
+ * Only simultaneous events of different partitions may be passed on in another order,
+ * which the binary heap of the sequential run does not fix either.
+ * Subclasses decide how the partitions are synchronised.
+ * @author Wang Pei
+ */
+abstract class PartitionedEngine {
+    /*
+     * A PartitionedEngine has
+     * (1) The number of partitions of the human servers and the kind of their FutureEventLists;
+     * (2) The SystemState, FutureEventList, ArrivalSource and EventPool of the Simulator;
+     * (3) The EventSink and BatchMeans, if collected, of the Simulator;
+     * (4) The LogicalProcesses, once partitioned, and the partition of every server id;
+     * (5) The pending arrivals and the arrival and leave events of the current window;
+     * (6) The cursors of the partitions while a window is merged, and the number of passed on events.
+     */
+    private final int partitions;
+    private final FutureEventList.Kind kind;
+    final SystemState state;
+    private final FutureEventList futureEvents;
+    private final ArrivalSource arrivals;
+    final EventPool pool;
+    private final EventSink sink;
+    private final BatchMeans batchMeans;
+
+    LogicalProcess[] processes;
+    private int[] partitionOf;
+    private final Queue<Event> pendingArrivals = new ArrayDeque<>();
+    final List<Event> window = new ArrayList<>();
+    private int[] cursors;
+    private long passed = 0;
+
+    /**
+     * Constructs a PartitionedEngine for the state and events of a Simulator.
+     * @param partitions    The number of partitions of the human servers.
+     * @param kind          The kind of FutureEventList of each partition.
+     * @param state         The SystemState of the Simulator.
+     * @param futureEvents  The FutureEventList of the Simulator.
+     * @param arrivals      The ArrivalSource of the Simulator.
+     * @param pool          The EventPool of the Simulator.
+     * @param sink          The EventSink of the Simulator.
+     * @param batchMeans    The BatchMeans of the Simulator, or null if they are not collected.
+     */
+    PartitionedEngine(int partitions, FutureEventList.Kind kind, SystemState state,
+            FutureEventList futureEvents, ArrivalSource arrivals, EventPool pool,
+            EventSink sink, BatchMeans batchMeans) {
+        this.partitions = partitions;
+        this.kind = kind;
+        this.state = state;
+        this.futureEvents = futureEvents;
+        this.arrivals = arrivals;
+        this.pool = pool;
+        this.sink = sink;
+        this.batchMeans = batchMeans;
+    }
+
+    /**
+     * Runs the simulation until there are no more scheduled events.
+     * The servers are attached to the ServerIndexes of their partitions from then on.
+     * @return  The number of processed events.
+     */
+    abstract long run();
+
+    /**
+     * Creates the LogicalProcess of a partition.
+     * @see LogicalProcess#LogicalProcess(List, List, Queue, int, FutureEventList)
+     */
+    abstract LogicalProcess createProcess(List<Server> humanServers, List<Server> selfCheckouts,
+            Queue<Customer> sharedQueue, int maxQLen, FutureEventList events);
+
+    /**
+     * Splits the servers into LogicalProcesses and hands every scheduled event to its partition,
+     * except arrivals, which become pending, and leaves, which join the first window.
+     * The self-checkout servers, which share their queue, form a partition of their own.
+     */
+    void partition() {
+        List<Server> humans = state.getHumanServers();
+        List<Server> selfCheckouts = state.getSelfCheckouts();
+        int humanPartitions = Math.min(partitions, humans.size());
+        processes = new LogicalProcess[humanPartitions + (selfCheckouts.isEmpty() ? 0 : 1)];
+        int maxId = 0;
+        for (Server s : humans) {
+            maxId = Math.max(maxId, s.getId());
+        }
+        for (Server s : selfCheckouts) {
+            maxId = Math.max(maxId, s.getId());
+        }
+        partitionOf = new int[maxId + 1];
+
+        // Contiguous ranges of human servers keep the order of selection across partitions.
+        for (int p = 0; p < humanPartitions; p++) {
+            List<Server> range = new ArrayList<>(humans.subList(
+                        humans.size() * p / humanPartitions, humans.size() * (p + 1) / humanPartitions));
+            processes[p] = createProcess(range, new ArrayList<>(), new CustomerQueue(0),
+                    state.getMaxQLen(), kind.create());
+            for (Server s : range) {
+                partitionOf[s.getId()] = p;
+            }
+        }
+        if (!selfCheckouts.isEmpty()) {
+            processes[humanPartitions] = createProcess(new ArrayList<>(), selfCheckouts,
+                    state.getSharedQueue(), state.getMaxQLen(), kind.create());
+            for (Server s : selfCheckouts) {
+                partitionOf[s.getId()] = humanPartitions;
+            }
+        }
+        cursors = new int[processes.length];
+
+        // Leave events can only be pending when the simulation has been resumed from a snapshot.
+        for (Event e = futureEvents.poll(); e != null; e = futureEvents.poll()) {
+            if (e.type == EventType.ARRIVAL) {
+                pendingArrivals.add(e);
+            } else if (e.type == EventType.LEAVE) {
+                window.add(e);
+            } else {
+                partitionOf(e.server).schedule(e);
+            }
+        }
+    }
+
+    private LogicalProcess partitionOf(Server server) {
+        return processes[partitionOf[server.getId()]];
+    }
+
+    /**
+     * Returns the next arrival, in order of arrival. Arrivals generated lazily are generated
+     * here, in the same order as each arrival would schedule its successor.
+     * @return  The next arrival event, or null if all customers have arrived.
+     */
+    Event nextArrival() {
+        Event arrival = pendingArrivals.poll();
+        return (arrival != null) ? arrival : arrivals.next(pool);
+    }
+
+    /**
+     * Routes an arrival as Event.nextOfArrival does, querying the partitions in order:
+     * a partition's selection only wins over those of earlier partitions if it is strictly better.
+     * The arrival, and its leave event if no server takes the customer, join the window.
+     * @param arrival   The arrival event.
+     */
+    void route(Event arrival) {
+        window.add(arrival);
+        Customer customer = arrival.customer;
+        Server s = firstServable();
+        if (s != null) {
+            partitionOf(s).receive(customer, s, arrival.time, EventType.SERVE);
+            return;
+        }
+        s = customer.isGreedy() ? shortestQueue() : firstWaitable();
+        if (s != null) {
+            partitionOf(s).receive(customer, s, arrival.time, EventType.WAIT);
+        } else {
+            window.add(pool.leaveEvent(arrival.time, customer));
+        }
+    }
+
+    /**
+     * Returns the LogicalProcess of a partition once its selections at the arrival being routed
+     * can be queried. Partitions are queried in order, and only as far as the routing needs them.
+     * @param p     The index of the partition.
+     * @return      The LogicalProcess of the partition.
+     */
+    LogicalProcess query(int p) {
+        return processes[p];
+    }
+
+    private Server firstServable() {
+        for (int p = 0; p < processes.length; p++) {
+            Server s = query(p).firstServable();
+            if (s != null) {
+                return s;
+            }
+        }
+        return null;
+    }
+
+    private Server firstWaitable() {
+        for (int p = 0; p < processes.length; p++) {
+            Server s = query(p).firstWaitable();
+            if (s != null) {
+                return s;
+            }
+        }
+        return null;
+    }
+
+    private Server shortestQueue() {
+        Server minServer = null;
+        int minLen = 0;
+        for (int p = 0; p < processes.length; p++) {
+            LogicalProcess lp = query(p);
+            Server s = lp.shortestQueue();
+            if (s != null && (minServer == null || lp.shortestQueueLength() < minLen)) {
+                minServer = s;
+                minLen = lp.shortestQueueLength();
+            }
+        }
+        return minServer;
+    }
+
+    /**
+     * Merges the arrival and leave events of the window with the windows of the given partitions
+     * by their merge keys, and passes them on. On equal keys, the arrival and leave events
+     * come first, then the partitions in order.
+     * @param active        The partitions which have events in the window, in order.
+     * @param activeCount   The number of such partitions.
+     */
+    void passWindow(LogicalProcess[] active, int activeCount) {
+        passWindow(active, activeCount, window.size());
+    }
+
+    /**
+     * Merges the first arrival and leave events of the window with the windows of the given partitions,
+     * as passWindow does, and keeps the rest of the arrival and leave events for a later window.
+     * @param active        The partitions which have events in the window, in order.
+     * @param activeCount   The number of such partitions.
+     * @param end           The number of arrival and leave events in the window.
+     */
+    void passWindow(LogicalProcess[] active, int activeCount, int end) {
+        int[] next = cursors;
+        Arrays.fill(next, 0);
+        int w = 0;
+        while (true) {
+            int best = -1;
+            double bestTime = 0;
+            int bestType = 0;
+            if (w < end) {
+                Event e = window.get(w);
+                best = activeCount;
+                bestTime = e.time;
+                bestType = e.type.ordinal();
+            }
+            for (int i = 0; i < activeCount; i++) {
+                LogicalProcess lp = active[i];
+                if (next[i] < lp.windowSize()) {
+                    double t = lp.windowTime(next[i]);
+                    int type = lp.windowType(next[i]);
+                    if (best < 0 || t < bestTime || (t == bestTime && type < bestType)) {
+                        best = i;
+                        bestTime = t;
+                        bestType = type;
+                    }
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            if (best == activeCount) {
+                pass(window.get(w++));
+            } else {
+                pass(active[best].windowEvent(next[best]++));
+            }
+        }
+
+        List<Event> passedEvents = window.subList(0, end);
+        for (Event e : passedEvents) {
+            pool.release(e);
+        }
+        passedEvents.clear();
+        for (int i = 0; i < activeCount; i++) {
+            active[i].passedWindow();
+        }
+    }
+
+    private void pass(Event event) {
+        // The statistics are recorded in the order of the sequential run, so that they sum up alike.
+        if (event.type == EventType.SERVE) {
+            state.getStatistics().recordServed(event.customer.getWaitTime(event.time));
+        } else if (event.type == EventType.LEAVE) {
+            state.getStatistics().recordLeft();
+        }
+        if (batchMeans != null) {
+            batchMeans.record(event);
+        }
+        sink.accept(event);
+        passed++;
+    }
+
+    long getPassedEvents() {
+        return passed;
+    }
+}
@@ -0,0 +1,118 @@
+package cs2030.simulator;
+
+import java.util.Arrays;
+
+/**
+ * QuantileSketch estimates a quantile of a stream of values in constant memory
+ * with the P-square algorithm of R. Jain and I. Chlamtac, CACM 28(10), 1985.
+ * @author Wang Pei
+ */
+final class QuantileSketch {
+    /*
+     * A QuantileSketch has
+     * (1) The probability of the estimated quantile;
+     * (2) The heights and positions of five markers;
+     * (3) The desired positions of the markers and their increments;
+     * (4) The number of values seen.
+     */
+    private final double p;
+    private final double[] heights = new double[5];
+    private final double[] positions = new double[5];
+    private final double[] desired = new double[5];
+    private final double[] increments;
+    private long count = 0;
+
+    /**
+     * Constructs a QuantileSketch.
+     * @param p     The probability of the quantile, e.g. 0.95.
+     */
+    QuantileSketch(double p) {
+        this.p = p;
+        this.increments = new double[] {0, p / 2, p, (1 + p) / 2, 1};
+    }
+
+    /**
+     * Adds a value to the stream.
+     * @param x     The value.
+     */
+    void add(double x) {
+        if (count < 5) {
+            heights[(int) count++] = x;
+            if (count == 5) {
+                Arrays.sort(heights);
+                for (int i = 0; i < 5; i++) {
+                    positions[i] = i + 1;
+                }
+                desired[0] = 1;
+                desired[1] = 1 + 2 * p;
+                desired[2] = 1 + 4 * p;
+                desired[3] = 3 + 2 * p;
+                desired[4] = 5;
+            }
+            return;
+        }
+        count++;
+
+        // Find the cell of the value, extending the extreme markers if needed.
+        int k;
+        if (x < heights[0]) {
+            heights[0] = x;
+            k = 0;
+        } else if (x >= heights[4]) {
+            heights[4] = x;
+            k = 3;
+        } else {
+            k = 0;
+            while (x >= heights[k + 1]) {
+                k++;
+            }
+        }
+        for (int i = k + 1; i < 5; i++) {
+            positions[i]++;
+        }
+        for (int i = 0; i < 5; i++) {
+            desired[i] += increments[i];
+        }
+
+        // Adjust the middle markers towards their desired positions.
+        for (int i = 1; i < 4; i++) {
+            double d = desired[i] - positions[i];
+            if ((d >= 1 && positions[i + 1] - positions[i] > 1) 
+                    || (d <= -1 && positions[i - 1] - positions[i] < -1)) {
+                int s = (d > 0) ? 1 : -1;
+                double h = parabolic(i, s);
+                heights[i] = (heights[i - 1] < h && h < heights[i + 1]) ? h : linear(i, s);
+                positions[i] += s;
+            }
+        }
+    }
+
+    /**
+     * Returns the estimated quantile.
+     * @return  The estimate, exact while fewer than five values have been seen, or NaN if none.
+     */
+    double get() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (count < 5) {
+            double[] seen = Arrays.copyOf(heights, (int) count);
+            Arrays.sort(seen);
+            return seen[(int) Math.min(count - 1, Math.round(p * (count - 1)))];
+        }
+        return heights[2];
+    }
+
+    private double parabolic(int i, int s) {
+        double nm = positions[i - 1];
+        double n = positions[i];
+        double np = positions[i + 1];
+        return heights[i] + s / (np - nm) 
+            * ((n - nm + s) * (heights[i + 1] - heights[i]) / (np - n)
+                + (np - n - s) * (heights[i] - heights[i - 1]) / (n - nm));
+    }
+
+    private double linear(int i, int s) {
+        return heights[i] + s * (heights[i + s] - heights[i]) / (positions[i + s] - positions[i]);
+    }
+}
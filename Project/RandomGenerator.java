@@ -0,0 +1,203 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+
+/**
+ * The RandomGenerator class draws the random times and decisions of a simulation,
+ * each kind from its own RandomStream.
+ * In the COMPAT mode every stream reproduces the java.util.Random the generator always used,
+ * so that simulations are unchanged, and all servers share the streams of one generator.
+ * In the SPLITTABLE mode streams are fast xoshiro256++ generators 
+ * with ziggurat-sampled exponential times, and every server has its own streams of service times
+ * and rest decisions, so that the draws of one server do not depend on the order of events 
+ * at the others.
+ * @author Wang Pei
+ */
+public class RandomGenerator {
+
+    /**
+     * The available kinds of RandomGenerator.
+     */
+    public enum Mode {
+        COMPAT,
+        SPLITTABLE;
+
+        /**
+         * Creates the RandomGenerator of a simulation.
+         * @param seed      The seed of the simulation.
+         * @param lambda    The arrival rate of customers.
+         * @param mu        The service rate of servers.
+         * @param rho       The rate at which resting servers get back.
+         * @return          A RandomGenerator of this mode.
+         */
+        RandomGenerator create(int seed, double lambda, double mu, double rho) {
+            return (this == COMPAT)
+                ? new RandomGenerator(seed, lambda, mu, rho)
+                : new RandomGenerator(SPLITTABLE, seed, lambda, mu, rho, 
+                        XoshiroStream.of(seed, ARRIVAL), XoshiroStream.of(seed, CUSTOMER_TYPE), 
+                        XoshiroStream.of(seed, SERVICE), XoshiroStream.of(seed, REST), 
+                        XoshiroStream.of(seed, REST_PERIOD));
+        }
+    }
+
+    /*
+     * A RandomGenerator has
+     * (1) Its mode and the seed of the simulation;
+     * (2) The rates of arrivals, services and getting back from rest;
+     * (3) The streams of inter-arrival times, customer types, service times, 
+     *     rest decisions and rest periods.
+     * Splittable streams are keyed by their kind, and those of a server by its id as well.
+     */
+    private static final long ARRIVAL = 1;
+    private static final long CUSTOMER_TYPE = 2;
+    private static final long SERVICE = 3;
+    private static final long REST = 4;
+    private static final long REST_PERIOD = 5;
+
+    private final Mode mode;
+    private final long seed;
+    private final double customerArrivalRate;
+    private final double customerServiceRate;
+    private final double serverRestingRate;
+    private final RandomStream arrival;
+    private final RandomStream customerType;
+    private final RandomStream service;
+    private final RandomStream rest;
+    private final RandomStream restPeriod;
+
+    /**
+     * Constructs a RandomGenerator in the COMPAT mode, 
+     * whose streams are seeded with seed, seed + 1, ... as they always were.
+     * @param seed      The seed of the simulation.
+     * @param lambda    The arrival rate of customers.
+     * @param mu        The service rate of servers.
+     * @param rho       The rate at which resting servers get back.
+     */
+    RandomGenerator(int seed, double lambda, double mu, double rho) {
+        this(Mode.COMPAT, seed, lambda, mu, rho, 
+                LegacyRandomStream.of(seed), LegacyRandomStream.of(seed + 4), 
+                LegacyRandomStream.of(seed + 1), LegacyRandomStream.of(seed + 2), 
+                LegacyRandomStream.of(seed + 3));
+    }
+
+    private RandomGenerator(Mode mode, long seed, double lambda, double mu, double rho,
+            RandomStream arrival, RandomStream customerType, 
+            RandomStream service, RandomStream rest, RandomStream restPeriod) {
+        this.mode = mode;
+        this.seed = seed;
+        this.customerArrivalRate = lambda;
+        this.customerServiceRate = mu;
+        this.serverRestingRate = rho;
+        this.arrival = arrival;
+        this.customerType = customerType;
+        this.service = service;
+        this.rest = rest;
+        this.restPeriod = restPeriod;
+    }
+
+    /**
+     * Returns the generator a server draws its service times and rest decisions from.
+     * @param serverId  The id of the server.
+     * @return          This generator in the COMPAT mode, 
+     *                      and a generator with streams of the server's own otherwise.
+     */
+    RandomGenerator forServer(int serverId) {
+        if (mode == Mode.COMPAT) {
+            return this;
+        }
+        long key = (long) serverId << 8;
+        return new RandomGenerator(mode, seed, customerArrivalRate, customerServiceRate, serverRestingRate,
+                arrival, customerType, XoshiroStream.of(seed, key | SERVICE), 
+                XoshiroStream.of(seed, key | REST), XoshiroStream.of(seed, key | REST_PERIOD));
+    }
+
+    /**
+     * Returns a copy of the generator whose streams of service times, rest decisions 
+     * and rest periods are at their current positions, so that a server can be rolled back.
+     * The streams of arrivals and customer types are shared with the copy.
+     * @return  A copy of the generator.
+     */
+    RandomGenerator copy() {
+        return new RandomGenerator(mode, seed, customerArrivalRate, customerServiceRate, serverRestingRate,
+                arrival, customerType, service.copy(), rest.copy(), restPeriod.copy());
+    }
+
+    /**
+     * Moves the streams of service times, rest decisions and rest periods to their positions in another
+     * generator of the same mode, such as a copy of this one, or moves a copy to the positions of any generator.
+     * @param copy  A generator of the same mode.
+     */
+    void reset(RandomGenerator copy) {
+        service.reset(copy.service);
+        rest.reset(copy.rest);
+        restPeriod.reset(copy.restPeriod);
+    }
+
+    double getServiceRate() {
+        return customerServiceRate;
+    }
+
+    double getRestingRate() {
+        return serverRestingRate;
+    }
+
+    double genInterArrivalTime() {
+        return arrival.nextExponential() / customerArrivalRate;
+    }
+
+    double genServiceTime() {
+        return service.nextExponential() / customerServiceRate;
+    }
+
+    double genRandomRest() {
+        return rest.nextDouble();
+    }
+
+    double genRestPeriod() {
+        return restPeriod.nextExponential() / serverRestingRate;
+    }
+
+    double genCustomerType() {
+        return customerType.nextDouble();
+    }
+
+    /**
+     * Restores a RandomGenerator written by save.
+     * @param in    The CheckpointReader of the snapshot.
+     * @return      The RandomGenerator at the saved position.
+     */
+    static RandomGenerator restore(CheckpointReader in) throws IOException {
+        Mode mode = Mode.values()[in.readByte()];
+        long seed = in.readLong();
+        double lambda = in.readDouble();
+        double mu = in.readDouble();
+        double rho = in.readDouble();
+        RandomStream[] streams = new RandomStream[5];
+        for (int i = 0; i < streams.length; i++) {
+            streams[i] = (mode == Mode.COMPAT)
+                ? LegacyRandomStream.restore(in)
+                : XoshiroStream.restore(in);
+        }
+        return new RandomGenerator(mode, seed, lambda, mu, rho, 
+                streams[0], streams[1], streams[2], streams[3], streams[4]);
+    }
+
+    /**
+     * Writes the mode, rates and stream positions of the generator to a snapshot.
+     * Streams shared with another generator are written with each of them, 
+     * which is harmless as shared arrival streams are only drawn from by the simulation's generator.
+     * @param out   The CheckpointWriter of the snapshot.
+     */
+    void save(CheckpointWriter out) throws IOException {
+        out.writeByte(mode.ordinal());
+        out.writeLong(seed);
+        out.writeDouble(customerArrivalRate);
+        out.writeDouble(customerServiceRate);
+        out.writeDouble(serverRestingRate);
+        arrival.save(out);
+        customerType.save(out);
+        service.save(out);
+        rest.save(out);
+        restPeriod.save(out);
+    }
+}
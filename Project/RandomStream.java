@@ -0,0 +1,40 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+
+/**
+ * A RandomStream is one independent sequence of random numbers of a RandomGenerator.
+ * @author Wang Pei
+ */
+interface RandomStream {
+
+    /**
+     * Returns the next uniformly distributed double.
+     * @return  A double in [0, 1).
+     */
+    double nextDouble();
+
+    /**
+     * Returns the next exponentially distributed double with rate 1.
+     * @return  A positive double with mean 1.
+     */
+    double nextExponential();
+
+    /**
+     * Returns an independent copy of the stream at its current position.
+     * @return  A copy of the stream.
+     */
+    RandomStream copy();
+
+    /**
+     * Moves the stream back, or forward, to the position of a copy of it.
+     * @param copy  A copy of this stream returned by copy.
+     */
+    void reset(RandomStream copy);
+
+    /**
+     * Writes the position of the stream to a snapshot.
+     * @param out   The CheckpointWriter of the snapshot.
+     */
+    void save(CheckpointWriter out) throws IOException;
+}
@@ -0,0 +1,102 @@
+package cs2030.simulator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ReplicationRunner runs independent replications of a Scenario in parallel 
+ * on a fork/join pool, each with its own statistics and a seed derived from a master seed.
+ * @author Wang Pei
+ */
+public class ReplicationRunner {
+    /*
+     * A ReplicationRunner has
+     * (1) The Scenario to be replicated;
+     * (2) The SimulatorOptions of every replication, whose trace is discarded;
+     * (3) The ForkJoinPool the replications run on.
+     */
+    private final Scenario scenario;
+    private final SimulatorOptions options;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a ReplicationRunner.
+     * @param scenario  The Scenario to be replicated.
+     * @param options   The SimulatorOptions of every replication.
+     * @param pool      The ForkJoinPool the replications run on.
+     */
+    public ReplicationRunner(Scenario scenario, SimulatorOptions options, ForkJoinPool pool) {
+        this.scenario = scenario;
+        this.options = options.withSink(EventSink.discard());
+        this.pool = pool;
+    }
+
+    /**
+     * Constructs a ReplicationRunner on the common pool, with arrivals generated lazily.
+     * @param scenario  The Scenario to be replicated.
+     */
+    public ReplicationRunner(Scenario scenario) {
+        this(scenario, SimulatorOptions.defaults().withLazyArrivals(true), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs the replications and summarises them.
+     * The result only depends on the master seed, not on the number of threads.
+     * @param replications  The number of replications.
+     * @param masterSeed    The master seed from which the seed of each replication is derived.
+     * @param confidence    The confidence level of the intervals, e.g. 0.95.
+     * @return              The summary of the replications.
+     */
+    public ReplicationSummary run(int replications, long masterSeed, double confidence) {
+        Statistics[] results = new Statistics[replications];
+        pool.invoke(new Replications(results, 0, replications, masterSeed));
+        return ReplicationSummary.of(results, confidence);
+    }
+
+    /**
+     * Derives the seed of a replication from the master seed with the SplitMix64 finaliser,
+     * so that neighbouring replications get unrelated seeds.
+     * @param masterSeed    The master seed.
+     * @param replication   The index of the replication.
+     * @return              The seed of the replication.
+     */
+    public static int seedOf(long masterSeed, int replication) {
+        long z = masterSeed + (replication + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (int) (z >>> 32);
+    }
+
+    /**
+     * Runs the replications of a range of indices, splitting it in halves.
+     */
+    private class Replications extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Statistics[] results;
+        private final int from;
+        private final int to;
+        private final long masterSeed;
+
+        Replications(Statistics[] results, int from, int to, long masterSeed) {
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.masterSeed = masterSeed;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                Simulator simulator = scenario.withSeed(seedOf(masterSeed, from)).init(options);
+                simulator.run();
+                results[from] = simulator.getStatistics();
+            } else if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Replications(results, from, mid, masterSeed), 
+                        new Replications(results, mid, to, masterSeed));
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package cs2030.simulator;
+
+/**
+ * The immutable ReplicationSummary class holds the estimates 
+ * of the customer statistics over independent replications.
+ * @author Wang Pei
+ */
+public final class ReplicationSummary {
+    private final int replications;
+    private final double confidence;
+    private final Estimate averageWaitTime;
+    private final Estimate served;
+    private final Estimate left;
+
+    private ReplicationSummary(int replications, double confidence, 
+            Estimate averageWaitTime, Estimate served, Estimate left) {
+        this.replications = replications;
+        this.confidence = confidence;
+        this.averageWaitTime = averageWaitTime;
+        this.served = served;
+        this.left = left;
+    }
+
+    /**
+     * Summarises the statistics of the replications.
+     * @param results       The Statistics of each replication.
+     * @param confidence    The confidence level of the intervals.
+     * @return              The ReplicationSummary.
+     */
+    static ReplicationSummary of(Statistics[] results, double confidence) {
+        double[] waits = new double[results.length];
+        double[] served = new double[results.length];
+        double[] left = new double[results.length];
+        for (int i = 0; i < results.length; i++) {
+            waits[i] = results[i].getAverageWaitTime();
+            served[i] = results[i].getServed();
+            left[i] = results[i].getLeft();
+        }
+        return new ReplicationSummary(results.length, confidence,
+                Estimate.of(waits, confidence), Estimate.of(served, confidence), Estimate.of(left, confidence));
+    }
+
+    public int getReplications() {
+        return replications;
+    }
+
+    public Estimate getAverageWaitTime() {
+        return averageWaitTime;
+    }
+
+    public Estimate getServed() {
+        return served;
+    }
+
+    public Estimate getLeft() {
+        return left;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d replications, %.0f%% confidence intervals%n", replications, confidence * 100)
+            + "average wait time: " + averageWaitTime + System.lineSeparator()
+            + "customers served:  " + served + System.lineSeparator()
+            + "customers left:    " + left;
+    }
+}
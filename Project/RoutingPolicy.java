@@ -0,0 +1,101 @@
+package cs2030.simulator;
+
+/**
+ * A RoutingPolicy decides which server an arriving customer goes to, among the servers
+ * of the candidate zones of its customer: the server serves the customer at once if it can,
+ * and queues it otherwise. Each class of customers, normal and greedy, has its own policy.
+ * Policies must not keep any state of a simulation, as the same policy is used by many;
+ * decisions which need randomness or a rotation derive it from the customer.
+ * The bank of self-checkout servers of a zone is chosen through one of its servers:
+ * an idle one if any, or the first one to queue at the shared queue.
+ * @author Wang Pei
+ */
+public interface RoutingPolicy {
+
+    /**
+     * Selects the server an arriving customer goes to.
+     * @param state     The SystemState at the arrival.
+     * @param customer  The arriving customer.
+     * @return          The server, which serves the customer if it can and queues it otherwise,
+     *                      or null if the customer leaves.
+     */
+    Server select(SystemState state, Customer customer);
+
+    /**
+     * Returns the policy of normal customers by default: the first server which can serve
+     * immediately, or else the first with queueing space, in order of the candidate zones.
+     * @return  The first-fit policy.
+     */
+    static RoutingPolicy firstFit() {
+        return BuiltInRouting.FIRST_FIT;
+    }
+
+    /**
+     * Returns the policy of greedy customers by default: the first server which can serve
+     * immediately, or else the one with the shortest queue which has space, the first one on ties.
+     * @return  The shortest-queue policy.
+     */
+    static RoutingPolicy shortestQueue() {
+        return BuiltInRouting.SHORTEST_QUEUE;
+    }
+
+    /**
+     * Returns the policy joining the server with the shortest expected workload:
+     * the least expected wait before service, counting the customers ahead at the mean service time
+     * and a rest at the mean rest period. A bank of busy self-checkout servers shares its workload.
+     * @return  The join-shortest-expected-workload policy.
+     */
+    static RoutingPolicy shortestWorkload() {
+        return BuiltInRouting.SHORTEST_WORKLOAD;
+    }
+
+    /**
+     * Returns the policy sampling a few servers, with replacement, and joining the one
+     * with the shortest expected workload among them, at a cost independent of the number of servers.
+     * Banks of self-checkout servers are sampled as one server. Samples are drawn from a hash
+     * of the id and arrival time of the customer, so that runs are reproducible.
+     * @param choices   The number of servers sampled.
+     * @return          The power-of-d-choices policy.
+     */
+    static RoutingPolicy powerOfChoices(int choices) {
+        if (choices < 1) {
+            throw new IllegalArgumentException("Invalid number of choices " + choices);
+        }
+        return new BuiltInRouting(BuiltInRouting.Kind.POWER_OF_CHOICES, choices);
+    }
+
+    /**
+     * Returns the policy cycling through the servers in order of arrival:
+     * the n-th customer starts at the n-th server, modulo the number of servers,
+     * and joins the first which can take it from there on.
+     * Banks of self-checkout servers count as one server, after the human servers of their zone.
+     * @return  The round-robin policy.
+     */
+    static RoutingPolicy roundRobin() {
+        return BuiltInRouting.ROUND_ROBIN;
+    }
+
+    /**
+     * Returns the policy of a name: first-fit, shortest-queue, shortest-workload,
+     * power-of-D for D choices, or round-robin.
+     * @param name  The name of the policy.
+     * @return      The policy.
+     */
+    static RoutingPolicy named(String name) {
+        if (name.startsWith("power-of-")) {
+            return powerOfChoices(Integer.parseInt(name.substring(9)));
+        }
+        switch (name) {
+            case "first-fit":
+                return firstFit();
+            case "shortest-queue":
+                return shortestQueue();
+            case "shortest-workload":
+                return shortestWorkload();
+            case "round-robin":
+                return roundRobin();
+            default:
+                throw new IllegalArgumentException("Unknown routing policy " + name);
+        }
+    }
+}
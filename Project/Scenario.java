@@ -0,0 +1,123 @@
+package cs2030.simulator;
+
+/**
+ * The immutable Scenario class holds the raw data of one simulation,
+ * in the order it is read by Main.
+ * @author Wang Pei
+ */
+public final class Scenario {
+    private final int seed;
+    private final int serverNumber;
+    private final int selfCheckoutNumber;
+    private final int maxQLen;
+    private final int customerNumber;
+    private final double lambda;
+    private final double mu;
+    private final double rho;
+    private final double Pr;
+    private final double Pg;
+
+    private Scenario(int seed, int serverNumber, int selfCheckoutNumber, int maxQLen, int customerNumber,
+            double lambda, double mu, double rho, double Pr, double Pg) {
+        this.seed = seed;
+        this.serverNumber = serverNumber;
+        this.selfCheckoutNumber = selfCheckoutNumber;
+        this.maxQLen = maxQLen;
+        this.customerNumber = customerNumber;
+        this.lambda = lambda;
+        this.mu = mu;
+        this.rho = rho;
+        this.Pr = Pr;
+        this.Pg = Pg;
+    }
+
+    /**
+     * Creates a Scenario.
+     * @param seed                  The seed value of RandomGenerator.
+     * @param serverNumber          Number of servers involved in the simulation.
+     * @param selfCheckoutNumber    Number of self-checkout servers in the simulation.
+     * @param maxQLen               The maximum queueing capacity of servers.
+     * @param customerNumber        Number of customers involved in the simulation.
+     * @param lambda                The parameter for the arrival rate of RandomGenerator.
+     * @param mu                    The parameter for the service rate of RandomGenerator.
+     * @param rho                   The parameter for the resting rate of RandomGenerator.
+     * @param Pr                    The threshold probability of human server resting.
+     * @param Pg                    The probability for a greedy customer occuring.
+     * @return                      A Scenario.
+     */
+    public static Scenario of(int seed, int serverNumber, int selfCheckoutNumber, int maxQLen, 
+            int customerNumber, double lambda, double mu, double rho, double Pr, double Pg) {
+        return new Scenario(seed, serverNumber, selfCheckoutNumber, maxQLen, customerNumber,
+                lambda, mu, rho, Pr, Pg);
+    }
+
+    /**
+     * Returns a copy of the scenario with another seed.
+     * @param seed  The seed value of RandomGenerator.
+     * @return      The updated Scenario.
+     */
+    public Scenario withSeed(int seed) {
+        return new Scenario(seed, serverNumber, selfCheckoutNumber, maxQLen, customerNumber,
+                lambda, mu, rho, Pr, Pg);
+    }
+
+    /**
+     * Initializes a Simulator of the scenario.
+     * @param options   The SimulatorOptions of the simulation.
+     * @return          An initialized Simulator.
+     */
+    public Simulator init(SimulatorOptions options) {
+        return Initializer.init(serverNumber, selfCheckoutNumber, customerNumber, maxQLen,
+                seed, lambda, mu, rho, Pr, Pg, options);
+    }
+
+    public int getSeed() {
+        return seed;
+    }
+
+    public int getServerNumber() {
+        return serverNumber;
+    }
+
+    public int getSelfCheckoutNumber() {
+        return selfCheckoutNumber;
+    }
+
+    public int getMaxQLen() {
+        return maxQLen;
+    }
+
+    public int getCustomerNumber() {
+        return customerNumber;
+    }
+
+    public double getLambda() {
+        return lambda;
+    }
+
+    public double getMu() {
+        return mu;
+    }
+
+    public double getRho() {
+        return rho;
+    }
+
+    public double getPr() {
+        return Pr;
+    }
+
+    public double getPg() {
+        return Pg;
+    }
+
+    /**
+     * Returns the raw data of the scenario separated by spaces, as read by Main.
+     * @return  The raw data.
+     */
+    @Override
+    public String toString() {
+        return seed + " " + serverNumber + " " + selfCheckoutNumber + " " + maxQLen + " " 
+            + customerNumber + " " + lambda + " " + mu + " " + rho + " " + Pr + " " + Pg;
+    }
+}
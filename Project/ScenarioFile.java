@@ -0,0 +1,66 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ScenarioFile reads a batch of scenarios from a file, one per line,
+ * each given by the ten numbers Main reads from the standard input, in the same order:
+ * seed, servers, selfCheckouts, maxQLen, customers, lambda, mu, rho, Pr and Pg.
+ * Numbers are separated by spaces, tabs or commas; empty lines and text after # are ignored.
+ * The file is memory-mapped and numbers are parsed in place by a ByteTokenizer.
+ * @author Wang Pei
+ */
+public final class ScenarioFile {
+    private static final int FIELDS = 10;
+    private static final int INT_FIELDS = 5;
+
+    private ScenarioFile() {
+    }
+
+    /**
+     * Reads all scenarios of a file, in order.
+     * @param path  The path of the scenario file.
+     * @return      The list of scenarios.
+     * @throws IOException  If the file cannot be read.
+     */
+    public static List<Scenario> read(Path path) throws IOException {
+        MappedByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large for a scenario file");
+            }
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        List<Scenario> scenarios = new ArrayList<>();
+        int[] ints = new int[INT_FIELDS];
+        double[] doubles = new double[FIELDS - INT_FIELDS];
+        ByteTokenizer in = new ByteTokenizer(bytes, 0);
+        while (in.nextLine()) {
+            if (!in.hasNext()) {
+                continue;
+            }
+            for (int field = 0; field < FIELDS; field++) {
+                if (!in.hasNext()) {
+                    throw in.error("only " + field + " of " + FIELDS + " numbers");
+                }
+                if (field < INT_FIELDS) {
+                    ints[field] = in.nextInt();
+                } else {
+                    doubles[field - INT_FIELDS] = in.nextDouble();
+                }
+            }
+            if (in.hasNext()) {
+                throw in.error("more than " + FIELDS + " numbers");
+            }
+            scenarios.add(Scenario.of(ints[0], ints[1], ints[2], ints[3], ints[4],
+                        doubles[0], doubles[1], doubles[2], doubles[3], doubles[4]));
+        }
+        return scenarios;
+    }
+}
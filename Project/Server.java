@@ -1,7 +1,7 @@
 package cs2030.simulator;
 
-import java.util.LinkedList;
-import java.util.Optional;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Queue;
 
 /**
@@ -19,33 +19,39 @@ public class Server {
 	         server's servicing and resting behaviors.
      * (5) A double value denoting probability of resting.
 	 * (6) A customer it is currently serving.
-     * (7) Static fields of:
-     *      [1]. Total server number.
-     *      [2]. Default serving duration.
+     * (7) The ServerIndex of its zone and its position in its SystemState, if any.
+     * (8) The longest its queue has been when a customer was enqueued.
+     * (9) A boolean value denoting if it is closed to new customers, which a what-if variant can do.
+     * (10) Static field of default serving duration.
+     * The maximum queue length and Pr only change when a what-if variant reconfigures the server.
      */
     private final Queue<Customer> customerQueue;
-    private final int maxQLen;
+    private int maxQLen;
     private final int id;
     private final RandomGenerator rng; 
-    private final double Pr;
-	private Optional<Customer> servingCustomer;
+    private double Pr;
+	private Customer servingCustomer;           // null when not serving.
     private boolean isResting = false;          // By default, isResting is false.
-    private static int SERVER_NUMBER = 0;
+    private ServerIndex index;
+    private int slot;
+    private int maxQLenSeen = 0;
+    private boolean closed = false;
     private static double DEFAULT_SERVICE_TIME = 1;
 
     /**
      * Constructs a server with an RandomGenerator with given parameters.
+     * @param id                The id of the server.
      * @param maxQLen           The maximum length of the waiting queue.
      * @param rng               The RandomGenerator that determines 
      *                              the servicing and resting behaviors.
      * @param Pr                The probability of resting.
 	 * @param customerQueue		The queue of waiting customers of the server.
      */
-    private Server(int maxQLen, RandomGenerator rng, double Pr, Queue<Customer> customerQueue) {
-        this.servingCustomer = Optional.empty();
+    private Server(int id, int maxQLen, RandomGenerator rng, double Pr, Queue<Customer> customerQueue) {
+        this.servingCustomer = null;
 		this.customerQueue = customerQueue;
         this.maxQLen = maxQLen;
-        this.id = ++SERVER_NUMBER;
+        this.id = id;
         this.rng = rng;
         this.Pr = Pr;
     }
@@ -53,42 +59,230 @@ public class Server {
     /**
      * Create a human server with given maximum queue length, RandomGenerator,
      * and resting probability.
+     * @param id        The id of the server.
      * @param maxQLen   The given maximum queue length.
      * @param rng       The given RandomGenerator.
      * @param Pr        The given resting probability.
      * @return          A human server.
      */
-    public static Server createHumanServer(int maxQLen, RandomGenerator rng, double Pr) {
+    public static Server createHumanServer(int id, int maxQLen, RandomGenerator rng, double Pr) {
         /*
-		 * Each human server has its own customer queue.
+		 * Each human server has its own customer queue, a ring buffer sized from maxQLen.
 		 */
-		return new Server(maxQLen, rng, Pr, new LinkedList<Customer>());
+		return new Server(id, maxQLen, rng, Pr, new CustomerQueue(maxQLen));
     }
 
     /**
      * Create a self-checkout server with given RandomGenerator and shared queue.
+     * @param id                The id of the server.
 	 * @param maxSharedQLen 	The maximum length of the shared queue of all self-sheckout servers. 
      * @param rng       		The given RandomGenerator.
 	 * @param sharedQueue		The shared queue of all self-sheckout servers. 					
      * @return          		A self-checkout server.
      */
-    public static Server createSelfCheckout(int maxSharedQLen, RandomGenerator rng, Queue<Customer> sharedQueue) {
+    public static Server createSelfCheckout(int id, int maxSharedQLen, RandomGenerator rng, Queue<Customer> sharedQueue) {
         /*
          * Self-checkout servers have a resting probability Pr of -1, flagging it as a self-checkout server.
          */
-        return new Server(maxSharedQLen, rng, -1, sharedQueue);
+        return new Server(id, maxSharedQLen, rng, -1, sharedQueue);
+    }
+
+    /**
+     * Restores a server written by save, without attaching it to a ServerIndex.
+     * @param in            The CheckpointReader of the snapshot.
+     * @param sharedQueue   The restored shared queue of all self-checkout servers.
+     * @return              The restored server.
+     */
+    static Server restore(CheckpointReader in, Queue<Customer> sharedQueue) throws IOException {
+        RandomGenerator rng = in.readRandomGenerator();
+        int id = in.readInt();
+        int maxQLen = in.readInt();
+        double Pr = in.readDouble();
+        Server server = (Pr == -1)
+            ? new Server(id, maxQLen, rng, Pr, sharedQueue)
+            : new Server(id, maxQLen, rng, Pr, new CustomerQueue(maxQLen));
+        server.isResting = in.readBoolean();
+        server.closed = in.readBoolean();
+        server.servingCustomer = in.readCustomer();
+        if (!server.isSelfCheckout()) {
+            for (int n = in.readInt(); n > 0; n--) {
+                server.customerQueue.add(in.readCustomer());
+            }
+        }
+        return server;
+    }
+
+    /**
+     * Writes the server to a snapshot. The shared queue of self-checkout servers
+     * is written by their SystemState instead.
+     * @param out   The CheckpointWriter of the snapshot.
+     */
+    void save(CheckpointWriter out) throws IOException {
+        out.writeRandomGenerator(rng);
+        out.writeInt(id);
+        out.writeInt(maxQLen);
+        out.writeDouble(Pr);
+        out.writeBoolean(isResting);
+        out.writeBoolean(closed);
+        out.writeCustomer(servingCustomer);
+        if (!isSelfCheckout()) {
+            out.writeInt(customerQueue.size());
+            for (Customer c : customerQueue) {
+                out.writeCustomer(c);
+            }
+        }
+    }
+
+    /**
+     * Saves the state which the events of the server change:
+     * the customer being served, whether it rests, its queue and its random streams.
+     * @param saved     A SavedState of any server of the simulation to be reused, or null.
+     * @return          The saved state, to be restored by restoreState.
+     */
+    SavedState saveState(SavedState saved) {
+        if (saved == null) {
+            saved = new SavedState(rng.copy());
+        } else {
+            saved.rng.reset(rng);
+        }
+        saved.servingCustomer = servingCustomer;
+        saved.isResting = isResting;
+        int size = customerQueue.size();
+        if (saved.queue.length < size) {
+            saved.queue = new Customer[Math.max(size, 2 * saved.queue.length)];
+        }
+        int i = 0;
+        for (Customer c : customerQueue) {
+            saved.queue[i++] = c;
+        }
+        if (size < saved.size) {
+            // Customers of the state saved before are not kept alive.
+            Arrays.fill(saved.queue, size, saved.size, null);
+        }
+        saved.size = size;
+        return saved;
+    }
+
+    /**
+     * Rolls the server back to a saved state. The shared queue of self-checkout servers
+     * is rolled back with each of them.
+     * @param saved     A state of this server returned by saveState.
+     */
+    void restoreState(SavedState saved) {
+        this.servingCustomer = saved.servingCustomer;
+        this.isResting = saved.isResting;
+        this.customerQueue.clear();
+        for (int i = 0; i < saved.size; i++) {
+            this.customerQueue.add(saved.queue[i]);
+        }
+        this.rng.reset(saved.rng);
+        changed();
+    }
+
+    /**
+     * The state of a server saved before one of its events, kept until the event can no longer be rolled back.
+     * It is overwritten when the state of a later event is saved into it.
+     */
+    static final class SavedState {
+        private Customer servingCustomer;
+        private boolean isResting;
+        private Customer[] queue = new Customer[0];
+        private int size = 0;
+        private final RandomGenerator rng;
+
+        private SavedState(RandomGenerator rng) {
+            this.rng = rng;
+        }
+    }
+
+    int getId() {
+        return this.id;
+    }
+
+    double getPr() {
+        return this.Pr;
+    }
+
+    /**
+     * Creates a human server which draws from the random streams of the same simulation as this server.
+     * @param id        The id of the new server.
+     * @param maxQLen   The maximum queue length of the new server.
+     * @param Pr        The resting probability of the new server.
+     * @return          The new human server.
+     */
+    Server createHumanServer(int id, int maxQLen, double Pr) {
+        return createHumanServer(id, maxQLen, rng.forServer(id), Pr);
+    }
+
+    /**
+     * Changes the maximum queue length and the resting probability of the server.
+     * Customers already queued beyond the new maximum stay in the queue.
+     * Its ServerIndex is not notified, so the server must be attached to a new one afterwards.
+     * @param maxQLen   The new maximum queue length.
+     * @param Pr        The new resting probability, ignored by self-checkout servers.
+     */
+    void reconfigure(int maxQLen, double Pr) {
+        this.maxQLen = maxQLen;
+        if (!isSelfCheckout()) {
+            this.Pr = Pr;
+        }
+    }
+
+    /**
+     * Closes the server to new customers. It still serves the customer it is serving
+     * and those in its queue.
+     */
+    void close() {
+        this.closed = true;
+        changed();
+    }
+
+    boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * Attaches the ServerIndex which is notified whenever the state of the server changes.
+     * @param index     The ServerIndex of the zone the server belongs to.
+     * @param slot      The position of the server among the servers of its kind in the SystemState.
+     */
+    void attach(ServerIndex index, int slot) {
+        this.index = index;
+        this.slot = slot;
+    }
+
+    /**
+     * Returns the position of the server among the servers of its kind in its SystemState.
+     * @return  The position of the server.
+     */
+    int getSlot() {
+        return this.slot;
+    }
+
+    private void changed() {
+        if (index != null) {
+            index.update(this, slot);
+        }
     }
 
     public boolean isSelfCheckout() {
         return this.Pr == -1;
     }
 
+    boolean isServing() {
+        return this.servingCustomer != null;
+    }
+
+    boolean isResting() {
+        return this.isResting;
+    }
+
     /**
      * Check if the server can serve a customer immediately.
      * @return  true if can server and false otherwise.
      */
     public boolean canServe() {
-        return servingCustomer.isEmpty() && isResting == false;
+        return servingCustomer == null && isResting == false && !closed;
     }
 
     /**
@@ -99,7 +293,15 @@ public class Server {
         // Make sure to check serving availability before checking waiting availability.
         assert !canServe();
 
-        return customerQueue.size() < this.maxQLen;
+        return !closed && customerQueue.size() < this.maxQLen;
+    }
+
+    /**
+     * Returns the number of customers which can still be enqueued.
+     * @return      The maximum queue length minus the current queue length, or 0 if closed.
+     */
+    int queueingSpace() {
+        return closed ? 0 : this.maxQLen - customerQueue.size();
     }
 
     /**
@@ -113,16 +315,14 @@ public class Server {
     }
 
     /**
-     * Toggle the resting state of the server,
-     * and returns the calling server wrapped in an Optional.
-     * @return      This server wrapped as a Optional<Server>.
+     * Toggle the resting state of the server.
      */
-    public Optional<Server> toggleRest() {
-        // Only servers with positive Pr can rest.
-        assert Pr > 0;
+    public void toggleRest() {
+        // Only servers with positive Pr can rest, though a what-if variant may lower Pr during a rest.
+        assert Pr > 0 || isResting;
 
         this.isResting = (!this.isResting);
-        return Optional.of(this);
+        changed();
     }
 
     /**
@@ -141,22 +341,26 @@ public class Server {
     /**
      * Serve a customer if is available.
      * @param customer  The customer to be served;
-     * @return          The service time.
+     * @return          The recorded service time of the customer, if any, 
+     *                      and a random service time otherwise.
      */
     public double serveAndGetTime(Customer customer) {
         assert canServe();
 		
-        this.servingCustomer = Optional.of(customer);
-        return rng.genServiceTime();
+        this.servingCustomer = customer;
+        changed();
+        double recorded = customer.getServiceTime();
+        return Double.isNaN(recorded) ? rng.genServiceTime() : recorded;
     }
     
     /**
      * Remove current serving customer and get next customer if applicable.
-     * @return      An Optional customer to be next served.
+     * @return      The customer to be next served, or null if the queue is empty.
      */
-    public Optional<Customer> doneServingAndGetNext() {
+    public Customer doneServingAndGetNext() {
         // Get the next customer from the queue and update current serving customer.
-        this.servingCustomer = Optional.ofNullable(this.customerQueue.poll());
+        this.servingCustomer = this.customerQueue.poll();
+        changed();
         
 		return this.servingCustomer;
     }
@@ -169,8 +373,42 @@ public class Server {
         assert this.hasQueueingSpace();
 		
         this.customerQueue.add(customer);
+        if (customerQueue.size() > maxQLenSeen) {
+            maxQLenSeen = customerQueue.size();
+        }
+        changed();
     }
     
+    /**
+     * Returns the longest the queue of the server has been, for monitoring.
+     * @return  The maximum queue length seen so far.
+     */
+    int getMaxQLenSeen() {
+        return this.maxQLenSeen;
+    }
+
+    /**
+     * Returns the expected time a customer joining the server waits before it is served:
+     * the customers ahead of it times the mean service time, plus the mean rest period if resting.
+     * Service times and rest periods are exponential, so what remains of them has the same mean.
+     * @return  The expected workload, 0 if the server can serve immediately,
+     *              or infinity if it cannot take the customer.
+     */
+    double expectedWorkload() {
+        if (canServe()) {
+            return 0;
+        }
+        if (queueingSpace() <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double workload = (customerQueue.size() + ((servingCustomer != null) ? 1 : 0)) / rng.getServiceRate();
+        return isResting ? workload + 1 / rng.getRestingRate() : workload;
+    }
+
+    double getServiceRate() {
+        return rng.getServiceRate();
+    }
+
     public int currentQLen() {
         return this.customerQueue.size();
     }
@@ -0,0 +1,242 @@
+package cs2030.simulator;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * ServerIndex keeps the servers of a zone of a SystemState indexed by their state,
+ * so that servers can be selected without scanning all of them.
+ * It is updated by the servers themselves whenever their state changes.
+ * @author Wang Pei
+ */
+class ServerIndex {
+    /*
+     * A ServerIndex has
+     * (1) The human servers and self-checkout servers in order of selection,
+     *     and the positions of the first of them in the SystemState;
+     * (2) A bitset of human servers which can serve immediately;
+     * (3) A bitset of self-checkout servers which can serve immediately;
+     * (4) A segment tree over the human servers holding, for each subtree,
+     *     the server with the shortest queue (the first one on ties)
+     *     and the most queueing space left;
+     * (5) A segment tree over the expected workloads of the human servers holding, for each subtree,
+     *     the server with the least (the first one on ties), only built once it is first queried.
+     */
+    private final List<Server> humanServers;
+    private final List<Server> selfCheckouts;
+    private final int humanOffset;
+    private final int selfCheckoutOffset;
+    private final BitSet idleHumans;
+    private final BitSet idleSelfCheckouts;
+    private final int[] queueLengths;
+    private final int leaves;
+    private final int[] shortest;
+    private final int[] mostSpace;
+    private double[] workloads;
+    private int[] leastWorkload;
+
+    /**
+     * Constructs a ServerIndex from the current state of the given servers
+     * and attaches it to them.
+     * @param humanServers          The list of human servers.
+     * @param selfCheckouts         The list of self-checkout servers.
+     * @param humanOffset           The position of the first human server in the SystemState.
+     * @param selfCheckoutOffset    The position of the first self-checkout server in the SystemState.
+     */
+    ServerIndex(List<Server> humanServers, List<Server> selfCheckouts, int humanOffset, int selfCheckoutOffset) {
+        this.humanServers = humanServers;
+        this.selfCheckouts = selfCheckouts;
+        this.humanOffset = humanOffset;
+        this.selfCheckoutOffset = selfCheckoutOffset;
+        this.idleHumans = new BitSet(humanServers.size());
+        this.idleSelfCheckouts = new BitSet(selfCheckouts.size());
+        this.queueLengths = new int[humanServers.size()];
+
+        int n = 1;
+        while (n < humanServers.size()) {
+            n <<= 1;
+        }
+        this.leaves = n;
+        this.shortest = new int[2 * n];
+        this.mostSpace = new int[2 * n];
+        for (int i = 0; i < n; i++) {
+            shortest[n + i] = i;
+            mostSpace[n + i] = Integer.MIN_VALUE;
+        }
+
+        for (int i = 0; i < humanServers.size(); i++) {
+            Server s = humanServers.get(i);
+            s.attach(this, humanOffset + i);
+            idleHumans.set(i, s.canServe());
+            queueLengths[i] = queueLengthOf(s);
+            mostSpace[n + i] = s.queueingSpace();
+        }
+        for (int node = n - 1; node > 0; node--) {
+            pull(node);
+        }
+        for (int i = 0; i < selfCheckouts.size(); i++) {
+            Server s = selfCheckouts.get(i);
+            s.attach(this, selfCheckoutOffset + i);
+            idleSelfCheckouts.set(i, s.canServe());
+        }
+    }
+
+    /**
+     * Updates the index after the state of a server has changed.
+     * @param server    The changed server.
+     * @param position  The position of the server among servers of its kind in the SystemState.
+     */
+    void update(Server server, int position) {
+        if (server.isSelfCheckout()) {
+            idleSelfCheckouts.set(position - selfCheckoutOffset, server.canServe());
+            return;
+        }
+        int slot = position - humanOffset;
+        idleHumans.set(slot, server.canServe());
+        queueLengths[slot] = queueLengthOf(server);
+        int node = leaves + slot;
+        mostSpace[node] = server.queueingSpace();
+        for (node >>= 1; node > 0; node >>= 1) {
+            pull(node);
+        }
+        if (workloads != null) {
+            workloads[slot] = server.expectedWorkload();
+            for (node = (leaves + slot) >> 1; node > 0; node >>= 1) {
+                pullWorkload(node);
+            }
+        }
+    }
+
+    /**
+     * Returns the first human server, then the first self-checkout server, which can serve immediately.
+     * @return  The server, or null if there is none.
+     */
+    Server firstServable() {
+        int i = idleHumans.nextSetBit(0);
+        if (i >= 0) {
+            return humanServers.get(i);
+        }
+        i = idleSelfCheckouts.nextSetBit(0);
+        return (i >= 0) ? selfCheckouts.get(i) : null;
+    }
+
+    /**
+     * Returns the first self-checkout server which can serve immediately.
+     * @return  The server, or null if there is none.
+     */
+    Server firstServableSelfCheckout() {
+        int i = idleSelfCheckouts.nextSetBit(0);
+        return (i >= 0) ? selfCheckouts.get(i) : null;
+    }
+
+    int getHumanServerNumber() {
+        return humanServers.size();
+    }
+
+    Server humanAt(int i) {
+        return humanServers.get(i);
+    }
+
+    /**
+     * Returns the first human server at or after a position which can serve immediately
+     * or has queueing space.
+     * @param from  The position among the human servers of the zone to start from.
+     * @return      The server, or null if there is none.
+     */
+    Server firstAvailableHuman(int from) {
+        int idle = idleHumans.nextSetBit(from);
+        int waitable = firstWithSpace(1, 0, leaves, from);
+        if (idle < 0 && waitable < 0) {
+            return null;
+        }
+        return humanServers.get((idle < 0 || (waitable >= 0 && waitable < idle)) ? waitable : idle);
+    }
+
+    private int firstWithSpace(int node, int lo, int hi, int from) {
+        if (hi <= from || mostSpace[node] <= 0) {
+            return -1;
+        }
+        if (node >= leaves) {
+            return node - leaves;
+        }
+        int mid = (lo + hi) >>> 1;
+        int i = firstWithSpace(2 * node, lo, mid, from);
+        return (i >= 0) ? i : firstWithSpace(2 * node + 1, mid, hi, from);
+    }
+
+    /**
+     * Returns the human server with the least expected workload, the first one on ties.
+     * @return  The server, or null if no human server can take a customer.
+     */
+    Server leastWorkloadHuman() {
+        if (humanServers.isEmpty()) {
+            return null;
+        }
+        if (workloads == null) {
+            workloads = new double[humanServers.size()];
+            leastWorkload = new int[2 * leaves];
+            for (int i = 0; i < leaves; i++) {
+                leastWorkload[leaves + i] = i;
+            }
+            for (int i = 0; i < humanServers.size(); i++) {
+                workloads[i] = humanServers.get(i).expectedWorkload();
+            }
+            for (int node = leaves - 1; node > 0; node--) {
+                pullWorkload(node);
+            }
+        }
+        int i = leastWorkload[1];
+        return (workload(i) == Double.POSITIVE_INFINITY) ? null : humanServers.get(i);
+    }
+
+    /**
+     * Returns the first human server which has queueing space.
+     * @return  The server, or null if there is none.
+     */
+    Server firstWaitableHuman() {
+        if (humanServers.isEmpty() || mostSpace[1] <= 0) {
+            return null;
+        }
+        int node = 1;
+        while (node < leaves) {
+            node = (mostSpace[2 * node] > 0) ? 2 * node : 2 * node + 1;
+        }
+        return humanServers.get(node - leaves);
+    }
+
+    /**
+     * Returns the open human server with the shortest queue, the first one on ties.
+     * @return  The server, or a closed one if all are closed, or null if there are no human servers.
+     */
+    Server shortestQueueHuman() {
+        return humanServers.isEmpty() ? null : humanServers.get(shortest[1]);
+    }
+
+    /**
+     * Returns the queue length a human server is selected by; closed servers are never the shortest.
+     */
+    private static int queueLengthOf(Server server) {
+        return server.isClosed() ? Integer.MAX_VALUE : server.currentQLen();
+    }
+
+    private void pull(int node) {
+        int left = shortest[2 * node];
+        int right = shortest[2 * node + 1];
+        shortest[node] = (queueLength(right) < queueLength(left)) ? right : left;
+        mostSpace[node] = Math.max(mostSpace[2 * node], mostSpace[2 * node + 1]);
+    }
+
+    private void pullWorkload(int node) {
+        int left = leastWorkload[2 * node];
+        int right = leastWorkload[2 * node + 1];
+        leastWorkload[node] = (workload(right) < workload(left)) ? right : left;
+    }
+
+    private double workload(int i) {
+        return (i < workloads.length) ? workloads[i] : Double.POSITIVE_INFINITY;
+    }
+
+    private int queueLength(int i) {
+        return (i < queueLengths.length) ? queueLengths[i] : Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,287 @@
+package cs2030.simulator;
+
+/**
+ * SimulationMetrics collects metrics of a simulation beyond the customer Statistics,
+ * incrementally as events are processed and in constant memory per metric:
+ * per-server utilisation and rest-time fraction, time-averaged queue lengths,
+ * wait time percentiles and the balk rate of greedy and typical customers.
+ * Servers are numbered by their position: human servers first, then self-checkout servers.
+ * Metrics of a simulation resumed from a snapshot cover the time from the snapshot on,
+ * starting from the state of the servers and queues at the snapshot.
+ * @author Wang Pei
+ */
+public class SimulationMetrics {
+    /*
+     * SimulationMetrics contain
+     * (1) The number of human and self-checkout servers, and the zone of each self-checkout server;
+     * (2) For each server, whether it is busy or resting, since when, and for how long in total;
+     * (3) For each human queue and the shared queue of each zone, its length, since when, 
+     *     and its time integral;
+     * (4) Sketches of the wait time percentiles;
+     * (5) Arrival and leave counts of greedy and typical customers;
+     * (6) The time the metrics start from, and the time of the last processed event.
+     */
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final int humanNumber;
+    private final int selfCheckoutNumber;
+    private final int[] zoneOf;
+
+    private final boolean[] busy;
+    private final double[] busySince;
+    private final double[] busyTime;
+    private final boolean[] resting;
+    private final double[] restingSince;
+    private final double[] restTime;
+
+    private final int[] queueLength;
+    private final double[] queueSince;
+    private final double[] queueArea;
+
+    private final QuantileSketch[] waitTime;
+    private final long[] arrivals = new long[2];
+    private final long[] left = new long[2];
+    private final double start;
+    private double now;
+
+    /**
+     * Constructs empty metrics for the servers of a SystemState, starting at time 0.
+     * @param state     The SystemState of the simulation.
+     */
+    SimulationMetrics(SystemState state) {
+        this(state, 0);
+    }
+
+    /**
+     * Constructs empty metrics for the servers of a SystemState, starting at a given time
+     * with the servers busy, resting and queueing as they are in the SystemState.
+     * @param state     The SystemState of the simulation.
+     * @param start     The time the metrics start from.
+     */
+    SimulationMetrics(SystemState state, double start) {
+        this.humanNumber = state.getHumanServerNumber();
+        this.selfCheckoutNumber = state.getSelfCheckoutNumber();
+        this.zoneOf = new int[selfCheckoutNumber];
+        for (int i = 0; i < selfCheckoutNumber; i++) {
+            zoneOf[i] = state.zoneOf(state.serverAt(humanNumber + i));
+        }
+        int queues = humanNumber + state.getTopology().getZoneNumber();
+        int servers = humanNumber + selfCheckoutNumber;
+        this.busy = new boolean[servers];
+        this.busySince = new double[servers];
+        this.busyTime = new double[servers];
+        this.resting = new boolean[servers];
+        this.restingSince = new double[servers];
+        this.restTime = new double[servers];
+        this.queueLength = new int[queues];
+        this.queueSince = new double[queues];
+        this.queueArea = new double[queues];
+        this.waitTime = new QuantileSketch[PERCENTILES.length];
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            waitTime[i] = new QuantileSketch(PERCENTILES[i]);
+        }
+        this.start = start;
+        this.now = start;
+        for (int p = 0; p < servers; p++) {
+            Server s = state.serverAt(p);
+            int i = slotOf(s);
+            busy[i] = s.isServing();
+            busySince[i] = start;
+            resting[i] = s.isResting();
+            restingSince[i] = start;
+            int q = s.isSelfCheckout() ? humanNumber + zoneOf[s.getSlot()] : s.getSlot();
+            queueLength[q] = s.currentQLen();
+            queueSince[q] = start;
+        }
+    }
+
+    /**
+     * Updates the metrics with an event which has just been processed.
+     * @param event     The processed event.
+     */
+    void record(Event event) {
+        now = event.time;
+        switch (event.type) {
+            case ARRIVAL:
+                arrivals[classOf(event.customer)]++;
+                break;
+            case LEAVE:
+                left[classOf(event.customer)]++;
+                break;
+            case SERVE:
+                for (QuantileSketch sketch : waitTime) {
+                    sketch.add(event.customer.getWaitTime(event.time));
+                }
+                setBusy(event.server, true);
+                updateQueue(event.server);
+                break;
+            case DONE:
+                setBusy(event.server, false);
+                updateQueue(event.server);
+                break;
+            case REST:
+                setResting(event.server, true);
+                break;
+            case BACK:
+                setResting(event.server, false);
+                updateQueue(event.server);
+                break;
+            default:
+                updateQueue(event.server);
+                break;
+        }
+    }
+
+    private static int classOf(Customer customer) {
+        return customer.isGreedy() ? 1 : 0;
+    }
+
+    private int slotOf(Server server) {
+        return server.isSelfCheckout() ? humanNumber + server.getSlot() : server.getSlot();
+    }
+
+    private void setBusy(Server server, boolean isBusy) {
+        int i = slotOf(server);
+        if (busy[i]) {
+            busyTime[i] += now - busySince[i];
+        }
+        busy[i] = isBusy;
+        busySince[i] = now;
+    }
+
+    private void setResting(Server server, boolean isResting) {
+        int i = slotOf(server);
+        if (resting[i]) {
+            restTime[i] += now - restingSince[i];
+        }
+        resting[i] = isResting;
+        restingSince[i] = now;
+    }
+
+    private void updateQueue(Server server) {
+        int i = server.isSelfCheckout() ? humanNumber + zoneOf[server.getSlot()] : server.getSlot();
+        queueArea[i] += queueLength[i] * (now - queueSince[i]);
+        queueLength[i] = server.currentQLen();
+        queueSince[i] = now;
+    }
+
+    /**
+     * Returns the simulated time covered by the metrics.
+     * @return  The time from the start of the metrics to the last processed event.
+     */
+    public double getElapsedTime() {
+        return now - start;
+    }
+
+    public int getServerNumber() {
+        return humanNumber + selfCheckoutNumber;
+    }
+
+    /**
+     * Returns the fraction of time a server has spent serving customers.
+     * @param server    The position of the server.
+     * @return          The utilisation of the server.
+     */
+    public double getUtilisation(int server) {
+        double total = busyTime[server] + (busy[server] ? now - busySince[server] : 0);
+        return fraction(total);
+    }
+
+    /**
+     * Returns the fraction of time a server has spent resting.
+     * @param server    The position of the server.
+     * @return          The rest-time fraction of the server.
+     */
+    public double getRestFraction(int server) {
+        double total = restTime[server] + (resting[server] ? now - restingSince[server] : 0);
+        return fraction(total);
+    }
+
+    /**
+     * Returns the time-averaged length of the queue of a human server.
+     * @param server    The position of the human server.
+     * @return          The mean queue length.
+     */
+    public double getMeanQueueLength(int server) {
+        return meanQueueLength(server);
+    }
+
+    /**
+     * Returns the time-averaged length of the queue shared by the self-checkout servers.
+     * @return  The mean queue length, of the first zone if there are several.
+     */
+    public double getMeanSharedQueueLength() {
+        return meanQueueLength(humanNumber);
+    }
+
+    /**
+     * Returns the time-averaged length of the queue shared by the self-checkout servers of a zone.
+     * @param zone  The zone of the shared queue.
+     * @return      The mean queue length.
+     */
+    public double getMeanSharedQueueLength(int zone) {
+        return meanQueueLength(humanNumber + zone);
+    }
+
+    private double meanQueueLength(int i) {
+        return fraction(queueArea[i] + queueLength[i] * (now - queueSince[i]));
+    }
+
+    private double fraction(double total) {
+        return (now > start) ? total / (now - start) : 0;
+    }
+
+    /**
+     * Returns the estimated percentile of the wait time of served customers.
+     * @param p     The probability of the percentile: 0.5, 0.95 or 0.99.
+     * @return      The estimated percentile.
+     */
+    public double getWaitTimePercentile(double p) {
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            if (PERCENTILES[i] == p) {
+                return waitTime[i].get();
+            }
+        }
+        throw new IllegalArgumentException("Percentile " + p + " is not tracked");
+    }
+
+    /**
+     * Returns the fraction of arrived customers of a class who left without being served.
+     * @param greedy    true for greedy customers, false for typical customers.
+     * @return          The balk rate.
+     */
+    public double getBalkRate(boolean greedy) {
+        int c = greedy ? 1 : 0;
+        return (arrivals[c] == 0) ? 0 : (double) left[c] / arrivals[c];
+    }
+
+    public long getArrivals(boolean greedy) {
+        return arrivals[greedy ? 1 : 0];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < humanNumber + selfCheckoutNumber; i++) {
+            if (i < humanNumber) {
+                sb.append(String.format("server %d: utilisation %.3f, rest fraction %.3f, mean queue length %.3f%n",
+                            i + 1, getUtilisation(i), getRestFraction(i), getMeanQueueLength(i)));
+            } else {
+                sb.append(String.format("self-check %d: utilisation %.3f%n", i + 1, getUtilisation(i)));
+            }
+        }
+        int zones = queueLength.length - humanNumber;
+        if (selfCheckoutNumber > 0 && zones == 1) {
+            sb.append(String.format("shared queue: mean queue length %.3f%n", getMeanSharedQueueLength()));
+        } else if (selfCheckoutNumber > 0) {
+            for (int z = 0; z < zones; z++) {
+                sb.append(String.format("shared queue of zone %d: mean queue length %.3f%n", 
+                            z, getMeanSharedQueueLength(z)));
+            }
+        }
+        sb.append(String.format("wait time: p50 %.3f, p95 %.3f, p99 %.3f%n", 
+                    getWaitTimePercentile(0.5), getWaitTimePercentile(0.95), getWaitTimePercentile(0.99)));
+        sb.append(String.format("balk rate: greedy %.3f, typical %.3f", getBalkRate(true), getBalkRate(false)));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,299 @@
+package cs2030.simulator;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Frequency;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * SimulationMonitor instruments the event loop of a Simulator which runs with monitoring on.
+ * It sits in front of the EventSink, so it sees every processed event of sequential
+ * and partitioned runs alike, and only counts them; everything else is sampled on demand.
+ * While the Simulator runs, the monitor is registered as a SimulationMonitorMBean,
+ * and a Sample event is emitted every second into any Flight Recorder recording which enables it.
+ * @author Wang Pei
+ */
+class SimulationMonitor implements EventSink, SimulationMonitorMBean {
+    private static final EventType[] TYPES = EventType.values();
+    private static final AtomicInteger IDS = new AtomicInteger();
+
+    /*
+     * A SimulationMonitor has
+     * (1) The EventSink it passes events on to;
+     * (2) The FutureEventList and SystemState of the Simulator;
+     * (3) The number of processed events of each EventType and the time of the last one;
+     * (4) The wall time and allocated bytes when the run started, and at the previous Sample;
+     * (5) The name it is registered with, and the hook emitting Samples.
+     */
+    private final EventSink sink;
+    private final FutureEventList futureEvents;
+    private final SystemState state;
+
+    private final long[] counts = new long[TYPES.length];
+    private double time = 0;
+
+    private long startNanos;
+    private long startBytes;
+    private long sampleNanos;
+    private long sampleBytes;
+    private final long[] sampleCounts = new long[TYPES.length];
+    private double sampleTime;
+
+    private final ObjectName name;
+    private final Runnable hook = this::emitSample;
+
+    /**
+     * Constructs a SimulationMonitor for a Simulator.
+     * @param sink          The EventSink of the Simulator.
+     * @param futureEvents  The FutureEventList of the Simulator.
+     * @param state         The SystemState of the Simulator.
+     */
+    SimulationMonitor(EventSink sink, FutureEventList futureEvents, SystemState state) {
+        this.sink = sink;
+        this.futureEvents = futureEvents;
+        this.state = state;
+        try {
+            this.name = new ObjectName("cs2030.simulator:type=Simulator,id=" + IDS.incrementAndGet());
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void accept(Event event) {
+        counts[event.type.ordinal()]++;
+        time = event.time;
+        sink.accept(event);
+    }
+
+    @Override
+    public void complete(String statistics) {
+        sink.complete(statistics);
+    }
+
+    /**
+     * Registers the MBean and the Sample event as the run starts.
+     */
+    void start() {
+        startNanos = System.nanoTime();
+        startBytes = allocatedBytes();
+        sampleNanos = startNanos;
+        sampleBytes = startBytes;
+        System.arraycopy(counts, 0, sampleCounts, 0, counts.length);
+        sampleTime = time;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new StandardMBean(this, SimulationMonitorMBean.class), name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register " + name, e);
+        }
+        FlightRecorder.addPeriodicEvent(Sample.class, hook);
+    }
+
+    /**
+     * Unregisters the MBean and the Sample event once the run has ended.
+     */
+    void stop() {
+        FlightRecorder.removePeriodicEvent(hook);
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister " + name, e);
+        }
+    }
+
+    @Override
+    public String[] getEventTypes() {
+        String[] names = new String[TYPES.length];
+        for (int i = 0; i < TYPES.length; i++) {
+            names[i] = TYPES[i].name();
+        }
+        return names;
+    }
+
+    @Override
+    public long[] getEventCounts() {
+        return counts.clone();
+    }
+
+    @Override
+    public double[] getEventRates() {
+        double seconds = secondsSince(startNanos);
+        double[] rates = new double[TYPES.length];
+        for (int i = 0; i < TYPES.length; i++) {
+            rates[i] = counts[i] / seconds;
+        }
+        return rates;
+    }
+
+    @Override
+    public long getProcessedEvents() {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        return total;
+    }
+
+    @Override
+    public int getFutureEventListSize() {
+        return futureEvents.size();
+    }
+
+    @Override
+    public double getSimulatedTime() {
+        return time;
+    }
+
+    @Override
+    public double getSimulatedToWallTimeRatio() {
+        return time / secondsSince(startNanos);
+    }
+
+    @Override
+    public int[] getMaxQueueLengths() {
+        int servers = state.getHumanServerNumber() + state.getSelfCheckoutNumber();
+        int[] lengths = new int[servers];
+        for (int i = 0; i < servers; i++) {
+            lengths[i] = state.serverAt(i).getMaxQLenSeen();
+        }
+        return lengths;
+    }
+
+    @Override
+    public double getAllocationRate() {
+        long bytes = allocatedBytes();
+        return (bytes < 0) ? -1 : (bytes - startBytes) / secondsSince(startNanos);
+    }
+
+    private static double secondsSince(long nanos) {
+        return Math.max(System.nanoTime() - nanos, 1) / 1e9;
+    }
+
+    /**
+     * Returns the bytes allocated by all live threads of the JVM so far.
+     * @return  The allocated bytes, or -1 if the JVM does not measure them.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+        if (!sun.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : sun.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(bytes, 0);
+        }
+        return total;
+    }
+
+    /**
+     * Emits a Sample with the rates since the previous one. Called by the Flight Recorder
+     * once per period, and only while a recording enables Samples.
+     */
+    private void emitSample() {
+        Sample sample = new Sample();
+        long nanos = System.nanoTime();
+        double seconds = Math.max(nanos - sampleNanos, 1) / 1e9;
+        sample.arrivalRate = rate(EventType.ARRIVAL, seconds);
+        sample.serveRate = rate(EventType.SERVE, seconds);
+        sample.waitRate = rate(EventType.WAIT, seconds);
+        sample.leaveRate = rate(EventType.LEAVE, seconds);
+        sample.doneRate = rate(EventType.DONE, seconds);
+        sample.restRate = rate(EventType.REST, seconds);
+        sample.backRate = rate(EventType.BACK, seconds);
+        sample.futureEvents = futureEvents.size();
+        double now = time;
+        sample.simulatedTime = now;
+        sample.simulatedToWallTimeRatio = (now - sampleTime) / seconds;
+        int[] lengths = getMaxQueueLengths();
+        for (int i = 0; i < lengths.length; i++) {
+            if (lengths[i] > sample.maxQueueLength) {
+                sample.maxQueueLength = lengths[i];
+                sample.maxQueueServer = state.serverAt(i).getId();
+            }
+        }
+        long bytes = allocatedBytes();
+        sample.allocationRate = (bytes < 0) ? -1 : (long) ((bytes - sampleBytes) / seconds);
+        sample.commit();
+
+        sampleNanos = nanos;
+        sampleBytes = bytes;
+        sampleTime = now;
+    }
+
+    private double rate(EventType type, double seconds) {
+        int i = type.ordinal();
+        long count = counts[i];
+        double rate = (count - sampleCounts[i]) / seconds;
+        sampleCounts[i] = count;
+        return rate;
+    }
+
+    /**
+     * The periodic JFR event of a monitored Simulator.
+     */
+    @Name("cs2030.simulator.Sample")
+    @Label("Simulation Sample")
+    @Description("Progress of a monitored Simulator since the previous sample")
+    @Category("Simulation")
+    @Period("1 s")
+    @StackTrace(false)
+    static final class Sample extends jdk.jfr.Event {
+        @Label("Arrivals per Second")
+        double arrivalRate;
+
+        @Label("Serves per Second")
+        double serveRate;
+
+        @Label("Waits per Second")
+        double waitRate;
+
+        @Label("Leaves per Second")
+        double leaveRate;
+
+        @Label("Dones per Second")
+        double doneRate;
+
+        @Label("Rests per Second")
+        double restRate;
+
+        @Label("Backs per Second")
+        double backRate;
+
+        @Label("Future Events")
+        int futureEvents;
+
+        @Label("Simulated Time")
+        double simulatedTime;
+
+        @Label("Simulated to Wall Time Ratio")
+        double simulatedToWallTimeRatio;
+
+        @Label("Maximum Queue Length")
+        int maxQueueLength;
+
+        @Label("Server with the Maximum Queue Length")
+        int maxQueueServer;
+
+        @Label("Allocation Rate")
+        @DataAmount(DataAmount.BYTES)
+        @Frequency
+        long allocationRate;
+    }
+}
@@ -0,0 +1,57 @@
+package cs2030.simulator;
+
+/**
+ * The management interface of a running Simulator, registered with the platform MBeanServer
+ * as cs2030.simulator:type=Simulator,id=N while it runs with monitoring on.
+ * Values are read without synchronising with the event loop, so they may lag behind it slightly.
+ * @author Wang Pei
+ */
+public interface SimulationMonitorMBean {
+    /**
+     * Returns the names of the EventTypes, in the order of the counts and rates.
+     * @return  The names of the EventTypes.
+     */
+    String[] getEventTypes();
+
+    /**
+     * Returns the number of processed events of each EventType.
+     * @return  The counts, in the order of getEventTypes.
+     */
+    long[] getEventCounts();
+
+    /**
+     * Returns the number of processed events of each EventType per second of wall time
+     * since the run started.
+     * @return  The rates, in the order of getEventTypes.
+     */
+    double[] getEventRates();
+
+    long getProcessedEvents();
+
+    /**
+     * Returns the number of scheduled events of the sequential event loop.
+     * @return  The size of the FutureEventList.
+     */
+    int getFutureEventListSize();
+
+    double getSimulatedTime();
+
+    /**
+     * Returns the simulated time per second of wall time since the run started.
+     * @return  The ratio of simulated time to wall time.
+     */
+    double getSimulatedToWallTimeRatio();
+
+    /**
+     * Returns the longest queue every server has had, human servers first.
+     * The peak of a shared queue is kept by the self-checkout server customers were queued at.
+     * @return  The maximum queue lengths, in order of the servers.
+     */
+    int[] getMaxQueueLengths();
+
+    /**
+     * Returns the bytes allocated per second by all threads of the JVM since the run started.
+     * @return  The allocation rate, or -1 if the JVM does not measure allocations.
+     */
+    double getAllocationRate();
+}
@@ -0,0 +1,72 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A SimulationPrefix is a simulation run up to a point in time, from which any number of
+ * what-if variants can be forked and continued independently, even concurrently.
+ * The prefix is kept as an immutable snapshot in memory, holding the future events,
+ * the servers and their queues, the statistics, the pending arrivals and the position
+ * of the RandomGenerator; every fork restores its own copy of it.
+ * A variant which changes nothing continues with exactly the trace of the simulation.
+ * @author Wang Pei
+ */
+public final class SimulationPrefix {
+    /*
+     * A SimulationPrefix has
+     * (1) The snapshot of the simulation, which is never modified;
+     * (2) The time up to which the simulation has been run.
+     */
+    private final byte[] snapshot;
+    private final double time;
+
+    private SimulationPrefix(byte[] snapshot, double time) {
+        this.snapshot = snapshot;
+        this.time = time;
+    }
+
+    /**
+     * Runs a simulation until the given time and keeps it as a SimulationPrefix.
+     * The simulation itself may be continued afterwards, independently of the forks.
+     * @param simulator     The simulator, which must not be partitioned.
+     * @param time          The time before which all events are processed.
+     * @return              The SimulationPrefix.
+     */
+    public static SimulationPrefix runUntil(Simulator simulator, double time) {
+        simulator.runUntil(time);
+        try {
+            return new SimulationPrefix(Checkpoint.toBytes(simulator), time);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Forks a what-if variant of the simulation, whose trace starts with the first event
+     * at or after the time of the prefix. Its statistics include the customers of the prefix.
+     * @param whatIf    The changes of the variant.
+     * @param options   The SimulatorOptions of the variant;
+     *                      whether arrivals are generated lazily is decided by the prefix.
+     * @return          The Simulator of the variant.
+     */
+    public Simulator fork(WhatIf whatIf, SimulatorOptions options) {
+        try {
+            return Checkpoint.fromBytes(snapshot, options, whatIf);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the size of the snapshot every fork is restored from.
+     * @return  The number of bytes of the snapshot.
+     */
+    public int getSnapshotSize() {
+        return snapshot.length;
+    }
+}
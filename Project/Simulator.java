@@ -1,8 +1,8 @@
 package cs2030.simulator;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.Optional;
 import java.util.PriorityQueue;
 import java.util.Queue;
@@ -15,61 +15,337 @@ public class Simulator {
     /**
      * The simulator contains
      * (1) A SystemState;
-     * (2) A list of completed events;
-     * (3) A PriorityQueue of futureEvents;
+     * (2) An EventSink consuming completed events;
+     * (3) A FutureEventList of futureEvents;
+     * (4) An ArrivalSource scheduling arrivals which are generated lazily;
+     * (5) An EventPool recycling completed events;
+     * (6) SimulationMetrics updated with every processed event, if collected;
+     * (7) BatchMeans updated with every processed event, if collected;
+     * (8) The Checkpoint taking regular snapshots, if any, the number of processed events
+     *     and the time of the last one;
+     * (9) The PartitionedEngine running the simulation if its servers are partitioned;
+     * (10) The SimulationMonitor in front of the EventSink, if monitored.
      */
     private final SystemState state;
-    private final List<Event> completedEvents;
-    private final PriorityQueue<Event> futureEvents;
+    private final EventSink sink;
+    private final FutureEventList futureEvents;
+    private final ArrivalSource arrivals;
+    private final EventPool pool;
+    private final SimulationMetrics metrics;
+    private final BatchMeans batchMeans;
+    private final Checkpoint checkpoint;
+    private long processed = 0;
+    private double clock = 0;
+    private final PartitionedEngine engine;
+    private final SimulationMonitor monitor;
 	
 	/**
-     * Constructs a simulator with given initial conditions.
+     * Constructs a simulator with given initial conditions
+     * which streams its trace to the standard output.
      * @param initialEvents		The PriorityQueue of initially scheduled events. 
      * @param initialState      The initial SystemState of the simulator.
      * @return              	An initialized instance of Simulator.
      */
 	public Simulator(PriorityQueue<Event> initialEvents, SystemState initialState) {
+        this(initialEvents, initialState, EventSink.toStdout());
+    }
+
+    /**
+     * Constructs a simulator with given initial conditions and EventSink.
+     * @param initialEvents     The PriorityQueue of initially scheduled events. 
+     * @param initialState      The initial SystemState of the simulator.
+     * @param sink              The EventSink consuming completed events.
+     * @return                  An initialized instance of Simulator.
+     */
+    public Simulator(PriorityQueue<Event> initialEvents, SystemState initialState, EventSink sink) {
+        this(new HeapEventList(initialEvents), initialState, ArrivalSource.empty(), new EventPool(), sink, 
+                SimulatorOptions.defaults());
+    }
+
+    /**
+     * Constructs a simulator whose arrivals after the initial events are generated on the fly.
+     * @param initialEvents     The FutureEventList of initially scheduled events. 
+     * @param initialState      The initial SystemState of the simulator.
+     * @param arrivals          The ArrivalSource of arrivals yet to be scheduled.
+     * @param pool              The EventPool recycling completed events.
+     * @param sink              The EventSink consuming completed events.
+     * @param options           The SimulatorOptions deciding which statistics are collected.
+     */
+    Simulator(FutureEventList initialEvents, SystemState initialState, 
+            ArrivalSource arrivals, EventPool pool, EventSink sink, SimulatorOptions options) {
+        this(initialEvents, initialState, arrivals, pool, sink, options, 0);
+    }
+
+    /**
+     * Constructs a simulator whose statistics are collected from a given time on.
+     * @param clock     The time of the last event processed before the initial events, 0 if none.
+     */
+    private Simulator(FutureEventList initialEvents, SystemState initialState, ArrivalSource arrivals, 
+            EventPool pool, EventSink sink, SimulatorOptions options, double clock) {
+        this.clock = clock;
         this.futureEvents = initialEvents;
-        this.completedEvents = new ArrayList<>();
+        this.arrivals = arrivals;
+        this.pool = pool;
+        this.monitor = options.monitoring() ? new SimulationMonitor(sink, initialEvents, initialState) : null;
+        this.sink = (monitor != null) ? monitor : sink;
 		this.state = initialState;
+        initialState.setRouting(options.normalRouting(), options.greedyRouting());
+        this.metrics = options.metrics() ? new SimulationMetrics(initialState, clock) : null;
+        this.batchMeans = options.batchMeans(clock);
+        this.checkpoint = options.checkpoint();
+        if (options.partitions() > 1 
+                && (metrics != null || checkpoint != null 
+                    || options.randomMode() != RandomGenerator.Mode.SPLITTABLE
+                    || initialState.getTopology().getZoneNumber() > 1
+                    || !options.defaultRouting())) {
+            throw new IllegalArgumentException("Partitioned runs need the SPLITTABLE RandomGenerator, "
+                    + "a single zone and the default routing, without metrics or snapshots");
+        }
+        if (options.partitions() == 1) {
+            this.engine = null;
+        } else if (options.timeWarp()) {
+            this.engine = new TimeWarpEngine(options.partitions(), options.futureEventList(), initialState,
+                    initialEvents, arrivals, pool, this.sink, batchMeans);
+        } else {
+            this.engine = new ConservativeEngine(options.partitions(), options.futureEventList(), initialState,
+                    initialEvents, arrivals, pool, this.sink, batchMeans);
+        }
+    }
+
+    /**
+     * Restores a simulator written by save, changed as a what-if variant demands.
+     * @param in        The CheckpointReader of the snapshot.
+     * @param options   The SimulatorOptions of the restored simulator.
+     * @param whatIf    The changes of the variant, WhatIf.none() to restore the simulator as it was.
+     * @return          The restored Simulator.
+     */
+    static Simulator restore(CheckpointReader in, SimulatorOptions options, WhatIf whatIf) throws IOException {
+        long processed = in.readLong();
+        double clock = in.readDouble();
+        SystemState state = SystemState.restore(in);
+        ArrivalSource arrivals = ArrivalSource.restore(in);
+        EventPool pool = new EventPool();
+        FutureEventList events = options.futureEventList().create();
+        for (int n = in.readInt(); n > 0; n--) {
+            double time = in.readDouble();
+            EventType type = EventType.values()[in.readByte()];
+            Customer customer = in.readCustomer();
+            int server = in.readInt();
+            events.add(new Event().set(customer, (server < 0) ? null : state.serverAt(server), time, type));
+        }
+        if (whatIf != WhatIf.none()) {
+            // The restored events refer to the servers themselves, which the variant takes over.
+            state = state.reconfigure(whatIf);
+        }
+        Simulator simulator = new Simulator(events, state, arrivals, pool, options.sink(), options, clock);
+        simulator.processed = processed;
+        return simulator;
+    }
+
+    /**
+     * Writes the simulator to a snapshot. It must not be called while an event is being processed.
+     * @param out   The CheckpointWriter of the snapshot.
+     */
+    void save(CheckpointWriter out) throws IOException {
+        out.writeLong(processed);
+        out.writeDouble(clock);
+        state.save(out);
+        arrivals.save(out);
+        out.writeInt(futureEvents.size());
+        try {
+            futureEvents.forEach(e -> saveEvent(out, e));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void saveEvent(CheckpointWriter out, Event e) {
+        try {
+            out.writeDouble(e.time);
+            out.writeByte(e.type.ordinal());
+            out.writeCustomer(e.customer);
+            out.writeInt((e.server == null) ? -1 : state.positionOf(e.server));
+        } catch (IOException x) {
+            throw new UncheckedIOException(x);
+        }
     }
 	
 	/**
-	 * Runs the simulation and stores completed events 
+	 * Runs the simulation and passes completed events to the EventSink
 	 * until there are no more scheduled future events.
+	 * If the servers are partitioned, the partitions are simulated on parallel threads
+	 * by a ConservativeEngine, or a TimeWarpEngine if so chosen. Either synchronises
+	 * the partitions at every arrival, so the run is not expected to get faster with more partitions.
 	 */
     public void run() {
-        while(!futureEvents.isEmpty()) {
-            // Get the top priority event.
-            Event curr = futureEvents.poll();
+        runUntil(Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Runs the simulation until the next scheduled event is at or after the given time,
+     * after which it can be continued by run or runUntil, or forked by a SimulationPrefix.
+     * Partitioned runs cannot be stopped early.
+     * @param time  The time before which all events are processed.
+     */
+    public void runUntil(double time) {
+        if (engine != null && time != Double.POSITIVE_INFINITY) {
+            throw new IllegalStateException("Partitioned runs cannot be stopped before their end");
+        }
+        if (monitor == null) {
+            runEvents(time);
+            return;
+        }
+        monitor.start();
+        try {
+            runEvents(time);
+        } finally {
+            monitor.stop();
+        }
+    }
+
+    private void runEvents(double until) {
+        if (engine != null) {
+            processed += engine.run();
+            return;
+        }
+        // Peeking is only needed when the run stops early.
+        boolean bounded = until != Double.POSITIVE_INFINITY;
+        // The event handed over by the previous one, which is processed without touching the FutureEventList.
+        Event curr = null;
+        while (curr != null || (!futureEvents.isEmpty() && (!bounded || futureEvents.peek().time < until))) {
+            // Get the top priority event, unless one has been handed over.
+            if (curr == null) {
+                curr = futureEvents.poll();
+            }
 
             // Get the next event.
-            Optional<Event> next = curr.getNextEvent(this.state);
+            Event next = curr.getNextEvent(this.state, pool);
+
+            if (metrics != null) {
+                metrics.record(curr);
+            }
+            if (batchMeans != null) {
+                batchMeans.record(curr);
+            }
+
+            // Each arrival schedules the arrival of its successor, if generated lazily.
+            Event arrival = (curr.getType() == EventType.ARRIVAL) ? arrivals.next(pool) : null;
 
-            // Enqueue the next event if present.
-            next.ifPresent(e -> futureEvents.add(e));
+            // A next event at the same time which precedes all scheduled events is processed right away,
+            // e.g. the serving of a queued customer once the previous one is done; others are enqueued.
+            double time = curr.time;
+            boolean handOver = next != null && next.time == time 
+                && (arrival == null || next.compareTo(arrival) < 0)
+                && (futureEvents.isEmpty() || next.compareTo(futureEvents.peek()) < 0);
+            if (next != null && !handOver) {
+                futureEvents.add(next);
+            }
+            if (arrival != null) {
+                futureEvents.add(arrival);
+            }
             
-            // Add current event into completed events; rest and back events will not be shown in simulation results.
-            if (curr.getType() != EventType.REST && curr.getType() != EventType.BACK) {
-                completedEvents.add(curr);
-			}
+            // Pass current event to the sink; the sink decides which events are shown.
+            sink.accept(curr);
+
+            // The sink does not keep the event, so it can be recycled.
+            pool.release(curr);
+            curr = handOver ? next : null;
+
+            // Take a snapshot between events once one is due, with the handed over event scheduled.
+            processed++;
+            clock = time;
+            if (checkpoint != null && checkpoint.isDue(processed, time)) {
+                if (curr != null) {
+                    futureEvents.add(curr);
+                    curr = null;
+                }
+                try {
+                    checkpoint.take(this);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        // The latest snapshot is written in the background; it is complete once the run returns.
+        if (checkpoint != null) {
+            try {
+                checkpoint.finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         }
     }
+
+    /**
+     * Writes a snapshot of the simulation to a file, from which it can be resumed
+     * with Checkpoint.resume. It must not be called while the simulation is running.
+     * @param path  The file of the snapshot.
+     * @throws IOException  If the snapshot cannot be written.
+     */
+    public void checkpoint(Path path) throws IOException {
+        Checkpoint.write(this, path);
+    }
     
     /** 
 	 * Encapsulates the printing of result into a callable method.
+     * The trace has already been streamed during the run, 
+     * so only the statistics are left to be written.
      */
     public void printResult() {
-        System.out.println(this.toString());
+        sink.complete(state.getStatistics().toString());
+    }
+
+    /**
+     * Returns the customer statistics of the simulation.
+     * @return  The Statistics of the simulation.
+     */
+    public Statistics getStatistics() {
+        return state.getStatistics();
+    }
+
+    /**
+     * Returns the metrics of the simulation, which are up to date with the processed events.
+     * @return  The SimulationMetrics of the simulation, 
+     *              or an empty Optional if they are not collected.
+     */
+    public Optional<SimulationMetrics> getMetrics() {
+        return Optional.ofNullable(metrics);
+    }
+
+    /**
+     * Returns the monitor of the event loop, which can be read while the simulation runs.
+     * @return  The SimulationMonitorMBean of the simulation, 
+     *              or an empty Optional if it is not monitored.
+     */
+    public Optional<SimulationMonitorMBean> getMonitor() {
+        return Optional.ofNullable(monitor);
+    }
+
+    /**
+     * Returns the batch means of the simulation, which are up to date with the processed events.
+     * @return  The BatchMeans of the simulation, 
+     *              or an empty Optional if they are not collected.
+     */
+    public Optional<BatchMeans> getBatchMeans() {
+        return Optional.ofNullable(batchMeans);
     }
 
+    /**
+     * Returns the number of events processed, including those processed before a snapshot was resumed.
+     * @return  The number of processed events.
+     */
+    public long getProcessedEvents() {
+        return processed;
+    }
+
+    /**
+     * Returns the statistics summary of the simulation.
+     * The trace is not kept in memory and is only available through the EventSink.
+     * @return  The statistics summary.
+     */
     @Override
     public String toString() {
-        String s = "";
-        for (Event e : completedEvents) {
-            s += e + "\n";
-        }
-        s += Customer.statistics();
-        return s;
+        return state.getStatistics().toString();
     }
 }
@@ -0,0 +1,344 @@
+package cs2030.simulator;
+
+import java.nio.file.Path;
+
+/**
+ * The immutable SimulatorOptions class collects the optional settings of a simulation.
+ * @author Wang Pei
+ */
+public final class SimulatorOptions {
+    /*
+     * SimulatorOptions contain
+     * (1) The EventSink consuming completed events;
+     * (2) A boolean value denoting if arrivals are generated lazily;
+     * (3) The kind of FutureEventList scheduling the events;
+     * (4) A boolean value denoting if SimulationMetrics are collected;
+     * (5) The unit, warm-up and batch length of BatchMeans, if collected;
+     * (6) The file, unit and interval of regular snapshots, if taken;
+     * (7) The file of recorded customers to be replayed, if any;
+     * (8) The mode of the RandomGenerator;
+     * (9) The number of partitions of the servers simulated in parallel;
+     * (10) A boolean value denoting if the partitions are simulated optimistically;
+     * (11) The Topology of the zones of the servers;
+     * (12) A boolean value denoting if the event loop is monitored;
+     * (13) The RoutingPolicy of normal customers and that of greedy customers.
+     * The fields are only assigned on a fresh copy inside the with methods.
+     */
+    private EventSink sink = null;
+    private boolean lazyArrivals = false;
+    private FutureEventList.Kind futureEventList = FutureEventList.Kind.HEAP;
+    private boolean metrics = false;
+    private BatchMeans.Unit batchUnit = null;
+    private double warmUp = 0;
+    private double batchLength = 0;
+    private Path checkpointPath = null;
+    private Checkpoint.Unit checkpointUnit = null;
+    private double checkpointInterval = 0;
+    private Path arrivalTrace = null;
+    private RandomGenerator.Mode randomMode = RandomGenerator.Mode.COMPAT;
+    private int partitions = 1;
+    private boolean timeWarp = false;
+    private Topology topology = Topology.single();
+    private boolean monitoring = false;
+    private RoutingPolicy normalRouting = RoutingPolicy.firstFit();
+    private RoutingPolicy greedyRouting = RoutingPolicy.shortestQueue();
+
+    private SimulatorOptions() {
+    }
+
+    private SimulatorOptions copy() {
+        SimulatorOptions copy = new SimulatorOptions();
+        copy.sink = this.sink;
+        copy.lazyArrivals = this.lazyArrivals;
+        copy.futureEventList = this.futureEventList;
+        copy.metrics = this.metrics;
+        copy.batchUnit = this.batchUnit;
+        copy.warmUp = this.warmUp;
+        copy.batchLength = this.batchLength;
+        copy.checkpointPath = this.checkpointPath;
+        copy.checkpointUnit = this.checkpointUnit;
+        copy.checkpointInterval = this.checkpointInterval;
+        copy.arrivalTrace = this.arrivalTrace;
+        copy.randomMode = this.randomMode;
+        copy.partitions = this.partitions;
+        copy.timeWarp = this.timeWarp;
+        copy.topology = this.topology;
+        copy.monitoring = this.monitoring;
+        copy.normalRouting = this.normalRouting;
+        copy.greedyRouting = this.greedyRouting;
+        return copy;
+    }
+
+    /**
+     * Returns the default options: the trace is streamed to the standard output,
+     * all arrivals are generated up front, events are kept in a binary heap,
+     * random numbers are drawn as they always were, all servers form a single zone,
+     * all events are processed by one thread,
+     * neither metrics nor batch means are collected and no snapshots are taken.
+     * @return  The default SimulatorOptions.
+     */
+    public static SimulatorOptions defaults() {
+        return new SimulatorOptions();
+    }
+
+    /**
+     * Returns a copy of the options with the given EventSink.
+     * @param sink  The EventSink consuming completed events.
+     * @return      The updated SimulatorOptions.
+     */
+    public SimulatorOptions withSink(EventSink sink) {
+        SimulatorOptions copy = copy();
+        copy.sink = sink;
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the options with lazy arrival generation switched on or off.
+     * Either way only the next arrival is scheduled, and each arrival schedules its successor.
+     * When off, all customers are generated up front into a compact CustomerTable;
+     * when on, each is generated as its predecessor arrives, so memory no longer grows 
+     * with the number of customers at all.
+     * @param lazyArrivals  true if arrivals are generated lazily.
+     * @return              The updated SimulatorOptions.
+     */
+    public SimulatorOptions withLazyArrivals(boolean lazyArrivals) {
+        SimulatorOptions copy = copy();
+        copy.lazyArrivals = lazyArrivals;
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the options with the given kind of FutureEventList.
+     * @param futureEventList   The kind of FutureEventList scheduling the events.
+     * @return                  The updated SimulatorOptions.
+     */
+    public SimulatorOptions withFutureEventList(FutureEventList.Kind futureEventList) {
+        SimulatorOptions copy = copy();
+        copy.futureEventList = futureEventList;
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the options with the collection of SimulationMetrics switched on or off.
+     * @param metrics   true if SimulationMetrics are collected.
+     * @return          The updated SimulatorOptions.
+     */
+    public SimulatorOptions withMetrics(boolean metrics) {
+        SimulatorOptions copy = copy();
+        copy.metrics = metrics;
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the options which collect BatchMeans: 
+     * after a warm-up period, statistics are kept per batch.
+     * @param unit          The unit of the warm-up period and the batches.
+     * @param warmUp        The length of the warm-up period.
+     * @param batchLength   The length of each batch.
+     * @return              The updated SimulatorOptions.
+     */
+    public SimulatorOptions withBatchMeans(BatchMeans.Unit unit, double warmUp, double batchLength) {
+        SimulatorOptions copy = copy();
+        copy.batchUnit = unit;
+        copy.warmUp = warmUp;
+        copy.batchLength = batchLength;
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the options which take a snapshot of the simulation at regular intervals,
+     * each replacing the previous one in the given file.
+     * @param path      The file the latest snapshot is kept in.
+     * @param unit      The unit of the interval between snapshots.
+     * @param interval  The number of events or the simulated time between snapshots.
+     * @return          The updated SimulatorOptions.
+     */
+    public SimulatorOptions withCheckpoints(Path path, Checkpoint.Unit unit, double interval) {
+        SimulatorOptions copy = copy();
+        copy.checkpointPath = path;
+        copy.checkpointUnit = unit;
+        copy.checkpointInterval = interval;
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the options which replay recorded customers from a trace file
+     * instead of generating arrivals and service times; see TraceArrivalSource for its format.
+     * Recorded customers are always scheduled one at a time, in order of arrival,
+     * and at most the given number of customers of the simulation, or all if it is 0, are replayed.
+     * @param path  The path of the trace file, or null to generate arrivals.
+     * @return      The updated SimulatorOptions.
+     */
+    public SimulatorOptions withArrivalTrace(Path path) {
+        SimulatorOptions copy = copy();
+        copy.arrivalTrace = path;
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the options with the given mode of RandomGenerator.
+     * @param mode  The mode of the RandomGenerator; COMPAT reproduces earlier simulations.
+     * @return      The updated SimulatorOptions.
+     */
+    public SimulatorOptions withRandomGenerator(RandomGenerator.Mode mode) {
+        SimulatorOptions copy = copy();
+        copy.randomMode = mode;
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the options which split the servers into the given number of partitions,
+     * simulated in parallel as logical processes by a ConservativeEngine. The partitions meet
+     * at every arrival, so only the events between two arrivals are simulated in parallel.
+     * The self-checkout servers, which share their queue, always form one more partition.
+     * The simulation is the same as with a single partition, which requires the SPLITTABLE
+     * RandomGenerator; SimulationMetrics and snapshots are not supported by partitioned runs.
+     * @param partitions    The number of partitions of the human servers, 1 to run sequentially.
+     * @return              The updated SimulatorOptions.
+     */
+    public SimulatorOptions withPartitions(int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Invalid number of partitions " + partitions);
+        }
+        SimulatorOptions copy = copy();
+        copy.partitions = partitions;
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the options which simulate the partitions optimistically,
+     * with a TimeWarpEngine instead of a ConservativeEngine: every partition runs ahead
+     * on a thread of its own and rolls back when an arrival is routed to it.
+     * The simulation is the same either way, but every routed arrival costs a rollback,
+     * so it is meant for experiments rather than for speed. Only partitioned runs are affected.
+     * @param timeWarp  A boolean value denoting if the partitions are simulated optimistically.
+     * @return          The updated SimulatorOptions.
+     */
+    public SimulatorOptions withTimeWarp(boolean timeWarp) {
+        SimulatorOptions copy = copy();
+        copy.timeWarp = timeWarp;
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the options which group the servers into the zones of a Topology.
+     * Customers are spread over the zones uniformly, and only consider the servers
+     * of the candidate zones of their own zone, so that an arrival only looks at those.
+     * Partitioned runs need a single zone.
+     * @param topology  The Topology of the zones.
+     * @return          The updated SimulatorOptions.
+     */
+    public SimulatorOptions withTopology(Topology topology) {
+        SimulatorOptions copy = copy();
+        copy.topology = topology;
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the options which monitor the event loop while the simulation runs:
+     * event counts and rates per EventType, the size of the FutureEventList,
+     * simulated against wall time, the longest queue of every server and the allocation rate
+     * are published through a SimulationMonitorMBean and periodic Flight Recorder events.
+     * Monitoring only counts events in the loop; everything else is sampled when read.
+     * @param monitoring    A boolean value denoting if the event loop is monitored.
+     * @return              The updated SimulatorOptions.
+     */
+    public SimulatorOptions withMonitoring(boolean monitoring) {
+        SimulatorOptions copy = copy();
+        copy.monitoring = monitoring;
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the options which route arriving customers by the given RoutingPolicies,
+     * chosen per class of customers. By default normal customers join the first server with space
+     * and greedy customers the shortest queue, after any server which can serve immediately.
+     * Routing is not part of snapshots: a resumed or forked simulation routes by its own options.
+     * Partitioned runs need the default routing.
+     * @param normalRouting     The RoutingPolicy of normal customers.
+     * @param greedyRouting     The RoutingPolicy of greedy customers.
+     * @return                  The updated SimulatorOptions.
+     */
+    public SimulatorOptions withRouting(RoutingPolicy normalRouting, RoutingPolicy greedyRouting) {
+        SimulatorOptions copy = copy();
+        copy.normalRouting = normalRouting;
+        copy.greedyRouting = greedyRouting;
+        return copy;
+    }
+
+    EventSink sink() {
+        // The standard output sink is only created when it is used.
+        return (sink == null) ? EventSink.toStdout() : sink;
+    }
+
+    boolean lazyArrivals() {
+        return lazyArrivals;
+    }
+
+    FutureEventList.Kind futureEventList() {
+        return futureEventList;
+    }
+
+    RandomGenerator.Mode randomMode() {
+        return randomMode;
+    }
+
+    int partitions() {
+        return partitions;
+    }
+
+    boolean timeWarp() {
+        return timeWarp;
+    }
+
+    Topology topology() {
+        return topology;
+    }
+
+    boolean monitoring() {
+        return monitoring;
+    }
+
+    RoutingPolicy normalRouting() {
+        return normalRouting;
+    }
+
+    RoutingPolicy greedyRouting() {
+        return greedyRouting;
+    }
+
+    /**
+     * Checks if arrivals are routed as by default, the only routing partitioned runs support.
+     * @return  true if both classes of customers use their default RoutingPolicy.
+     */
+    boolean defaultRouting() {
+        return normalRouting == RoutingPolicy.firstFit() && greedyRouting == RoutingPolicy.shortestQueue();
+    }
+
+    Path arrivalTrace() {
+        return arrivalTrace;
+    }
+
+    boolean metrics() {
+        return metrics;
+    }
+
+    /**
+     * Creates empty BatchMeans as configured, measured from a given time.
+     * @param start     The time the BatchMeans start from, 0 unless the simulation is resumed.
+     * @return          The BatchMeans, or null if they are not collected.
+     */
+    BatchMeans batchMeans(double start) {
+        return (batchUnit == null) ? null : new BatchMeans(batchUnit, warmUp, batchLength, start);
+    }
+
+    /**
+     * Creates a Checkpoint as configured.
+     * @return  The Checkpoint, or null if no snapshots are taken.
+     */
+    Checkpoint checkpoint() {
+        return (checkpointPath == null) 
+            ? null 
+            : new Checkpoint(checkpointPath, checkpointUnit, checkpointInterval);
+    }
+}
@@ -0,0 +1,80 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+
+/**
+ * The Statistics class collects the customer statistics of one simulation.
+ * @author Wang Pei
+ */
+public class Statistics {
+    /*
+     * Statistics contain
+     * (1) The total wait time of served customers;
+     * (2) The number of customers served;
+     * (3) The number of customers left.
+     */
+    private double waitTime = 0;
+    private int served = 0;
+    private int left = 0;
+
+    /**
+     * Records a customer being served.
+     * @param waitTime  The time the customer has waited.
+     */
+    void recordServed(double waitTime) {
+        this.served++;
+        this.waitTime += waitTime;
+    }
+
+    /**
+     * Records a customer leaving without being served.
+     */
+    void recordLeft() {
+        this.left++;
+    }
+
+    /**
+     * Writes the statistics to a snapshot.
+     * @param out   The CheckpointWriter of the snapshot.
+     */
+    void save(CheckpointWriter out) throws IOException {
+        out.writeDouble(waitTime);
+        out.writeInt(served);
+        out.writeInt(left);
+    }
+
+    /**
+     * Replaces the statistics with those written by save.
+     * @param in    The CheckpointReader of the snapshot.
+     */
+    void restore(CheckpointReader in) throws IOException {
+        this.waitTime = in.readDouble();
+        this.served = in.readInt();
+        this.left = in.readInt();
+    }
+
+    public double getAverageWaitTime() {
+        return (served == 0) ? 0.0 : waitTime / served;
+    }
+
+    public int getServed() {
+        return served;
+    }
+
+    public int getLeft() {
+        return left;
+    }
+
+    /**
+     * Returns the statistics summary.
+     * The returned string contains:
+     * (1) Average waiting time.
+     * (2) Number of customers served.
+     * (3) Number of customers left.
+     * @return  A String of statistics.
+     */
+    @Override
+    public String toString() {
+        return String.format("[%.3f %d %d]", getAverageWaitTime(), served, left);
+    }
+}
@@ -0,0 +1,141 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongFunction;
+
+/**
+ * SweepRunner simulates every point of a ParameterGrid, or every scenario of a list,
+ * on a work-stealing ForkJoinPool and streams one CSV row per point as soon as its run finishes.
+ * Rows therefore appear in order of completion, unless the pool has a parallelism of 1;
+ * the first column identifies the point.
+ * @author Wang Pei
+ */
+public class SweepRunner {
+    /*
+     * A SweepRunner has
+     * (1) The points to be swept and their number;
+     * (2) The SimulatorOptions of every run, whose trace is discarded;
+     * (3) The ForkJoinPool the runs are scheduled on.
+     */
+    static final String HEADER = "point,seed,servers,selfCheckouts,maxQLen,customers,"
+        + "lambda,mu,rho,Pr,Pg,averageWaitTime,served,left";
+
+    private final LongFunction<Scenario> points;
+    private final long size;
+    private final SimulatorOptions options;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a SweepRunner.
+     * @param grid      The ParameterGrid to be swept.
+     * @param options   The SimulatorOptions of every run.
+     * @param pool      The ForkJoinPool the runs are scheduled on.
+     */
+    public SweepRunner(ParameterGrid grid, SimulatorOptions options, ForkJoinPool pool) {
+        this(grid::get, grid.size(), options, pool);
+    }
+
+    /**
+     * Constructs a SweepRunner over a list of scenarios, e.g. read from a ScenarioFile.
+     * @param scenarios     The scenarios to be run; the index of each is its point.
+     * @param options       The SimulatorOptions of every run.
+     * @param pool          The ForkJoinPool the runs are scheduled on.
+     */
+    public SweepRunner(List<Scenario> scenarios, SimulatorOptions options, ForkJoinPool pool) {
+        this(i -> scenarios.get((int) i), scenarios.size(), options, pool);
+    }
+
+    private SweepRunner(LongFunction<Scenario> points, long size, SimulatorOptions options, ForkJoinPool pool) {
+        this.points = points;
+        this.size = size;
+        this.options = options.withSink(EventSink.discard());
+        this.pool = pool;
+    }
+
+    /**
+     * Constructs a SweepRunner on the common pool, with arrivals generated lazily.
+     * @param grid  The ParameterGrid to be swept.
+     */
+    public SweepRunner(ParameterGrid grid) {
+        this(grid, SimulatorOptions.defaults().withLazyArrivals(true), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a SweepRunner over a list of scenarios on the common pool, 
+     * with arrivals generated lazily.
+     * @param scenarios     The scenarios to be run.
+     */
+    public SweepRunner(List<Scenario> scenarios) {
+        this(scenarios, SimulatorOptions.defaults().withLazyArrivals(true), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs every point and writes the CSV header and rows to the given writer,
+     * flushing after each row.
+     * @param out   The writer of the CSV output.
+     */
+    public void run(Writer out) {
+        write(out, HEADER);
+        pool.invoke(new Points(out, 0, size));
+    }
+
+    /**
+     * Formats the CSV row of a grid point.
+     * @param point         The index of the grid point.
+     * @param scenario      The Scenario of the grid point.
+     * @param statistics    The Statistics of its run.
+     * @return              The CSV row.
+     */
+    static String row(long point, Scenario scenario, Statistics statistics) {
+        return point + "," + scenario.toString().replace(' ', ',') + ","
+            + statistics.getAverageWaitTime() + "," + statistics.getServed() + "," + statistics.getLeft();
+    }
+
+    private static void write(Writer out, String line) {
+        synchronized (out) {
+            try {
+                out.write(line);
+                out.write(System.lineSeparator());
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Runs the points of a range of indices, splitting it in halves
+     * so that idle workers can steal the other half.
+     */
+    private class Points extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Writer out;
+        private final long from;
+        private final long to;
+
+        Points(Writer out, long from, long to) {
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                Scenario scenario = points.apply(from);
+                Simulator simulator = scenario.init(options);
+                simulator.run();
+                write(out, row(from, scenario, simulator.getStatistics()));
+            } else if (to - from > 1) {
+                long mid = (from + to) >>> 1;
+                invokeAll(new Points(out, from, mid), new Points(out, mid, to));
+            }
+        }
+    }
+}
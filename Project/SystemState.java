@@ -1,13 +1,16 @@
 package cs2030.simulator;
 
-import java.util.Arrays;
-import java.util.LinkedList;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Queue;
 
 /**
- * The immutable SystemState class stores the state of customers and servers.
+ * The SystemState class stores the state of customers and servers,
+ * with the servers indexed by their state for fast selection.
+ * The servers are grouped into the zones of a Topology, each indexed on its own,
+ * and an arrival only selects among the servers of the candidate zones of its customer.
  * @author Wang Pei
  */
 public class SystemState {
@@ -16,17 +19,29 @@ public class SystemState {
      * (1) A list of customers,
      * (2) A list of human servers,
      * (3) A list of self-checkout servers,
-     * (4) A shared queue of all self-checkout servers,
-	 * (5) The maximum length of the shared queue.
+     * (4) The shared queue of the self-checkout servers of each zone,
+	 * (5) The maximum length of the shared queues,
+     * (6) The Topology of the zones, and the positions of the first servers of each zone,
+     * (7) A ServerIndex of the servers of each zone, kept up to date by the servers,
+     * (8) The customer Statistics of the simulation,
+     * (9) The RoutingPolicy of normal customers and that of greedy customers.
      */
     private final List<Customer> customers;
     private final List<Server> humanServers;
     private final List<Server> selfCheckouts;
-    private final Queue<Customer> sharedQueue;
+    private final List<Queue<Customer>> sharedQueues;
     private final int maxQLen;
+    private final Topology topology;
+    private final int[] allZones;
+    private final int[] firstHumans;
+    private final int[] firstSelfCheckouts;
+    private final ServerIndex[] indexes;
+    private final Statistics statistics;
+    private RoutingPolicy normalRouting = RoutingPolicy.firstFit();
+    private RoutingPolicy greedyRouting = RoutingPolicy.shortestQueue();
 
     /**
-     * constructs a SystemState
+     * constructs a SystemState of a single zone
      * @param customers			The list of customers.
      * @param humanServers   	The list of human servers.
 	 * @param selfCheckouts		The list of self-checkout servers.
@@ -35,27 +50,284 @@ public class SystemState {
      */
     public SystemState(List<Customer> customers, List<Server> humanServers, 
             List<Server> selfCheckouts, Queue<Customer> sharedQueue, int maxQLen) {
+        this(customers, humanServers, selfCheckouts, List.of(sharedQueue), maxQLen, Topology.single());
+    }
+
+    /**
+     * constructs a SystemState whose servers are spread over the zones of a Topology
+     * @param customers			The list of customers.
+     * @param humanServers   	The list of human servers.
+	 * @param selfCheckouts		The list of self-checkout servers.
+	 * @param sharedQueues		The shared queue of the self-checkout servers of each zone.
+	 * @param maxQLen			The maximum length of the shared queues.
+     * @param topology          The Topology of the zones.
+     */
+    SystemState(List<Customer> customers, List<Server> humanServers, List<Server> selfCheckouts, 
+            List<Queue<Customer>> sharedQueues, int maxQLen, Topology topology) {
+        this(customers, humanServers, selfCheckouts, sharedQueues, maxQLen, topology, new Statistics());
+    }
+
+    private SystemState(List<Customer> customers, List<Server> humanServers, List<Server> selfCheckouts, 
+            List<Queue<Customer>> sharedQueues, int maxQLen, Topology topology, Statistics statistics) {
         this.customers = customers;
         this.humanServers = humanServers;
         this.selfCheckouts = selfCheckouts;
-        this.sharedQueue = sharedQueue;
+        this.sharedQueues = sharedQueues;
         this.maxQLen = maxQLen;
+        this.topology = topology;
+        int zones = topology.getZoneNumber();
+        this.allZones = new int[zones];
+        this.firstHumans = new int[zones + 1];
+        this.firstSelfCheckouts = new int[zones + 1];
+        for (int z = 0; z <= zones; z++) {
+            firstHumans[z] = topology.firstOf(humanServers.size(), z);
+            firstSelfCheckouts[z] = topology.firstOf(selfCheckouts.size(), z);
+        }
+        this.indexes = new ServerIndex[zones];
+        for (int z = 0; z < zones; z++) {
+            allZones[z] = z;
+            indexes[z] = new ServerIndex(
+                    new ArrayList<>(humanServers.subList(firstHumans[z], firstHumans[z + 1])),
+                    new ArrayList<>(selfCheckouts.subList(firstSelfCheckouts[z], firstSelfCheckouts[z + 1])),
+                    firstHumans[z], firstSelfCheckouts[z]);
+        }
+        this.statistics = statistics;
     }
 
     /**
-     * Get the first server which can serve a customer immediately, if any.
-     * @return an Optional server that can serve the customer.
+     * Restores a SystemState written by save. 
+     * Customers which have not arrived yet are not part of the restored state.
+     * @param in    The CheckpointReader of the snapshot.
+     * @return      The restored SystemState.
      */
-    Optional<Server> getFirstServableServer() {
+    static SystemState restore(CheckpointReader in) throws IOException {
+        int maxQLen = in.readInt();
+        Topology topology = Topology.restore(in);
+        List<Queue<Customer>> sharedQueues = new ArrayList<>();
+        for (int z = 0; z < topology.getZoneNumber(); z++) {
+            Queue<Customer> sharedQueue = new CustomerQueue(maxQLen);
+            for (int n = in.readInt(); n > 0; n--) {
+                sharedQueue.add(in.readCustomer());
+            }
+            sharedQueues.add(sharedQueue);
+        }
+        List<Server> humanServers = new ArrayList<>();
+        for (int n = in.readInt(); n > 0; n--) {
+            humanServers.add(Server.restore(in, null));
+        }
+        List<Server> selfCheckouts = new ArrayList<>();
+        int selfCheckoutNumber = in.readInt();
+        for (int z = 0; z < topology.getZoneNumber(); z++) {
+            int zoneSize = topology.firstOf(selfCheckoutNumber, z + 1) - topology.firstOf(selfCheckoutNumber, z);
+            for (int n = zoneSize; n > 0; n--) {
+                selfCheckouts.add(Server.restore(in, sharedQueues.get(z)));
+            }
+        }
+        SystemState state = new SystemState(new ArrayList<>(), humanServers, selfCheckouts, 
+                sharedQueues, maxQLen, topology);
+        state.statistics.restore(in);
+        return state;
+    }
+
+    /**
+     * Returns the SystemState of a what-if variant of this one, which takes over its servers,
+     * queues and statistics; this SystemState must not be used afterwards.
+     * Human servers beyond the number the variant keeps open are closed, the last ones first,
+     * and missing ones are added after the last server, with fresh ids.
+     * @param whatIf    The changes of the variant.
+     * @return          The SystemState of the variant.
+     */
+    SystemState reconfigure(WhatIf whatIf) {
+        int newMaxQLen = whatIf.maxQLen(maxQLen);
+        List<Server> newHumanServers = new ArrayList<>(humanServers);
+        int open = 0;
+        int lastId = 0;
+        for (Server s : humanServers) {
+            s.reconfigure(newMaxQLen, whatIf.Pr(s.getPr()));
+            open += s.isClosed() ? 0 : 1;
+            lastId = Math.max(lastId, s.getId());
+        }
+        for (Server s : selfCheckouts) {
+            s.reconfigure(newMaxQLen, -1);
+            lastId = Math.max(lastId, s.getId());
+        }
+
+        int servers = whatIf.servers(open);
+        for (int i = humanServers.size() - 1; i >= 0 && open > servers; i--) {
+            if (!humanServers.get(i).isClosed()) {
+                humanServers.get(i).close();
+                open--;
+            }
+        }
+        if (open < servers) {
+            // New servers draw from the random streams of the simulation through an existing server.
+            Server existing = humanServers.isEmpty() 
+                ? selfCheckouts.stream().findFirst().orElseThrow(() -> 
+                        new IllegalArgumentException("A simulation without servers cannot add any"))
+                : humanServers.get(humanServers.size() - 1);
+            double Pr = whatIf.Pr(humanServers.isEmpty() ? 0 : existing.getPr());
+            for (; open < servers; open++) {
+                newHumanServers.add(existing.createHumanServer(++lastId, newMaxQLen, Pr));
+            }
+        }
+        return new SystemState(customers, newHumanServers, selfCheckouts, sharedQueues, 
+                newMaxQLen, topology, statistics);
+    }
+
+    /**
+     * Writes the servers, the Topology, the shared queues and the statistics to a snapshot.
+     * @param out   The CheckpointWriter of the snapshot.
+     */
+    void save(CheckpointWriter out) throws IOException {
+        out.writeInt(maxQLen);
+        topology.save(out);
+        for (Queue<Customer> sharedQueue : sharedQueues) {
+            out.writeInt(sharedQueue.size());
+            for (Customer c : sharedQueue) {
+                out.writeCustomer(c);
+            }
+        }
+        out.writeInt(humanServers.size());
         for (Server s : humanServers) {
-            if (s.canServe())
-                return Optional.of(s);
+            s.save(out);
         }
+        out.writeInt(selfCheckouts.size());
         for (Server s : selfCheckouts) {
-            if (s.canServe())
-                return Optional.of(s);
+            s.save(out);
+        }
+        statistics.save(out);
+    }
+
+    /**
+     * Returns the position of a server among all servers, human servers first.
+     * @param server    The server of this SystemState.
+     * @return          The position of the server.
+     */
+    int positionOf(Server server) {
+        return server.isSelfCheckout() 
+            ? humanServers.size() + server.getSlot()
+            : server.getSlot();
+    }
+
+    /**
+     * Returns the server at a position given by positionOf.
+     * @param position  The position of the server.
+     * @return          The server at the position.
+     */
+    Server serverAt(int position) {
+        return (position < humanServers.size())
+            ? humanServers.get(position)
+            : selfCheckouts.get(position - humanServers.size());
+    }
+
+    List<Server> getHumanServers() {
+        return this.humanServers;
+    }
+
+    List<Server> getSelfCheckouts() {
+        return this.selfCheckouts;
+    }
+
+    /**
+     * Returns the shared queue of the self-checkout servers of the first zone.
+     * @return  The shared queue, the only one with a single zone.
+     */
+    Queue<Customer> getSharedQueue() {
+        return this.sharedQueues.get(0);
+    }
+
+    Topology getTopology() {
+        return this.topology;
+    }
+
+    /**
+     * Returns the zone of a self-checkout server, whose shared queue it serves.
+     * @param server    A self-checkout server of this SystemState.
+     * @return          The zone of the server.
+     */
+    int zoneOf(Server server) {
+        int lo = 0;
+        int hi = topology.getZoneNumber() - 1;
+        // The last zone whose first self-checkout server is at or before the server.
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (firstSelfCheckouts[mid] <= server.getSlot()) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
         }
-        return Optional.empty();
+        return lo;
+    }
+
+    int getMaxQLen() {
+        return this.maxQLen;
+    }
+
+    int getHumanServerNumber() {
+        return this.humanServers.size();
+    }
+
+    int getSelfCheckoutNumber() {
+        return this.selfCheckouts.size();
+    }
+
+    Statistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Sets the RoutingPolicy of each class of customers.
+     * @param normalRouting     The RoutingPolicy of normal customers.
+     * @param greedyRouting     The RoutingPolicy of greedy customers.
+     */
+    void setRouting(RoutingPolicy normalRouting, RoutingPolicy greedyRouting) {
+        this.normalRouting = normalRouting;
+        this.greedyRouting = greedyRouting;
+    }
+
+    /**
+     * Selects the server an arriving customer goes to by the RoutingPolicy of its class.
+     * @param customer  The arriving customer.
+     * @return          The server, or null if the customer leaves.
+     */
+    Server route(Customer customer) {
+        return (customer.isGreedy() ? greedyRouting : normalRouting).select(this, customer);
+    }
+
+    /**
+     * Get the first server which can serve a customer immediately, if any.
+     * @return an Optional server that can serve the customer.
+     */
+    Optional<Server> getFirstServableServer() {
+        return Optional.ofNullable(findFirstServableServer());
+    }
+
+    /**
+     * Get the first server which can serve a customer immediately, if any, in any zone.
+     * @return the server that can serve the customer, or null if there is none.
+     */
+    Server findFirstServableServer() {
+        return findFirstServableServer(allZones);
+    }
+
+    /**
+     * Get the first server of the candidate zones of a customer which can serve it immediately.
+     * @param zone  The zone of the customer.
+     * @return      The server that can serve the customer, or null if there is none.
+     */
+    Server findFirstServableServer(int zone) {
+        return findFirstServableServer(topology.candidates(zone));
+    }
+
+    private Server findFirstServableServer(int[] zones) {
+        for (int z : zones) {
+            Server s = indexes[z].firstServable();
+            if (s != null) {
+                return s;
+            }
+        }
+        return null;
     }
 
     /**
@@ -63,16 +335,38 @@ public class SystemState {
      * @return The server which can enqueue a customer.
      */
     public Optional<Server> getFirstWaitableServer() {
-        for (Server s : humanServers) {
-            if (s.hasQueueingSpace()) {
-                return Optional.of(s);
+        return Optional.ofNullable(findFirstWaitableServer());
+    }
+
+    /**
+     * Gets the first server which has space to enqueue a customer, in any zone.
+     * @return The server which can enqueue a customer, or null if there is none.
+     */
+    Server findFirstWaitableServer() {
+        return findFirstWaitableServer(allZones);
+    }
+
+    /**
+     * Gets the first server of the candidate zones of a customer which has space to enqueue it.
+     * @param zone  The zone of the customer.
+     * @return      The server which can enqueue the customer, or null if there is none.
+     */
+    Server findFirstWaitableServer(int zone) {
+        return findFirstWaitableServer(topology.candidates(zone));
+    }
+
+    private Server findFirstWaitableServer(int[] zones) {
+        for (int z : zones) {
+            Server human = indexes[z].firstWaitableHuman();
+            if (human != null) {
+                return human;
+            }
+            if (firstSelfCheckouts[z] < firstSelfCheckouts[z + 1] && sharedQueues.get(z).size() < maxQLen) {
+                // The first self-sheckout server of the zone indicates availability of its shared queue.
+                return selfCheckouts.get(firstSelfCheckouts[z]);
             }
         }
-        if ((!selfCheckouts.isEmpty()) && sharedQueue.size() < maxQLen) {
-            // The first self-sheckout server will be used to indicate availability of the shared queue.
-			return Optional.of(selfCheckouts.get(0));
-		}
-        return Optional.empty();
+        return null;
     }
 
     /**
@@ -80,18 +374,183 @@ public class SystemState {
      * @return The waitable server with the least queueing size.
      */
     public Optional<Server> getShortestQueueServer() {
-		Server[] hs = humanServers.toArray(new Server[0]);
-		// Order servers ascendingly according to queueing length.
-		Arrays.sort(hs, (s1, s2) -> s1.currentQLen() - s2.currentQLen());
-		Server minServer = (hs.length > 0) ? hs[0] : null;
-		int minLen = (minServer != null) ? minServer.currentQLen() : maxQLen;
-		
-		if (!selfCheckouts.isEmpty() && sharedQueue.size() < minLen) {
-			minServer = selfCheckouts.get(0);
-			minLen = sharedQueue.size();
-		}
-		
-		// If all queues are full, returns empty optional.
-		return (minLen < maxQLen) ? Optional.ofNullable(minServer) : Optional.empty();
+        return Optional.ofNullable(findShortestQueueServer());
+    }
+
+    /**
+     * Gets the waitable server with the least number of queueing customers, in any zone.
+     * @return The waitable server with the least queueing size, or null if all queues are full.
+     */
+    Server findShortestQueueServer() {
+        return findShortestQueueServer(allZones);
+    }
+
+    /**
+     * Gets the waitable server of the candidate zones of a customer with the least number of queueing customers.
+     * @param zone  The zone of the customer.
+     * @return      The waitable server with the least queueing size, or null if all queues are full.
+     */
+    Server findShortestQueueServer(int zone) {
+        return findShortestQueueServer(topology.candidates(zone));
+    }
+
+    private Server findShortestQueueServer(int[] zones) {
+		// The first of the servers with the least queueing length; full queues are never the least.
+		Server minServer = null;
+		int minLen = maxQLen;
+        for (int z : zones) {
+            Server human = indexes[z].shortestQueueHuman();
+            if (human != null && !human.isClosed() && human.currentQLen() < minLen) {
+                minServer = human;
+                minLen = human.currentQLen();
+            }
+            int first = firstSelfCheckouts[z];
+            if (first < firstSelfCheckouts[z + 1] && sharedQueues.get(z).size() < minLen) {
+                minServer = selfCheckouts.get(first);
+                minLen = sharedQueues.get(z).size();
+            }
+        }
+		return minServer;
+    }
+
+    /**
+     * Gets the server of the candidate zones of a customer with the least expected workload,
+     * the first one on ties. Each zone is queried in logarithmic time.
+     * @param zone  The zone of the customer.
+     * @return      The server, or null if no server can take the customer.
+     */
+    Server findLeastWorkloadServer(int zone) {
+        Server minServer = null;
+        double minWorkload = Double.POSITIVE_INFINITY;
+        for (int z : topology.candidates(zone)) {
+            Server human = indexes[z].leastWorkloadHuman();
+            if (human != null && human.expectedWorkload() < minWorkload) {
+                minServer = human;
+                minWorkload = human.expectedWorkload();
+            }
+            if (bankWorkload(z) < minWorkload) {
+                minServer = bankTaker(z);
+                minWorkload = bankWorkload(z);
+            }
+        }
+        return minServer;
+    }
+
+    /**
+     * Gets the server with the least expected workload among a few members of the candidate zones
+     * of a customer, sampled with replacement; a member is a human server or the bank of
+     * self-checkout servers of a zone. The cost does not depend on the number of servers.
+     * @param zone      The zone of the customer.
+     * @param choices   The number of members sampled.
+     * @param seed      The seed the samples are derived from.
+     * @return          The server, or null if none of the sampled members can take the customer.
+     */
+    Server findLeastWorkloadOfChoices(int zone, int choices, long seed) {
+        int[] zones = topology.candidates(zone);
+        int members = 0;
+        for (int z : zones) {
+            members += membersOf(z);
+        }
+        Server minServer = null;
+        double minWorkload = Double.POSITIVE_INFINITY;
+        for (int i = 1; i <= choices && members > 0; i++) {
+            int member = Math.floorMod(XoshiroStream.mix(seed + i * 0x9E3779B97F4A7C15L), members);
+            int z = 0;
+            while (member >= membersOf(zones[z])) {
+                member -= membersOf(zones[z]);
+                z++;
+            }
+            int humans = indexes[zones[z]].getHumanServerNumber();
+            double workload = (member < humans)
+                ? indexes[zones[z]].humanAt(member).expectedWorkload()
+                : bankWorkload(zones[z]);
+            if (workload < minWorkload) {
+                minServer = (member < humans) ? indexes[zones[z]].humanAt(member) : bankTaker(zones[z]);
+                minWorkload = workload;
+            }
+        }
+        return minServer;
+    }
+
+    /**
+     * Gets the first server which can take a customer, starting at a position among the members
+     * of the candidate zones of the customer and wrapping around; a member is a human server
+     * or the bank of self-checkout servers of a zone, which follows the human servers of its zone.
+     * Each zone is queried in logarithmic time.
+     * @param zone      The zone of the customer.
+     * @param position  The position to start at, modulo the number of members.
+     * @return          The server, or null if no server can take the customer.
+     */
+    Server findRoundRobinServer(int zone, int position) {
+        int[] zones = topology.candidates(zone);
+        int members = 0;
+        for (int z : zones) {
+            members += membersOf(z);
+        }
+        if (members == 0) {
+            return null;
+        }
+        int from = Math.floorMod(position, members);
+        int start = 0;
+        while (from >= membersOf(zones[start])) {
+            from -= membersOf(zones[start]);
+            start++;
+        }
+        // The zone started at is visited again from its first member after all others.
+        for (int k = 0; k <= zones.length; k++) {
+            int z = zones[(start + k) % zones.length];
+            Server human = indexes[z].firstAvailableHuman((k == 0) ? from : 0);
+            if (human != null) {
+                return human;
+            }
+            Server bank = bankTaker(z);
+            if (bank != null) {
+                return bank;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of members of a zone: its human servers, and its bank of self-checkout servers if any.
+     */
+    private int membersOf(int z) {
+        return indexes[z].getHumanServerNumber() + ((firstSelfCheckouts[z] < firstSelfCheckouts[z + 1]) ? 1 : 0);
+    }
+
+    /**
+     * Returns the expected time a customer joining the bank of self-checkout servers of a zone
+     * waits before it is served: 0 if one of them is idle, or else the customers in the shared queue
+     * and the customer itself each take the mean service time divided among the busy servers.
+     */
+    private double bankWorkload(int z) {
+        int first = firstSelfCheckouts[z];
+        int servers = firstSelfCheckouts[z + 1] - first;
+        if (servers == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (indexes[z].firstServableSelfCheckout() != null) {
+            return 0;
+        }
+        int queued = sharedQueues.get(z).size();
+        return (queued < maxQLen)
+            ? (queued + 1) / (servers * selfCheckouts.get(first).getServiceRate())
+            : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the self-checkout server of a zone a customer joining its bank goes to:
+     * an idle one, or else the first one to queue at the shared queue if it has space.
+     */
+    private Server bankTaker(int z) {
+        int first = firstSelfCheckouts[z];
+        if (first == firstSelfCheckouts[z + 1]) {
+            return null;
+        }
+        Server idle = indexes[z].firstServableSelfCheckout();
+        if (idle != null) {
+            return idle;
+        }
+        return (sharedQueues.get(z).size() < maxQLen) ? selfCheckouts.get(first) : null;
     }
 }
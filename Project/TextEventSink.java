@@ -0,0 +1,72 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * TextEventSink streams the human readable trace of a simulation to a Writer.
+ * Lines are formatted into the buffer of a TraceFormatter, which is handed to the writer when full.
+ * Rest and back events are not shown in the trace.
+ * @author Wang Pei
+ */
+class TextEventSink implements EventSink {
+    /*
+     * A TextEventSink has
+     * (1) The writer the trace is written to;
+     * (2) A boolean value denoting if the writer is closed on completion;
+     * (3) The TraceFormatter holding the lines not yet written.
+     */
+    static final int BUFFER_SIZE = 1 << 16;
+    private static final int FLUSH_THRESHOLD = BUFFER_SIZE - 256;
+
+    private final Writer out;
+    private final boolean closeOnComplete;
+    private final TraceFormatter lines = new TraceFormatter(BUFFER_SIZE);
+
+    /**
+     * Constructs a TextEventSink.
+     * @param out               The (buffered) writer of the trace.
+     * @param closeOnComplete   true if the writer is closed after the statistics are written.
+     */
+    TextEventSink(Writer out, boolean closeOnComplete) {
+        this.out = out;
+        this.closeOnComplete = closeOnComplete;
+    }
+
+    @Override
+    public void accept(Event event) {
+        if (event.getType() == EventType.REST || event.getType() == EventType.BACK) {
+            return;
+        }
+        lines.appendEvent(event).append('\n');
+        if (lines.length() >= FLUSH_THRESHOLD) {
+            try {
+                flushLines();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void flushLines() throws IOException {
+        out.write(lines.buffer(), 0, lines.length());
+        lines.clear();
+    }
+
+    @Override
+    public void complete(String statistics) {
+        try {
+            flushLines();
+            out.write(statistics);
+            out.write(System.lineSeparator());
+            if (closeOnComplete) {
+                out.close();
+            } else {
+                out.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package cs2030.simulator;
+
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * TimeWarpEngine is a PartitionedEngine whose partitions are OptimisticProcesses,
+ * each running on a thread of its own. The engine announces arrivals up to LOOKAHEAD
+ * ahead of the one being routed; the partitions process their events speculatively
+ * past the announced arrivals and answer the routing queries at each of them.
+ * An arrival routed to a partition is a straggler there: the partition rolls back
+ * to the arrival and re-executes.
+ * The engine only waits for the partitions it queries, in order and as far as the routing
+ * needs them, so in practice for a partition still re-executing a straggler; the others
+ * keep running ahead.
+ * Stragglers only come from the engine, so the global virtual time is the earliest arrival
+ * not yet routed. Every COMMIT_INTERVAL arrivals the engine waits for all partitions to reach it,
+ * and the events before it are committed, passed on in merged order, and their history collected.
+ * <p>
+ * Every arrival routed to a partition still costs a rollback and a hand-over between threads
+ * on the critical path, and routing by first fit sends most arrivals to the partitions
+ * queried first. The engine is meant for experiments with optimistic synchronisation,
+ * not as a faster way to run a simulation.
+ * @author Wang Pei
+ */
+class TimeWarpEngine extends PartitionedEngine {
+    /** How many arrivals ahead of the one being routed are announced to the partitions. */
+    static final int LOOKAHEAD = 128;
+    /** How many arrivals are routed between two commits; at most LOOKAHEAD / 2 keep the answers in their ring. */
+    static final int COMMIT_INTERVAL = LOOKAHEAD / 2;
+    // Spinning only pays off when the other threads can run meanwhile.
+    static final int SPINS = (Runtime.getRuntime().availableProcessors() > 1) ? 1 << 12 : 0;
+
+    /*
+     * A TimeWarpEngine has
+     * (1) The Schedule of announced arrivals, and the arrival events themselves;
+     * (2) The threads of its partitions;
+     * (3) The arrival being routed, the first arrival whose window is not yet passed on,
+     *     and the number of arrival and leave events of the window of each arrival since.
+     */
+    private final Schedule schedule = new Schedule(2 * LOOKAHEAD);
+    private final Event[] announced = new Event[2 * LOOKAHEAD];
+    private Thread[] threads;
+    private long routing = 0;
+    private long committed = 0;
+    private final int[] windowEnds = new int[COMMIT_INTERVAL];
+
+    /**
+     * Constructs a TimeWarpEngine for the state and events of a Simulator.
+     * @see PartitionedEngine#PartitionedEngine(int, FutureEventList.Kind, SystemState,
+     *          FutureEventList, ArrivalSource, EventPool, EventSink, BatchMeans)
+     */
+    TimeWarpEngine(int partitions, FutureEventList.Kind kind, SystemState state,
+            FutureEventList futureEvents, ArrivalSource arrivals, EventPool pool,
+            EventSink sink, BatchMeans batchMeans) {
+        super(partitions, kind, state, futureEvents, arrivals, pool, sink, batchMeans);
+    }
+
+    @Override
+    LogicalProcess createProcess(List<Server> humanServers, List<Server> selfCheckouts,
+            Queue<Customer> sharedQueue, int maxQLen, FutureEventList events) {
+        return new OptimisticProcess(humanServers, selfCheckouts, sharedQueue, maxQLen, events, schedule);
+    }
+
+    @Override
+    long run() {
+        partition();
+        threads = new Thread[processes.length];
+        for (int p = 0; p < processes.length; p++) {
+            threads[p] = new Thread((OptimisticProcess) processes[p], "logical-process-" + (p + 1));
+            threads[p].setDaemon(true);
+            threads[p].start();
+        }
+        announce(0);
+        try {
+            for (; routing < schedule.announced(); routing++) {
+                if (routing - committed == COMMIT_INTERVAL) {
+                    commit();
+                }
+                // The window of the arrival holds the arrival and leave events routed before it.
+                windowEnds[(int) (routing - committed)] = window.size();
+                route(announced[(int) routing & (announced.length - 1)]);
+                announce(routing + 1);
+            }
+            commit();
+            schedule.routed = true;
+            wakeAll();
+            for (LogicalProcess lp : processes) {
+                OptimisticProcess op = (OptimisticProcess) lp;
+                await(op, -1);
+                op.openWindow(-1);
+            }
+            passWindow(processes, processes.length);
+            for (Thread t : threads) {
+                t.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while joining the logical processes", e);
+        } finally {
+            // Threads left behind by a failure are daemons, released once the arrivals are routed.
+            schedule.routed = true;
+            wakeAll();
+        }
+        return getPassedEvents();
+    }
+
+    /**
+     * Waits for all partitions to receive the routed arrivals and answer the last of them,
+     * so that the arrival being routed is the global virtual time, and passes on the events before it,
+     * arrival by arrival, as they would have been passed on had every arrival been routed
+     * once all partitions answered it.
+     */
+    private void commit() {
+        if (routing == committed) {
+            return;
+        }
+        for (LogicalProcess lp : processes) {
+            await((OptimisticProcess) lp, routing - 1);
+        }
+        int removed = 0;
+        for (long arrival = committed; arrival < routing; arrival++) {
+            int end = windowEnds[(int) (arrival - committed)] - removed;
+            for (LogicalProcess lp : processes) {
+                ((OptimisticProcess) lp).openWindow(arrival);
+            }
+            passWindow(processes, processes.length, end);
+            removed += end;
+        }
+        committed = routing;
+    }
+
+    @Override
+    LogicalProcess query(int p) {
+        OptimisticProcess op = (OptimisticProcess) processes[p];
+        await(op, routing);
+        op.select(routing);
+        return op;
+    }
+
+    /**
+     * Announces arrivals until LOOKAHEAD are announced ahead of the arrival to be routed next.
+     * @param next  The index of the arrival to be routed next.
+     */
+    private void announce(long next) {
+        long count = schedule.announced();
+        if (schedule.exhausted || count >= next + LOOKAHEAD) {
+            return;
+        }
+        while (count < next + LOOKAHEAD) {
+            Event arrival = nextArrival();
+            if (arrival == null) {
+                schedule.exhausted = true;
+                break;
+            }
+            int slot = (int) count & (announced.length - 1);
+            announced[slot] = arrival;
+            schedule.times[slot] = arrival.time;
+            count++;
+        }
+        schedule.announced = count;
+        wakeAll();
+    }
+
+    /**
+     * Waits until a partition has answered an arrival with every routed arrival received,
+     * or until it has finished if the arrival is -1.
+     */
+    private void await(OptimisticProcess op, long arrival) {
+        for (int spins = 0; (arrival < 0) ? !op.isFinished() : !op.hasAnswered(arrival); spins++) {
+            if (op.getFailure() != null) {
+                throw new IllegalStateException("A logical process failed", op.getFailure());
+            }
+            if (spins < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                // The partitions may outnumber the processors, and may be parked with messages pending.
+                wakeAll();
+                Thread.yield();
+            }
+        }
+    }
+
+    @Override
+    void route(Event arrival) {
+        super.route(arrival);
+        wakeAll();
+    }
+
+    private void wakeAll() {
+        for (int p = 0; p < threads.length; p++) {
+            ((OptimisticProcess) processes[p]).wake(threads[p]);
+        }
+    }
+
+    /**
+     * Schedule is the ring of arrival times announced to the OptimisticProcesses,
+     * with whether all arrivals have been announced, and all of them routed.
+     */
+    static final class Schedule {
+        private final double[] times;
+        private volatile long announced = 0;
+        private volatile boolean exhausted = false;
+        private volatile boolean routed = false;
+
+        private Schedule(int capacity) {
+            this.times = new double[capacity];
+        }
+
+        int capacity() {
+            return times.length;
+        }
+
+        long announced() {
+            return announced;
+        }
+
+        double time(long arrival) {
+            return times[(int) arrival & (times.length - 1)];
+        }
+
+        boolean isExhausted() {
+            return exhausted;
+        }
+
+        boolean isRouted() {
+            return routed;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A Topology groups the servers into zones, each with its own human servers
+ * and its own bank of self-checkout servers sharing a queue.
+ * Every customer belongs to a zone, and only considers the candidate zones of its zone,
+ * in order of preference, when it arrives; its own zone is usually the first of them.
+ * The servers of each kind are spread over the zones evenly, in order of their ids.
+ * @author Wang Pei
+ */
+public final class Topology {
+    private static final Topology SINGLE = new Topology(new int[][] {{0}});
+
+    /*
+     * A Topology has
+     * (1) The candidate zones of the customers of every zone, in order of preference.
+     */
+    private final int[][] candidates;
+
+    private Topology(int[][] candidates) {
+        this.candidates = candidates;
+    }
+
+    /**
+     * Returns the Topology of a single zone holding all servers.
+     * @return  The single-zone Topology.
+     */
+    public static Topology single() {
+        return SINGLE;
+    }
+
+    /**
+     * Returns a Topology of zones in a ring, whose customers consider their own zone
+     * and then the next zones along the ring.
+     * @param zones     The number of zones.
+     * @param reach     The number of following zones customers also consider, 0 to stay in their own.
+     * @return          The Topology.
+     */
+    public static Topology ring(int zones, int reach) {
+        if (zones < 1 || reach < 0 || reach >= zones) {
+            throw new IllegalArgumentException("Invalid ring of " + zones + " zones with reach " + reach);
+        }
+        int[][] candidates = new int[zones][reach + 1];
+        for (int z = 0; z < zones; z++) {
+            for (int k = 0; k <= reach; k++) {
+                candidates[z][k] = (z + k) % zones;
+            }
+        }
+        return new Topology(candidates);
+    }
+
+    /**
+     * Returns a Topology with the given candidate zones.
+     * @param candidates    The candidate zones of the customers of every zone, in order of preference.
+     * @return              The Topology.
+     */
+    public static Topology of(int[][] candidates) {
+        if (candidates.length == 0) {
+            throw new IllegalArgumentException("A topology needs at least one zone");
+        }
+        int[][] copy = new int[candidates.length][];
+        for (int z = 0; z < candidates.length; z++) {
+            if (candidates[z].length == 0) {
+                throw new IllegalArgumentException("Zone " + z + " has no candidate zones");
+            }
+            for (int c : candidates[z]) {
+                if (c < 0 || c >= candidates.length) {
+                    throw new IllegalArgumentException("Zone " + z + " has an unknown candidate zone " + c);
+                }
+            }
+            copy[z] = Arrays.copyOf(candidates[z], candidates[z].length);
+        }
+        return new Topology(copy);
+    }
+
+    /**
+     * Restores a Topology written by save.
+     * @param in    The CheckpointReader of the snapshot.
+     * @return      The restored Topology.
+     */
+    static Topology restore(CheckpointReader in) throws IOException {
+        int[][] candidates = new int[in.readInt()][];
+        for (int z = 0; z < candidates.length; z++) {
+            candidates[z] = new int[in.readInt()];
+            for (int k = 0; k < candidates[z].length; k++) {
+                candidates[z][k] = in.readInt();
+            }
+        }
+        return of(candidates);
+    }
+
+    /**
+     * Writes the Topology to a snapshot.
+     * @param out   The CheckpointWriter of the snapshot.
+     */
+    void save(CheckpointWriter out) throws IOException {
+        out.writeInt(candidates.length);
+        for (int[] zones : candidates) {
+            out.writeInt(zones.length);
+            for (int z : zones) {
+                out.writeInt(z);
+            }
+        }
+    }
+
+    public int getZoneNumber() {
+        return candidates.length;
+    }
+
+    /**
+     * Returns the candidate zones of the customers of a zone. The array must not be modified.
+     * @param zone  The zone of the customers.
+     * @return      The candidate zones, in order of preference.
+     */
+    int[] candidates(int zone) {
+        if (zone < 0 || zone >= candidates.length) {
+            throw new IllegalArgumentException("Unknown zone " + zone);
+        }
+        return candidates[zone];
+    }
+
+    /**
+     * Returns the position of the first of the servers of a kind which belong to a zone.
+     * @param count     The number of servers of the kind.
+     * @param zone      The zone, or the number of zones for the end of the last zone.
+     * @return          The position of the first server of the zone.
+     */
+    int firstOf(int count, int zone) {
+        return (int) ((long) count * zone / candidates.length);
+    }
+}
@@ -0,0 +1,168 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * TraceArrivalSource replays recorded customers from a text file, one line per customer:
+ * the arrival time, the service time and, optionally, 1 for a greedy customer (0 by default)
+ * and the zone of the customer (0 by default).
+ * Arrival times must not decrease from one line to the next.
+ * The file is read lazily through a memory-mapped window which slides along it,
+ * so that traces of any size are replayed in constant memory.
+ * @author Wang Pei
+ */
+final class TraceArrivalSource implements ArrivalSource {
+    /*
+     * A TraceArrivalSource has
+     * (1) The path and size of the trace file;
+     * (2) The offsets of the mapped window in the file and a ByteTokenizer over it;
+     * (3) The number of customers yet to arrive, or -1 if the whole trace is replayed;
+     * (4) The id of the next customer and the arrival time of the previous one.
+     */
+    private static final long WINDOW_SIZE = 1L << 26;
+
+    private final Path path;
+    private final long fileSize;
+    private long windowStart;
+    private long windowEnd;
+    private ByteTokenizer lines;
+    private int remaining;
+    private int nextId;
+    private double lastArrival;
+
+    private TraceArrivalSource(Path path, long fileSize, int remaining) {
+        this.path = path;
+        this.fileSize = fileSize;
+        this.remaining = remaining;
+        this.nextId = 1;
+        this.lastArrival = 0;
+    }
+
+    /**
+     * Opens a trace of recorded customers.
+     * @param path              The path of the trace file.
+     * @param customerNumber    The maximum number of customers to replay, 
+     *                              or 0 to replay the whole trace.
+     * @return                  A TraceArrivalSource positioned at the first customer.
+     * @throws IOException      If the trace cannot be read.
+     */
+    static TraceArrivalSource open(Path path, int customerNumber) throws IOException {
+        long size;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+        }
+        TraceArrivalSource arrivals = new TraceArrivalSource(path, size, (customerNumber > 0) ? customerNumber : -1);
+        arrivals.map(0, 0);
+        return arrivals;
+    }
+
+    /**
+     * Restores a TraceArrivalSource written by save, reopening its trace file.
+     * @param in    The CheckpointReader of the snapshot.
+     * @return      The restored TraceArrivalSource.
+     */
+    static TraceArrivalSource restore(CheckpointReader in) throws IOException {
+        Path path = Path.of(in.readString());
+        long offset = in.readLong();
+        long line = in.readLong();
+        TraceArrivalSource arrivals = open(path, 0);
+        arrivals.remaining = in.readInt();
+        arrivals.nextId = in.readInt();
+        arrivals.lastArrival = in.readDouble();
+        arrivals.map(offset, line);
+        return arrivals;
+    }
+
+    @Override
+    public void save(CheckpointWriter out) throws IOException {
+        out.writeByte(TRACE);
+        out.writeString(path.toAbsolutePath().toString());
+        out.writeLong(Math.min(windowStart + lines.getNextLineStart(), fileSize));
+        out.writeLong(lines.getLine());
+        out.writeInt(remaining);
+        out.writeInt(nextId);
+        out.writeDouble(lastArrival);
+    }
+
+    /**
+     * Replays the arrival event of the next recorded customer, if any.
+     * @param pool  The EventPool the arrival event is obtained from.
+     * @return      The next arrival Event, or null if all customers have arrived.
+     */
+    @Override
+    public Event next(EventPool pool) {
+        if (remaining == 0) {
+            return null;
+        }
+        while (true) {
+            if (!lines.nextLine()) {
+                if (windowEnd >= fileSize) {
+                    return null;
+                }
+                slide(windowEnd, lines.getLine());
+                continue;
+            }
+            if (!lines.isLineTerminated() && windowEnd < fileSize) {
+                // The line continues past the window; map a window starting at the line.
+                if (lines.getLineStart() == 0) {
+                    throw lines.error("longer than " + WINDOW_SIZE + " bytes");
+                }
+                slide(windowStart + lines.getLineStart(), lines.getLine() - 1);
+                continue;
+            }
+            if (!lines.hasNext()) {
+                continue;
+            }
+            double arrival = lines.nextDouble();
+            if (!lines.hasNext()) {
+                throw lines.error("a service time expected after the arrival time");
+            }
+            double serviceTime = lines.nextDouble();
+            boolean greedy = lines.hasNext() && lines.nextInt() != 0;
+            int zone = lines.hasNext() ? lines.nextInt() : 0;
+            if (lines.hasNext()) {
+                throw lines.error("more than 4 numbers");
+            }
+            if (arrival < lastArrival) {
+                throw lines.error("arrival at " + arrival + " before the previous arrival at " + lastArrival);
+            }
+            if (!(serviceTime >= 0)) {
+                throw lines.error("invalid service time " + serviceTime);
+            }
+            if (zone < 0) {
+                throw lines.error("invalid zone " + zone);
+            }
+            lastArrival = arrival;
+            if (remaining > 0) {
+                remaining--;
+            }
+            return pool.arrivalEvent(arrival, Customer.createRecorded(nextId++, arrival, greedy, serviceTime, zone));
+        }
+    }
+
+    private void slide(long offset, long linesBefore) {
+        try {
+            map(offset, linesBefore);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Maps the window of the file starting at the given offset.
+     * @param offset        The offset of the window, at the start of a line.
+     * @param linesBefore   The number of lines before the offset.
+     */
+    private void map(long offset, long linesBefore) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = Math.min(WINDOW_SIZE, fileSize - offset);
+            this.lines = new ByteTokenizer(channel.map(FileChannel.MapMode.READ_ONLY, offset, length), linesBefore);
+            this.windowStart = offset;
+            this.windowEnd = offset + length;
+        }
+    }
+}
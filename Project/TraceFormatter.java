@@ -0,0 +1,172 @@
+package cs2030.simulator;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * TraceFormatter appends lines of the text trace to a reusable char buffer,
+ * without creating a String or Formatter per line.
+ * Times are written with 3 decimals exactly as String.format("%.3f") writes them:
+ * the time is rounded directly unless it lies so close to a tie that the rounding
+ * of String.format could differ, in which case String.format itself is used.
+ * @author Wang Pei
+ */
+final class TraceFormatter {
+    /*
+     * A TraceFormatter has
+     * (1) The buffer of formatted characters and its length;
+     * (2) A boolean value denoting if the default locale formats times like the fast path.
+     */
+    private static final double MAX_FAST_TIME = 1e12;
+    private static final int TIE_ULPS = 4;
+
+    private char[] buffer;
+    private int length = 0;
+    private final boolean fastTimes;
+
+    /**
+     * Constructs an empty TraceFormatter.
+     * @param capacity  The initial capacity of the buffer.
+     */
+    TraceFormatter(int capacity) {
+        this.buffer = new char[capacity];
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+        this.fastTimes = symbols.getDecimalSeparator() == '.' && symbols.getZeroDigit() == '0';
+    }
+
+    int length() {
+        return length;
+    }
+
+    char[] buffer() {
+        return buffer;
+    }
+
+    void clear() {
+        length = 0;
+    }
+
+    /**
+     * Appends the trace line of an event, without line separator.
+     * @param event     The event to be formatted.
+     * @return          This TraceFormatter.
+     */
+    TraceFormatter appendEvent(Event event) {
+        Customer c = event.customer;
+        Server s = event.server;
+        return appendEvent(event.time, event.type, 
+                (c == null) ? 0 : c.getId(), c != null && c.isGreedy(),
+                (s == null) ? 0 : s.getId(), s != null && s.isSelfCheckout());
+    }
+
+    /**
+     * Appends the trace line of an event given by its parts, without line separator.
+     * @param time          The time of the event.
+     * @param type          The type of the event.
+     * @param customer      The id of the customer.
+     * @param greedy        true if the customer is greedy.
+     * @param server        The id of the server.
+     * @param selfCheckout  true if the server is a self-checkout server.
+     * @return              This TraceFormatter.
+     */
+    TraceFormatter appendEvent(double time, EventType type, int customer, boolean greedy, 
+            int server, boolean selfCheckout) {
+        appendTime(time).append(' ');
+        switch (type) {
+            case SERVE:
+                appendCustomer(customer, greedy).append(" served by ");
+                return appendServer(server, selfCheckout);
+            case REST:
+            case BACK:
+                return appendServer(server, selfCheckout).append(' ').append(type.toString());
+            case DONE:
+                appendCustomer(customer, greedy).append(" done serving by ");
+                return appendServer(server, selfCheckout);
+            case WAIT:
+                appendCustomer(customer, greedy).append(" waits to be served by ");
+                return appendServer(server, selfCheckout);
+            default:
+                return appendCustomer(customer, greedy).append(' ').append(type.toString());
+        }
+    }
+
+    /**
+     * Appends a time with 3 decimals, rounded as String.format("%.3f") rounds it.
+     * @param time  The time to be appended.
+     * @return      This TraceFormatter.
+     */
+    TraceFormatter appendTime(double time) {
+        // The sign bit excludes -0.0 and negative times; the bound excludes NaN and infinity.
+        if (fastTimes && Double.doubleToRawLongBits(time) >= 0 && time < MAX_FAST_TIME) {
+            double scaled = time * 1000;
+            double whole = Math.floor(scaled);
+            double fraction = scaled - whole;
+            if (Math.abs(fraction - 0.5) > TIE_ULPS * Math.ulp(scaled)) {
+                long thousandths = (long) whole + ((fraction > 0.5) ? 1 : 0);
+                appendLong(thousandths / 1000).append('.');
+                int decimals = (int) (thousandths % 1000);
+                ensure(3);
+                buffer[length++] = (char) ('0' + decimals / 100);
+                buffer[length++] = (char) ('0' + decimals / 10 % 10);
+                buffer[length++] = (char) ('0' + decimals % 10);
+                return this;
+            }
+        }
+        return append(String.format("%.3f", time));
+    }
+
+    TraceFormatter appendCustomer(int id, boolean greedy) {
+        appendLong(id);
+        return greedy ? append("(greedy)") : this;
+    }
+
+    TraceFormatter appendServer(int id, boolean selfCheckout) {
+        return append(selfCheckout ? "self-check " : "server ").appendLong(id);
+    }
+
+    TraceFormatter appendLong(long value) {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                return append(Long.toString(value));
+            }
+            append('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        ensure(digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+        return this;
+    }
+
+    TraceFormatter append(char c) {
+        ensure(1);
+        buffer[length++] = c;
+        return this;
+    }
+
+    TraceFormatter append(String s) {
+        ensure(s.length());
+        s.getChars(0, s.length(), buffer, length);
+        length += s.length();
+        return this;
+    }
+
+    private void ensure(int n) {
+        if (length + n > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(length + n, 2 * buffer.length));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+}
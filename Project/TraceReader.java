@@ -0,0 +1,292 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+/**
+ * TraceReader memory-maps a binary trace written by a BinaryEventSink,
+ * so that traces larger than the heap can be queried and converted to text.
+ * Records are addressed by their position in the trace, starting from 0.
+ * @author Wang Pei
+ */
+public final class TraceReader {
+    /*
+     * A TraceReader has
+     * (1) The mapped segments of records, each holding up to SEGMENT_RECORDS records;
+     * (2) The number of records;
+     * (3) The statistics summary, if the simulation completed.
+     */
+    private static final int SEGMENT_BITS = 26;
+    private static final long SEGMENT_RECORDS = 1L << SEGMENT_BITS;
+    private static final int RECORD_SIZE = BinaryEventSink.RECORD_SIZE;
+    private static final EventType[] TYPES = EventType.values();
+
+    private final MappedByteBuffer[] segments;
+    private final long size;
+    private final String statistics;
+
+    private TraceReader(MappedByteBuffer[] segments, long size, String statistics) {
+        this.segments = segments;
+        this.size = size;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Opens a binary trace. A trace whose simulation did not complete 
+     * is read up to its last whole record.
+     * @param path  The path of the trace file.
+     * @return      A TraceReader of the trace.
+     * @throws IOException  If the file cannot be read or is not a binary trace.
+     */
+    public static TraceReader open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(BinaryEventSink.HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read the whole header
+            }
+            header.flip();
+            if (header.remaining() < BinaryEventSink.HEADER_SIZE 
+                    || header.getInt() != BinaryEventSink.MAGIC
+                    || header.getShort() != BinaryEventSink.VERSION 
+                    || header.getShort() != RECORD_SIZE) {
+                throw new IOException(path + " is not a binary trace");
+            }
+            long count = header.getLong();
+            long available = (channel.size() - BinaryEventSink.HEADER_SIZE) / RECORD_SIZE;
+            long size = (count < 0) ? available : Math.min(count, available);
+
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_RECORDS - 1) >> SEGMENT_BITS)];
+            for (int s = 0; s < segments.length; s++) {
+                long first = s * SEGMENT_RECORDS;
+                long records = Math.min(SEGMENT_RECORDS, size - first);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, 
+                        BinaryEventSink.HEADER_SIZE + first * RECORD_SIZE, records * RECORD_SIZE);
+            }
+
+            String statistics = null;
+            long trailer = BinaryEventSink.HEADER_SIZE + size * RECORD_SIZE;
+            if (count >= 0 && channel.size() >= trailer + Integer.BYTES) {
+                ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+                channel.read(length, trailer);
+                ByteBuffer bytes = ByteBuffer.allocate(length.getInt(0));
+                while (bytes.hasRemaining() && channel.read(bytes, trailer + Integer.BYTES + bytes.position()) > 0) {
+                    // read the whole summary
+                }
+                statistics = new String(bytes.array(), 0, bytes.position(), StandardCharsets.UTF_8);
+            }
+            return new TraceReader(segments, size, statistics);
+        }
+    }
+
+    /**
+     * Returns the number of events in the trace.
+     * @return  The number of records.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the statistics summary written when the simulation completed.
+     * @return  The statistics summary, or null if the simulation did not complete.
+     */
+    public String getStatistics() {
+        return statistics;
+    }
+
+    public double time(long i) {
+        return segment(i).getDouble(offset(i));
+    }
+
+    /**
+     * Returns the id of the customer of an event.
+     * @param i     The position of the event.
+     * @return      The customer id, or 0 if the event has no customer.
+     */
+    public int customerId(long i) {
+        return segment(i).getInt(offset(i) + 8);
+    }
+
+    /**
+     * Returns the id of the server of an event.
+     * @param i     The position of the event.
+     * @return      The server id, or 0 if the event has no server.
+     */
+    public int serverId(long i) {
+        return segment(i).getInt(offset(i) + 12);
+    }
+
+    public EventType type(long i) {
+        return TYPES[segment(i).get(offset(i) + 16)];
+    }
+
+    public boolean isGreedy(long i) {
+        return (segment(i).get(offset(i) + 17) & BinaryEventSink.GREEDY) != 0;
+    }
+
+    public boolean isSelfCheckout(long i) {
+        return (segment(i).get(offset(i) + 17) & BinaryEventSink.SELF_CHECKOUT) != 0;
+    }
+
+    /**
+     * Returns the positions of all events involving a server, in order.
+     * @param serverId  The id of the server.
+     * @return          The positions of the events of the server.
+     */
+    public LongStream eventsOfServer(int serverId) {
+        return LongStream.range(0, size).filter(i -> serverId(i) == serverId);
+    }
+
+    /**
+     * Returns the wait times of the served customers of one kind, in order of service.
+     * Only the arrival times of the customers in the system are kept on the heap,
+     * each from its arrival until it is served or leaves.
+     * @param greedy    true for greedy customers, false for typical customers.
+     * @return          The wait times.
+     */
+    public double[] waitTimes(boolean greedy) {
+        ArrivalTimes arrivals = new ArrivalTimes();
+        double[] waits = new double[1024];
+        int n = 0;
+        for (long i = 0; i < size; i++) {
+            EventType type = type(i);
+            if (type == EventType.ARRIVAL) {
+                arrivals.put(customerId(i), time(i));
+            } else if (type == EventType.LEAVE) {
+                arrivals.remove(customerId(i));
+            } else if (type == EventType.SERVE) {
+                double arrival = arrivals.remove(customerId(i));
+                if (isGreedy(i) == greedy && !Double.isNaN(arrival)) {
+                    if (n == waits.length) {
+                        waits = Arrays.copyOf(waits, 2 * n);
+                    }
+                    waits[n++] = time(i) - arrival;
+                }
+            }
+        }
+        return Arrays.copyOf(waits, n);
+    }
+
+    /**
+     * Converts the trace to the text trace which a text EventSink would have written.
+     * @param out   The writer of the text trace, which is flushed but not closed.
+     * @throws IOException  If the text trace cannot be written.
+     */
+    public void writeText(Writer out) throws IOException {
+        TraceFormatter lines = new TraceFormatter(TextEventSink.BUFFER_SIZE);
+        for (long i = 0; i < size; i++) {
+            EventType type = type(i);
+            if (type == EventType.REST || type == EventType.BACK) {
+                continue;
+            }
+            lines.appendEvent(time(i), type, customerId(i), isGreedy(i), serverId(i), isSelfCheckout(i));
+            lines.append('\n');
+            if (lines.length() >= TextEventSink.BUFFER_SIZE - 256) {
+                out.write(lines.buffer(), 0, lines.length());
+                lines.clear();
+            }
+        }
+        out.write(lines.buffer(), 0, lines.length());
+        if (statistics != null) {
+            out.write(statistics);
+            out.write(System.lineSeparator());
+        }
+        out.flush();
+    }
+
+    private MappedByteBuffer segment(long i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Record " + i + " of " + size);
+        }
+        return segments[(int) (i >> SEGMENT_BITS)];
+    }
+
+    private static int offset(long i) {
+        return (int) (i & (SEGMENT_RECORDS - 1)) * RECORD_SIZE;
+    }
+
+    /**
+     * ArrivalTimes maps the ids of the customers in the system to their arrival times,
+     * in open-addressed arrays with linear probing, so that neither is boxed.
+     * Ids are positive, so 0 marks an empty slot.
+     */
+    private static final class ArrivalTimes {
+        private int[] ids = new int[64];
+        private double[] times = new double[64];
+        private int size = 0;
+
+        void put(int id, double time) {
+            if (2 * (size + 1) > ids.length) {
+                rehash(2 * ids.length);
+            }
+            int slot = slotOf(id);
+            if (ids[slot] == 0) {
+                ids[slot] = id;
+                size++;
+            }
+            times[slot] = time;
+        }
+
+        /**
+         * Removes a customer.
+         * @param id    The id of the customer.
+         * @return      Its arrival time, or NaN if it is not in the system.
+         */
+        double remove(int id) {
+            int slot = slotOf(id);
+            if (ids[slot] == 0) {
+                return Double.NaN;
+            }
+            double time = times[slot];
+            // Shift back the following entries of the probe sequence into the freed slot.
+            int mask = ids.length - 1;
+            int free = slot;
+            for (int next = (free + 1) & mask; ids[next] != 0; next = (next + 1) & mask) {
+                int home = hash(ids[next]) & mask;
+                if (((next - home) & mask) >= ((next - free) & mask)) {
+                    ids[free] = ids[next];
+                    times[free] = times[next];
+                    free = next;
+                }
+            }
+            ids[free] = 0;
+            size--;
+            return time;
+        }
+
+        private int slotOf(int id) {
+            int mask = ids.length - 1;
+            int slot = hash(id) & mask;
+            while (ids[slot] != 0 && ids[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void rehash(int capacity) {
+            int[] oldIds = ids;
+            double[] oldTimes = times;
+            ids = new int[capacity];
+            times = new double[capacity];
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != 0) {
+                    int slot = slotOf(oldIds[i]);
+                    ids[slot] = oldIds[i];
+                    times[slot] = oldTimes[i];
+                }
+            }
+        }
+
+        private static int hash(int id) {
+            return id * 0x9E3779B9;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The immutable WhatIf class describes a what-if variant of a simulation forked from a SimulationPrefix:
+ * the number of open human servers, their resting probability and the maximum queue length
+ * from the time of the fork on. Whatever a WhatIf does not set is left as it was.
+ * Closed human servers still serve the customers they hold, but take no new ones.
+ * @author Wang Pei
+ */
+public final class WhatIf {
+    private static final WhatIf NONE = new WhatIf(-1, Double.NaN, -1);
+    private static final int FIELDS = 3;
+
+    /*
+     * A WhatIf has
+     * (1) The number of open human servers, or -1 if unchanged;
+     * (2) The resting probability of human servers, or NaN if unchanged;
+     * (3) The maximum queue length, or -1 if unchanged.
+     */
+    private final int servers;
+    private final double Pr;
+    private final int maxQLen;
+
+    private WhatIf(int servers, double Pr, int maxQLen) {
+        this.servers = servers;
+        this.Pr = Pr;
+        this.maxQLen = maxQLen;
+    }
+
+    /**
+     * Returns the WhatIf which changes nothing, so that its variant continues the prefix as it was.
+     * @return  The empty WhatIf.
+     */
+    public static WhatIf none() {
+        return NONE;
+    }
+
+    /**
+     * Returns a copy of the WhatIf with the given number of open human servers.
+     * @param servers   The number of open human servers.
+     * @return          The updated WhatIf.
+     */
+    public WhatIf withServers(int servers) {
+        if (servers < 0) {
+            throw new IllegalArgumentException("Invalid number of servers " + servers);
+        }
+        return new WhatIf(servers, Pr, maxQLen);
+    }
+
+    /**
+     * Returns a copy of the WhatIf with the given resting probability of human servers.
+     * @param Pr    The resting probability.
+     * @return      The updated WhatIf.
+     */
+    public WhatIf withPr(double Pr) {
+        if (!(Pr >= 0 && Pr <= 1)) {
+            throw new IllegalArgumentException("Invalid resting probability " + Pr);
+        }
+        return new WhatIf(servers, Pr, maxQLen);
+    }
+
+    /**
+     * Returns a copy of the WhatIf with the given maximum queue length.
+     * @param maxQLen   The maximum queue length.
+     * @return          The updated WhatIf.
+     */
+    public WhatIf withMaxQLen(int maxQLen) {
+        if (maxQLen < 0) {
+            throw new IllegalArgumentException("Invalid maximum queue length " + maxQLen);
+        }
+        return new WhatIf(servers, Pr, maxQLen);
+    }
+
+    /**
+     * Reads the variants of a file, one per line, each given by the number of open human servers,
+     * their resting probability and the maximum queue length.
+     * Numbers are separated by spaces, tabs or commas; empty lines and text after # are ignored.
+     * @param path  The path of the file.
+     * @return      The list of variants, in order.
+     * @throws IOException  If the file cannot be read.
+     */
+    public static List<WhatIf> read(Path path) throws IOException {
+        MappedByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large for a file of variants");
+            }
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        List<WhatIf> variants = new ArrayList<>();
+        ByteTokenizer in = new ByteTokenizer(bytes, 0);
+        while (in.nextLine()) {
+            if (!in.hasNext()) {
+                continue;
+            }
+            int servers = in.nextInt();
+            if (!in.hasNext()) {
+                throw in.error("only 1 of " + FIELDS + " numbers");
+            }
+            double Pr = in.nextDouble();
+            if (!in.hasNext()) {
+                throw in.error("only 2 of " + FIELDS + " numbers");
+            }
+            int maxQLen = in.nextInt();
+            if (in.hasNext()) {
+                throw in.error("more than " + FIELDS + " numbers");
+            }
+            try {
+                variants.add(none().withServers(servers).withPr(Pr).withMaxQLen(maxQLen));
+            } catch (IllegalArgumentException e) {
+                throw in.error(e.getMessage());
+            }
+        }
+        return variants;
+    }
+
+    int servers(int current) {
+        return (servers < 0) ? current : servers;
+    }
+
+    double Pr(double current) {
+        return Double.isNaN(Pr) ? current : Pr;
+    }
+
+    int maxQLen(int current) {
+        return (maxQLen < 0) ? current : maxQLen;
+    }
+
+    /**
+     * Returns the changes of the variant separated by spaces, with - for those left unchanged.
+     * @return  The number of open human servers, Pr and the maximum queue length.
+     */
+    @Override
+    public String toString() {
+        return ((servers < 0) ? "-" : String.valueOf(servers)) + " "
+            + (Double.isNaN(Pr) ? "-" : String.valueOf(Pr)) + " "
+            + ((maxQLen < 0) ? "-" : String.valueOf(maxQLen));
+    }
+}
@@ -0,0 +1,121 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * WhatIfRunner forks every what-if variant of a list from a SimulationPrefix,
+ * runs them on a work-stealing ForkJoinPool and streams one CSV row per variant
+ * as soon as its run finishes. Only the part of each run after the prefix is simulated.
+ * Rows therefore appear in order of completion, unless the pool has a parallelism of 1;
+ * the first column identifies the variant.
+ * @author Wang Pei
+ */
+public class WhatIfRunner {
+    /*
+     * A WhatIfRunner has
+     * (1) The SimulationPrefix the variants are forked from;
+     * (2) The variants to be run;
+     * (3) The SimulatorOptions of every run, whose trace is discarded;
+     * (4) The ForkJoinPool the runs are scheduled on.
+     */
+    static final String HEADER = "variant,time,servers,Pr,maxQLen,averageWaitTime,served,left";
+
+    private final SimulationPrefix prefix;
+    private final List<WhatIf> variants;
+    private final SimulatorOptions options;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a WhatIfRunner.
+     * @param prefix    The SimulationPrefix the variants are forked from.
+     * @param variants  The variants to be run; the index of each identifies it.
+     * @param options   The SimulatorOptions of every run.
+     * @param pool      The ForkJoinPool the runs are scheduled on.
+     */
+    public WhatIfRunner(SimulationPrefix prefix, List<WhatIf> variants, SimulatorOptions options,
+            ForkJoinPool pool) {
+        this.prefix = prefix;
+        this.variants = variants;
+        this.options = options.withSink(EventSink.discard());
+        this.pool = pool;
+    }
+
+    /**
+     * Constructs a WhatIfRunner on the common pool.
+     * @param prefix    The SimulationPrefix the variants are forked from.
+     * @param variants  The variants to be run.
+     */
+    public WhatIfRunner(SimulationPrefix prefix, List<WhatIf> variants) {
+        this(prefix, variants, SimulatorOptions.defaults(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs every variant and writes the CSV header and rows to the given writer,
+     * flushing after each row.
+     * @param out   The writer of the CSV output.
+     */
+    public void run(Writer out) {
+        write(out, HEADER);
+        pool.invoke(new Variants(out, 0, variants.size()));
+    }
+
+    /**
+     * Formats the CSV row of a variant, with - for what it leaves unchanged.
+     * @param variant       The index of the variant.
+     * @param whatIf        The changes of the variant.
+     * @param statistics    The Statistics of its run, including the prefix.
+     * @return              The CSV row.
+     */
+    String row(int variant, WhatIf whatIf, Statistics statistics) {
+        return variant + "," + prefix.getTime() + "," + whatIf.toString().replace(' ', ',') + ","
+            + statistics.getAverageWaitTime() + "," + statistics.getServed() + "," + statistics.getLeft();
+    }
+
+    private static void write(Writer out, String line) {
+        synchronized (out) {
+            try {
+                out.write(line);
+                out.write(System.lineSeparator());
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Runs the variants of a range of indices, splitting it in halves
+     * so that idle workers can steal the other half.
+     */
+    private class Variants extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Writer out;
+        private final int from;
+        private final int to;
+
+        Variants(Writer out, int from, int to) {
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                WhatIf whatIf = variants.get(from);
+                Simulator simulator = prefix.fork(whatIf, options);
+                simulator.run();
+                write(out, row(from, whatIf, simulator.getStatistics()));
+            } else if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Variants(out, from, mid), new Variants(out, mid, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+
+/**
+ * XoshiroStream is a fast generator of 64-bit random numbers, xoshiro256++
+ * by D. Blackman and S. Vigna, seeded through SplitMix64 so that streams seeded 
+ * with different keys are independent for all practical purposes.
+ * Exponential variates are drawn with the ziggurat method of G. Marsaglia and W. W. Tsang,
+ * "The ziggurat method for generating random variables", JSS 5(8), 2000,
+ * which needs neither a logarithm nor a division in 98.9% of the draws.
+ * @author Wang Pei
+ */
+final class XoshiroStream implements RandomStream {
+    /*
+     * A XoshiroStream has the 256-bit state of the generator.
+     * The ziggurat has LAYERS layers of equal area V under exp(-x), the base layer including the tail from R;
+     * X[i] is the right edge of layer i, with X[0] = V / exp(-R), X[1] = R and X[LAYERS] = 0,
+     * and F[i] = exp(-X[i]).
+     */
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+    private static final int LAYERS = 256;
+    private static final double R = 7.69711747013104972;
+    private static final double V = 0.0039496598225815571993;
+    private static final double[] X = new double[LAYERS + 1];
+    private static final double[] F = new double[LAYERS + 1];
+
+    static {
+        X[0] = V / Math.exp(-R);
+        X[1] = R;
+        for (int i = 1; i < LAYERS - 1; i++) {
+            X[i + 1] = -Math.log(V / X[i] + Math.exp(-X[i]));
+        }
+        X[LAYERS] = 0;
+        for (int i = 0; i <= LAYERS; i++) {
+            F[i] = Math.exp(-X[i]);
+        }
+    }
+
+    private long s0;
+    private long s1;
+    private long s2;
+    private long s3;
+
+    private XoshiroStream(long s0, long s1, long s2, long s3) {
+        this.s0 = s0;
+        this.s1 = s1;
+        this.s2 = s2;
+        this.s3 = s3;
+    }
+
+    /**
+     * Creates the stream of a seed and a key, e.g. the service times of a server.
+     * @param seed  The seed of the simulation.
+     * @param key   The key of the stream.
+     * @return      A XoshiroStream.
+     */
+    static XoshiroStream of(long seed, long key) {
+        long x = mix(seed) ^ key * 0xD1B54A32D192ED03L;
+        long s0 = mix(x += 0x9E3779B97F4A7C15L);
+        long s1 = mix(x += 0x9E3779B97F4A7C15L);
+        long s2 = mix(x += 0x9E3779B97F4A7C15L);
+        long s3 = mix(x + 0x9E3779B97F4A7C15L);
+        return new XoshiroStream(s0, s1, s2, s3);
+    }
+
+    static XoshiroStream restore(CheckpointReader in) throws IOException {
+        return new XoshiroStream(in.readLong(), in.readLong(), in.readLong(), in.readLong());
+    }
+
+    /**
+     * The SplitMix64 finaliser, which spreads every input bit over all output bits.
+     * @param z     The input.
+     * @return      The mixed output.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    long nextLong() {
+        long result = Long.rotateLeft(s0 + s3, 23) + s0;
+        long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    @Override
+    public double nextExponential() {
+        double offset = 0;
+        while (true) {
+            // The low 8 bits choose the layer, the high 53 bits the position in it.
+            long u = nextLong();
+            int i = (int) (u & (LAYERS - 1));
+            double x = (u >>> 11) * DOUBLE_UNIT * X[i];
+            if (x < X[i + 1]) {
+                return offset + x;
+            }
+            if (i == 0) {
+                // The tail beyond R is again exponential.
+                offset += R;
+            } else if (F[i] + nextDouble() * (F[i + 1] - F[i]) < Math.exp(-x)) {
+                return offset + x;
+            }
+        }
+    }
+
+    @Override
+    public RandomStream copy() {
+        return new XoshiroStream(s0, s1, s2, s3);
+    }
+
+    @Override
+    public void reset(RandomStream copy) {
+        XoshiroStream other = (XoshiroStream) copy;
+        this.s0 = other.s0;
+        this.s1 = other.s1;
+        this.s2 = other.s2;
+        this.s3 = other.s3;
+    }
+
+    @Override
+    public void save(CheckpointWriter out) throws IOException {
+        out.writeLong(s0);
+        out.writeLong(s1);
+        out.writeLong(s2);
+        out.writeLong(s3);
+    }
+}
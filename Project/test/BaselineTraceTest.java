@@ -0,0 +1,73 @@
+package cs2030.simulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that the default options, with the COMPAT RandomGenerator, still print the trace
+ * of the original simulator byte for byte. The digests are those of the traces the original
+ * Main printed for the same data.
+ * @author Wang Pei
+ */
+class BaselineTraceTest {
+    private static final String[][] BASELINE = {
+        { "1 3 2 2 200 1.0 1.0 0.5 0.3 0.2", "fc073d309ab2b06f3be933690233a7919bed8fd95ba96e75356f99d92a4ec557" },
+        { "1 3 2 2 20000 3.0 1.0 0.5 0.3 0.2", "7af6c5ee86dae93e99868d43ecc78619e124581d93ae494e65c50a9bd367589f" },
+        { "42 5 3 4 5000 4.5 1.0 1.0 0.5 0.5", "c8a7723a017fc6eba41c447aa7e2a7b6e720226db0ad7507bf5c04ce40a5d715" },
+        { "7 2 0 1 3000 2.0 1.5 0.0 0.0 0.4", "41ad229209b6de57a7112752371e7a3d0c25a2026e734882dc7798844bff3e8e" },
+    };
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void smallTraceIsTheOriginalTrace() throws IOException {
+        String n = System.lineSeparator();
+        String expected = "0.000 1 arrives" + n
+            + "0.000 1 served by server 1" + n
+            + "0.313 1 done serving by server 1" + n
+            + "0.314 2(greedy) arrives" + n
+            + "0.314 2(greedy) served by server 1" + n
+            + "0.417 2(greedy) done serving by server 1" + n
+            + "1.205 3 arrives" + n
+            + "1.205 3 served by server 1" + n
+            + "1.904 3 done serving by server 1" + n
+            + "2.776 4 arrives" + n
+            + "2.776 4 served by server 1" + n
+            + "2.791 4 done serving by server 1" + n
+            + "3.877 5 arrives" + n
+            + "3.877 5 served by server 1" + n
+            + "4.031 5 done serving by server 1" + n
+            + "[0.000 5 0]" + n;
+        assertEquals(expected, Traces.run(Traces.scenario("1 2 1 2 5 1.0 1.0 0.5 0.3 0.2"),
+                    SimulatorOptions.defaults(), dir.resolve("trace.txt")));
+    }
+
+    @Test
+    void defaultTracesAreTheOriginalTraces() throws IOException {
+        for (String[] baseline : BASELINE) {
+            String trace = Traces.run(Traces.scenario(baseline[0]), SimulatorOptions.defaults(),
+                    dir.resolve("trace.txt"));
+            assertEquals(baseline[1], Traces.sha256(trace), baseline[0]);
+        }
+    }
+
+    @Test
+    void lazyArrivalsAndFutureEventListsKeepTheOriginalTraces() throws IOException {
+        for (String[] baseline : BASELINE) {
+            for (FutureEventList.Kind kind : FutureEventList.Kind.values()) {
+                for (boolean lazy : new boolean[] { false, true }) {
+                    SimulatorOptions options = SimulatorOptions.defaults()
+                        .withFutureEventList(kind)
+                        .withLazyArrivals(lazy);
+                    String trace = Traces.run(Traces.scenario(baseline[0]), options, dir.resolve("trace.txt"));
+                    assertEquals(baseline[1], Traces.sha256(trace), baseline[0] + " " + kind + " lazy " + lazy);
+                }
+            }
+        }
+    }
+}
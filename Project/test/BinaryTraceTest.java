@@ -0,0 +1,67 @@
+package cs2030.simulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a binary trace read back by a TraceReader holds the events of the text trace.
+ * @author Wang Pei
+ */
+class BinaryTraceTest {
+    private static final String[] SCENARIOS = {
+        "1 3 2 2 20000 3.0 1.0 0.5 0.3 0.2",
+        "42 5 3 4 5000 4.5 1.0 1.0 0.5 0.5",
+        "7 2 0 1 3000 2.0 1.5 0.0 0.0 0.4",
+    };
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void binaryTraceConvertsToTheTextTrace() throws IOException {
+        for (int i = 0; i < SCENARIOS.length; i++) {
+            String data = SCENARIOS[i];
+            Scenario scenario = Traces.scenario(data);
+            String text = Traces.run(scenario, SimulatorOptions.defaults(), dir.resolve("trace.txt"));
+            // Each trace gets a file of its own, as a mapped file may not be replaced on every platform.
+            Path binary = dir.resolve("trace" + i + ".bin");
+            Simulator simulator = scenario.init(SimulatorOptions.defaults().withSink(EventSink.toBinaryFile(binary)));
+            simulator.run();
+            simulator.printResult();
+
+            StringWriter converted = new StringWriter();
+            TraceReader.open(binary).writeText(converted);
+            assertEquals(text, converted.toString(), data);
+        }
+    }
+
+    @Test
+    void waitTimesAverageToTheStatistics() throws IOException {
+        for (int i = 0; i < SCENARIOS.length; i++) {
+            String data = SCENARIOS[i];
+            Path binary = dir.resolve("trace" + i + ".bin");
+            Simulator simulator = Traces.scenario(data)
+                .init(SimulatorOptions.defaults().withSink(EventSink.toBinaryFile(binary)));
+            simulator.run();
+            simulator.printResult();
+
+            TraceReader trace = TraceReader.open(binary);
+            double total = 0;
+            int served = 0;
+            for (boolean greedy : new boolean[] { false, true }) {
+                for (double wait : trace.waitTimes(greedy)) {
+                    total += wait;
+                    served++;
+                }
+            }
+            Statistics statistics = simulator.getStatistics();
+            assertEquals(statistics.getServed(), served, data);
+            assertEquals(statistics.getAverageWaitTime(), total / served, 1e-9, data);
+        }
+    }
+}
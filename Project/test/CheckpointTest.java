@@ -0,0 +1,85 @@
+package cs2030.simulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a simulation resumed from a snapshot continues with exactly the trace
+ * of the simulation the snapshot was taken of.
+ * @author Wang Pei
+ */
+class CheckpointTest {
+    private static final Scenario SCENARIO = Traces.scenario("1 3 2 2 20000 3.0 1.0 0.5 0.3 0.2");
+    private static final double SNAPSHOT_TIME = 2500;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void resumedSnapshotReproducesTheTail() throws IOException {
+        for (RandomGenerator.Mode mode : RandomGenerator.Mode.values()) {
+            for (boolean lazy : new boolean[] { false, true }) {
+                SimulatorOptions options = SimulatorOptions.defaults()
+                    .withRandomGenerator(mode)
+                    .withLazyArrivals(lazy);
+                Simulator simulator = SCENARIO.init(options.withSink(EventSink.toFile(dir.resolve("full.txt"))));
+                simulator.runUntil(SNAPSHOT_TIME);
+                byte[] snapshot = Checkpoint.toBytes(simulator);
+                simulator.run();
+                simulator.printResult();
+
+                Simulator resumed = Checkpoint.fromBytes(snapshot,
+                        options.withSink(EventSink.toFile(dir.resolve("tail.txt"))), WhatIf.none());
+                resumed.run();
+                resumed.printResult();
+
+                String full = Traces.read(dir.resolve("full.txt"));
+                String tail = Traces.read(dir.resolve("tail.txt"));
+                assertTrue(tail.length() > full.length() / 4, mode + " lazy " + lazy + ": short tail");
+                assertTrue(full.endsWith(tail), mode + " lazy " + lazy + ": the tail differs");
+                assertEquals(simulator.getProcessedEvents(), resumed.getProcessedEvents());
+            }
+        }
+    }
+
+    @Test
+    void periodicSnapshotResumesToTheSameTail() throws IOException {
+        Path snapshot = dir.resolve("snapshot.bin");
+        String full = Traces.run(SCENARIO,
+                SimulatorOptions.defaults().withCheckpoints(snapshot, Checkpoint.Unit.EVENTS, 10000),
+                dir.resolve("full.txt"));
+
+        Simulator resumed = Checkpoint.resume(snapshot,
+                SimulatorOptions.defaults().withSink(EventSink.toFile(dir.resolve("tail.txt"))));
+        resumed.run();
+        resumed.printResult();
+        String tail = Traces.read(dir.resolve("tail.txt"));
+        assertTrue(tail.contains("arrives"));
+        assertTrue(full.endsWith(tail));
+    }
+
+    @Test
+    void resumedMetricsCoverTheTimeSinceTheSnapshot() throws IOException {
+        SimulatorOptions options = SimulatorOptions.defaults()
+            .withMetrics(true)
+            .withSink(EventSink.discard());
+        Simulator simulator = SCENARIO.init(options);
+        simulator.runUntil(SNAPSHOT_TIME);
+        byte[] snapshot = Checkpoint.toBytes(simulator);
+        simulator.run();
+        Simulator resumed = Checkpoint.fromBytes(snapshot, options, WhatIf.none());
+        resumed.run();
+
+        SimulationMetrics all = simulator.getMetrics().orElseThrow();
+        SimulationMetrics since = resumed.getMetrics().orElseThrow();
+        assertEquals(all.getElapsedTime() - SNAPSHOT_TIME, since.getElapsedTime(), 1.0);
+        for (int server = 0; server < all.getServerNumber(); server++) {
+            assertEquals(all.getUtilisation(server), since.getUtilisation(server), 0.05, "server " + server);
+        }
+    }
+}
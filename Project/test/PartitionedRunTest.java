@@ -0,0 +1,93 @@
+package cs2030.simulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that partitioned runs print the trace of the sequential run with the SPLITTABLE RandomGenerator.
+ * @author Wang Pei
+ */
+class PartitionedRunTest {
+    private static final String[] SCENARIOS = {
+        "7 40 4 3 30000 30.0 1.0 0.3 0.1 0.3",
+        "3 30 5 2 40000 25.0 1.0 0.5 0.2 0.6",
+        "5 12 0 1 10000 9.0 1.0 1.0 0.4 0.0",
+    };
+    private static final int[] PARTITIONS = { 2, 3, 7 };
+    // Every routed arrival costs a time-warp run a rollback, so its scenarios are shorter.
+    private static final String[] TIME_WARP_SCENARIOS = {
+        "7 40 4 3 4000 30.0 1.0 0.3 0.1 0.3",
+        "3 30 5 2 4000 25.0 1.0 0.5 0.2 0.6",
+        "5 12 0 1 4000 9.0 1.0 1.0 0.4 0.0",
+    };
+
+    @TempDir
+    Path dir;
+
+    private static SimulatorOptions splittable() {
+        return SimulatorOptions.defaults().withRandomGenerator(RandomGenerator.Mode.SPLITTABLE);
+    }
+
+    @Test
+    void conservativeRunsPrintTheSequentialTrace() throws IOException {
+        for (String data : SCENARIOS) {
+            Scenario scenario = Traces.scenario(data);
+            String sequential = Traces.run(scenario, splittable(), dir.resolve("sequential.txt"));
+            for (int partitions : PARTITIONS) {
+                for (boolean lazy : new boolean[] { false, true }) {
+                    SimulatorOptions options = splittable().withPartitions(partitions).withLazyArrivals(lazy);
+                    assertEquals(sequential, Traces.run(scenario, options, dir.resolve("partitioned.txt")),
+                            data + " in " + partitions + " partitions, lazy " + lazy);
+                }
+            }
+        }
+    }
+
+    @Test
+    void timeWarpRunsPrintTheSequentialTrace() throws IOException {
+        for (String data : TIME_WARP_SCENARIOS) {
+            Scenario scenario = Traces.scenario(data);
+            String sequential = Traces.run(scenario, splittable(), dir.resolve("sequential.txt"));
+            for (int partitions : PARTITIONS) {
+                SimulatorOptions options = splittable().withPartitions(partitions).withTimeWarp(true);
+                assertEquals(sequential, Traces.run(scenario, options, dir.resolve("time-warp.txt")),
+                        data + " in " + partitions + " partitions");
+            }
+        }
+    }
+
+    @Test
+    void resumedTimeWarpRunsPrintTheSequentialTail() throws IOException {
+        Scenario scenario = Traces.scenario(TIME_WARP_SCENARIOS[1]);
+        Simulator simulator = scenario.init(splittable().withSink(EventSink.discard()));
+        simulator.runUntil(80);
+        byte[] snapshot = Checkpoint.toBytes(simulator);
+
+        Simulator sequential = Checkpoint.fromBytes(snapshot,
+                splittable().withSink(EventSink.toFile(dir.resolve("sequential.txt"))), WhatIf.none());
+        sequential.run();
+        sequential.printResult();
+        // Events pending in the snapshot, such as leaves, are passed on in the first window of the engine.
+        Simulator timeWarp = Checkpoint.fromBytes(snapshot, splittable().withPartitions(3).withTimeWarp(true)
+                .withSink(EventSink.toFile(dir.resolve("time-warp.txt"))), WhatIf.none());
+        timeWarp.run();
+        timeWarp.printResult();
+        assertEquals(Traces.read(dir.resolve("sequential.txt")), Traces.read(dir.resolve("time-warp.txt")));
+    }
+
+    @Test
+    void partitionedRunsRejectWhatTheyCannotReproduce() {
+        Scenario scenario = Traces.scenario(SCENARIOS[0]);
+        assertThrows(IllegalArgumentException.class,
+                () -> scenario.init(SimulatorOptions.defaults().withPartitions(2)));
+        assertThrows(IllegalArgumentException.class,
+                () -> scenario.init(splittable().withPartitions(2).withMetrics(true)));
+        assertThrows(IllegalArgumentException.class,
+                () -> scenario.init(splittable().withPartitions(2).withTopology(Topology.ring(2, 0))));
+    }
+}
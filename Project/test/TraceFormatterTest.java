@@ -0,0 +1,86 @@
+package cs2030.simulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a TraceFormatter writes times exactly as String.format("%.3f") does,
+ * in a locale its fast path serves and in one it leaves to String.format.
+ * The benchmarks module holds TraceFormatCheck, which checks many more times.
+ * @author Wang Pei
+ */
+class TraceFormatterTest {
+    private static final int TIE_NEIGHBOURS = 4;
+
+    // The formatter decides on its fast path by the default locale when it is created.
+    private TraceFormatter formatter = new TraceFormatter(64);
+
+    @Test
+    void timesAreFormattedAsByStringFormat() {
+        Locale locale = Locale.getDefault();
+        try {
+            for (Locale l : new Locale[] { Locale.US, Locale.GERMANY }) {
+                Locale.setDefault(l);
+                formatter = new TraceFormatter(64);
+                checkTimes();
+            }
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    private void checkTimes() {
+        double[] specials = { 0.0, -0.0, Double.MIN_VALUE, -Double.MIN_VALUE, 0.0005, -0.0005, -1.2345,
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MAX_VALUE, 9.223372036854776E15 };
+        for (double time : specials) {
+            checkAround(time);
+        }
+        for (double time = 1; time < 1e20; time *= 10) {
+            checkAround(time);
+            checkAround(time + 0.0005);
+        }
+
+        // exact ties at the third decimal, where rounding half up and half even differ
+        for (long k = 0; k < 5_000; k++) {
+            checkAround((k + 0.5) / 1000);
+        }
+        SplittableRandom random = new SplittableRandom(1);
+        double time = 0;
+        for (int i = 0; i < 20_000; i++) {
+            check(random.nextDouble() * Math.pow(10, random.nextInt(16)));
+            time -= Math.log(1 - random.nextDouble());
+            check(time);
+        }
+    }
+
+    private void checkAround(double time) {
+        double down = time;
+        double up = time;
+        check(time);
+        for (int i = 0; i < TIE_NEIGHBOURS; i++) {
+            down = Math.nextDown(down);
+            up = Math.nextUp(up);
+            check(down);
+            check(up);
+        }
+    }
+
+    private void check(double time) {
+        formatter.clear();
+        assertEquals(String.format("%.3f", time), formatter.appendTime(time).toString(),
+                () -> Locale.getDefault() + " " + time);
+    }
+
+    @Test
+    void eventsAreFormattedAsInTheTrace() {
+        formatter.clear();
+        formatter.appendEvent(1.2345, EventType.SERVE, 7, true, 3, true);
+        assertEquals("1.235 7(greedy) served by self-check 3", formatter.toString());
+        formatter.clear();
+        formatter.appendEvent(0.0, EventType.LEAVE, 12, false, 0, false);
+        assertEquals("0.000 12 leaves", formatter.toString());
+    }
+}
@@ -0,0 +1,66 @@
+package cs2030.simulator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Traces runs simulations of the tests into text trace files and fingerprints their traces.
+ * @author Wang Pei
+ */
+final class Traces {
+    private Traces() {
+    }
+
+    /**
+     * Reads a scenario from the ten numbers Main reads from the standard input.
+     * @param data  The seed, servers, self-checkouts, maxQLen, customers, lambda, mu, rho, Pr and Pg.
+     * @return      The Scenario.
+     */
+    static Scenario scenario(String data) {
+        String[] n = data.trim().split("\\s+");
+        return Scenario.of(Integer.parseInt(n[0]), Integer.parseInt(n[1]), Integer.parseInt(n[2]),
+                Integer.parseInt(n[3]), Integer.parseInt(n[4]), Double.parseDouble(n[5]),
+                Double.parseDouble(n[6]), Double.parseDouble(n[7]), Double.parseDouble(n[8]),
+                Double.parseDouble(n[9]));
+    }
+
+    /**
+     * Runs a scenario to its end and returns its text trace, as Main prints it.
+     * @param scenario  The Scenario.
+     * @param options   The SimulatorOptions, whose sink is replaced.
+     * @param file      The file the trace is written to.
+     * @return          The trace, with the statistics on its last line.
+     */
+    static String run(Scenario scenario, SimulatorOptions options, Path file) throws IOException {
+        Simulator simulator = scenario.init(options.withSink(EventSink.toFile(file)));
+        simulator.run();
+        simulator.printResult();
+        return read(file);
+    }
+
+    static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the SHA-256 digest of a trace in hexadecimal.
+     * @param trace     The trace.
+     * @return          The digest.
+     */
+    static String sha256(String trace) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(trace.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package cs2030.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BenchmarkMain runs the JMH benchmarks and writes the results as JSON,
+ * to jmh-result.json unless another -rf/-rff is given on the command line.
+ * Any other JMH option, e.g. a benchmark filter, is passed through.
+ * @author Wang Pei
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add("-rf");
+            options.add("json");
+        }
+        if (!options.contains("-rff")) {
+            options.add("-rff");
+            options.add("jmh-result.json");
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,54 @@
+package cs2030.simulator;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hold-model benchmark of the future event list: each operation polls the next event
+ * and schedules a new one an exponentially distributed time later,
+ * which is the churn the Simulator puts on it.
+ * @author Wang Pei
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FutureEventListBenchmark {
+    @Param({"HEAP", "CALENDAR", "LADDER"})
+    public FutureEventList.Kind kind;
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private FutureEventList events;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        random = new Random(1);
+        events = kind.create();
+        for (int i = 0; i < size; i++) {
+            events.add(Event.doneEvent(-Math.log(random.nextDouble()), null, null));
+        }
+    }
+
+    @Benchmark
+    public Event hold() {
+        Event e = events.poll();
+        events.add(Event.doneEvent(e.time - Math.log(random.nextDouble()), null, null));
+        return e;
+    }
+}
@@ -0,0 +1,70 @@
+package cs2030.simulator;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of Simulator.run() with the servers split into partitions
+ * which a ConservativeEngine, or a TimeWarpEngine, advances in parallel;
+ * 1 partition is the sequential run.
+ * @author Wang Pei
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PartitionedSimulatorBenchmark {
+    private static final double MU = 1.0;
+    private static final double RHO = 0.1;
+    private static final double PR = 0.1;
+    private static final double PG = 0.5;
+
+    @Param({"1000", "10000"})
+    public int serverNumber;
+
+    @Param({"1", "2", "4", "8"})
+    public int partitions;
+
+    @Param({"false", "true"})
+    public boolean timeWarp;
+
+    @Param({"0.9"})
+    public double load;
+
+    @Param({"100000"})
+    public int customerNumber;
+
+    private Simulator simulator;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        double lambda = load * MU * serverNumber;
+        SimulatorOptions options = SimulatorOptions.defaults()
+            .withSink(EventSink.discard())
+            .withLazyArrivals(true)
+            .withRandomGenerator(RandomGenerator.Mode.SPLITTABLE)
+            .withPartitions(partitions)
+            .withTimeWarp(timeWarp);
+        simulator = Initializer.init(serverNumber, 0, customerNumber, 2,
+                1, lambda, MU, RHO, PR, PG, options);
+    }
+
+    @Benchmark
+    public Simulator run() {
+        simulator.run();
+        return simulator;
+    }
+}
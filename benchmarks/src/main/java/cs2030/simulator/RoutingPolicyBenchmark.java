@@ -0,0 +1,76 @@
+package cs2030.simulator;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro-benchmark of routing an arrival by each RoutingPolicy,
+ * with every server busy and queues of random length.
+ * @author Wang Pei
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingPolicyBenchmark {
+    @Param({"10", "100", "1000"})
+    public int serverNumber;
+
+    @Param({"5"})
+    public int maxQLen;
+
+    @Param({"first-fit", "shortest-queue", "shortest-workload", "power-of-2", "round-robin"})
+    public String routing;
+
+    private SystemState state;
+    private Customer[] customers;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        RandomGenerator rng = new RandomGenerator(1, 1.0, 1.0, 0.1);
+        Random random = new Random(1);
+        List<Server> servers = new ArrayList<>();
+        int customerId = 0;
+        for (int i = 0; i < serverNumber; i++) {
+            Server s = Server.createHumanServer(i + 1, maxQLen, rng, 0.1);
+            s.serveAndGetTime(Customer.createCustomer(++customerId, 0));
+            int queued = random.nextInt(maxQLen);
+            for (int j = 0; j < queued; j++) {
+                s.enqueue(Customer.createCustomer(++customerId, 0));
+            }
+            servers.add(s);
+        }
+        Queue<Customer> sharedQueue = new LinkedList<>();
+        state = new SystemState(new ArrayList<>(), servers, new ArrayList<>(), sharedQueue, maxQLen);
+        state.setRouting(RoutingPolicy.named(routing), RoutingPolicy.named(routing));
+        // Customers differ in id and arrival time, which round-robin and power-of-d routing depend on.
+        customers = new Customer[1024];
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = Customer.createCustomer(++customerId, i);
+        }
+    }
+
+    @Benchmark
+    public Server route() {
+        next = (next + 1) & (customers.length - 1);
+        return state.route(customers[next]);
+    }
+}
@@ -0,0 +1,66 @@
+package cs2030.simulator;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end benchmark of Simulator.run() over a mix of system configurations.
+ * The arrival rate is set to the given load of the total service capacity,
+ * so that queues neither stay empty nor overflow for every configuration.
+ * @author Wang Pei
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulatorBenchmark {
+    private static final double MU = 1.0;
+    private static final double RHO = 0.1;
+    private static final double PR = 0.1;
+
+    @Param({"1", "10", "100"})
+    public int serverNumber;
+
+    @Param({"0", "5"})
+    public int selfCheckoutNumber;
+
+    @Param({"1", "5"})
+    public int maxQLen;
+
+    @Param({"0.0", "0.5"})
+    public double Pg;
+
+    @Param({"0.9"})
+    public double load;
+
+    @Param({"10000"})
+    public int customerNumber;
+
+    private Simulator simulator;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        double lambda = load * MU * (serverNumber + selfCheckoutNumber);
+        simulator = Initializer.init(serverNumber, selfCheckoutNumber, customerNumber, maxQLen,
+                1, lambda, MU, RHO, PR, Pg, EventSink.discard());
+    }
+
+    @Benchmark
+    public Simulator run() {
+        simulator.run();
+        return simulator;
+    }
+}
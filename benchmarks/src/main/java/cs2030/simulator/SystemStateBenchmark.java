@@ -0,0 +1,75 @@
+package cs2030.simulator;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro-benchmark of server selection in SystemState, 
+ * with every server busy and queues of random length.
+ * @author Wang Pei
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SystemStateBenchmark {
+    @Param({"10", "100", "1000"})
+    public int serverNumber;
+
+    @Param({"5"})
+    public int maxQLen;
+
+    private SystemState state;
+
+    @Setup
+    public void setUp() {
+        RandomGenerator rng = new RandomGenerator(1, 1.0, 1.0, 0.1);
+        Random random = new Random(1);
+        List<Server> servers = new ArrayList<>();
+        int customerId = 0;
+        for (int i = 0; i < serverNumber; i++) {
+            Server s = Server.createHumanServer(i + 1, maxQLen, rng, 0.1);
+            s.serveAndGetTime(Customer.createCustomer(++customerId, 0));
+            int queued = random.nextInt(maxQLen);
+            for (int j = 0; j < queued; j++) {
+                s.enqueue(Customer.createCustomer(++customerId, 0));
+            }
+            servers.add(s);
+        }
+        Queue<Customer> sharedQueue = new LinkedList<>();
+        state = new SystemState(new ArrayList<>(), servers, new ArrayList<>(), sharedQueue, maxQLen);
+    }
+
+    @Benchmark
+    public Optional<Server> getShortestQueueServer() {
+        return state.getShortestQueueServer();
+    }
+
+    @Benchmark
+    public Optional<Server> getFirstServableServer() {
+        return state.getFirstServableServer();
+    }
+
+    @Benchmark
+    public Optional<Server> getFirstWaitableServer() {
+        return state.getFirstWaitableServer();
+    }
+}
@@ -0,0 +1,61 @@
+package cs2030.simulator;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro-benchmark of formatting one line of the text trace,
+ * with String.format as it used to be done and with a TraceFormatter.
+ * @author Wang Pei
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraceFormatBenchmark {
+    private static final int EVENTS = 1 << 10;
+
+    private final Event[] events = new Event[EVENTS];
+    private final TraceFormatter lines = new TraceFormatter(1 << 16);
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        RandomGenerator rng = new RandomGenerator(1, 1.0, 1.0, 0.1);
+        Server server = Server.createHumanServer(3, 2, rng, 0.1);
+        double time = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            time -= Math.log(random.nextDouble());
+            Customer c = (random.nextInt(4) == 0)
+                ? Customer.createGreedy(i + 1, time)
+                : Customer.createCustomer(i + 1, time);
+            events[i] = Event.serveEvent(time, c, server);
+        }
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        Event e = events[next++ & (EVENTS - 1)];
+        return String.format("%.3f %s served by %s", e.time, e.customer, e.server);
+    }
+
+    @Benchmark
+    public int traceFormatter() {
+        Event e = events[next++ & (EVENTS - 1)];
+        lines.clear();
+        return lines.appendEvent(e).append('\n').length();
+    }
+}
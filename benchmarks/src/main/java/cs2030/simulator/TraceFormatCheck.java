@@ -0,0 +1,101 @@
+package cs2030.simulator;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * TraceFormatCheck compares the times written by a TraceFormatter with String.format("%.3f"),
+ * on random times, exact ties at the third decimal and the doubles a few ulps around them,
+ * zero and negative times, and large and non-finite magnitudes,
+ * in a locale the fast path serves and in one it leaves to String.format.
+ * It prints the first mismatches and exits with status 1 if there are any.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar cs2030.simulator.TraceFormatCheck [RANDOM_VALUES [SEED]]
+ * </pre>
+ * @author Wang Pei
+ */
+public class TraceFormatCheck {
+    private static final int MAX_REPORTED = 20;
+    private static final int TIE_NEIGHBOURS = 8;
+
+    private final TraceFormatter formatter = new TraceFormatter(64);
+    private long checked = 0;
+    private long mismatches = 0;
+
+    public static void main(String[] args) {
+        long count = (args.length > 0) ? Long.parseLong(args[0]) : 2_000_000;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : 1;
+        long mismatches = 0;
+        for (Locale locale : new Locale[] { Locale.US, Locale.GERMANY }) {
+            Locale.setDefault(locale);
+            TraceFormatCheck check = new TraceFormatCheck();
+            check.run(count, seed);
+            System.out.println(locale + ": " + check.checked + " values, " + check.mismatches + " mismatches");
+            mismatches += check.mismatches;
+        }
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    private void run(long count, long seed) {
+        // zero, negatives and special values
+        double[] specials = { 0.0, -0.0, Double.MIN_VALUE, -Double.MIN_VALUE, 1e-300, 0.0005, -0.0005,
+            -1.0, -1.2345, -0.0004999, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+            Double.MAX_VALUE, -Double.MAX_VALUE, Long.MAX_VALUE, 9.223372036854776E15 };
+        for (double time : specials) {
+            checkAround(time);
+        }
+
+        // large magnitudes, on both sides of the bound of the fast path
+        for (double time = 1; time < 1e20; time *= 10) {
+            checkAround(time);
+            checkAround(time + 0.0005);
+            checkAround(1e12 - time / 1e8);
+        }
+
+        // exact ties at the third decimal and their neighbours, small and large, positive and negative
+        for (long k = 0; k < 200_000; k++) {
+            checkAround((k + 0.5) / 1000);
+            checkAround(-(k + 0.5) / 1000);
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        for (long i = 0; i < count / 10; i++) {
+            long k = random.nextLong(1_000_000_000_000_000L);
+            checkAround((k + 0.5) / 1000);
+        }
+
+        // random times: uniform over many scales, and sums of exponential inter-event times
+        double time = 0;
+        for (long i = 0; i < count; i++) {
+            check(random.nextDouble() * Math.pow(10, random.nextInt(16)));
+            time -= Math.log(1 - random.nextDouble());
+            check(time);
+        }
+    }
+
+    private void checkAround(double time) {
+        double down = time;
+        double up = time;
+        check(time);
+        for (int i = 0; i < TIE_NEIGHBOURS; i++) {
+            down = Math.nextDown(down);
+            up = Math.nextUp(up);
+            check(down);
+            check(up);
+        }
+    }
+
+    private void check(double time) {
+        checked++;
+        formatter.clear();
+        String actual = formatter.appendTime(time).toString();
+        String expected = String.format("%.3f", time);
+        if (!actual.equals(expected)) {
+            if (mismatches++ < MAX_REPORTED) {
+                System.out.println("mismatch at " + time + " (" + Double.doubleToRawLongBits(time) + "): "
+                        + actual + " instead of " + expected);
+            }
+        }
+    }
+}